@@ -0,0 +1,204 @@
+package com.mengying.fqnovel.bench;
+
+import com.mengying.fqnovel.utils.GzipUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 池化 gzip 解压的往返校验：以 {@link GZIPOutputStream} 的输出为基础构造各类输入，
+ * 逐条比对 {@link GzipUtils#decompressGzipResponse} 与改造前基于 {@link GZIPInputStream} 的实现——正常输入的解压文本须一致，
+ * 异常输入须同样回退为原文（{@link ZipException}）或抛出相同类型的异常。覆盖 FEXTRA/FNAME/FCOMMENT/FHCRC 头部字段、
+ * 截断、CRC 与 ISIZE 损坏、多成员与尾部垃圾数据，以及超过预分配上限（64MB）的输出。
+ */
+final class GzipRoundTripCheck {
+
+    private static final int FLAG_HCRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+    private static final int HEADER_BYTES = 10;
+    // 与 PooledGzipInflater.MAX_PRESIZE_BYTES 一致
+    private static final int MAX_PRESIZE_BYTES = 64 * 1024 * 1024;
+
+    private final List<String> failures = new ArrayList<>();
+    private int passed;
+
+    private GzipRoundTripCheck() {
+    }
+
+    /**
+     * 执行全部校验。
+     *
+     * @param sample 用作解压内容的样本字节（建议为 UTF-8 正文）
+     * @return 不一致的用例说明，全部通过时为空
+     */
+    static List<String> run(byte[] sample) {
+        GzipRoundTripCheck check = new GzipRoundTripCheck();
+        byte[] member = gzip(sample);
+
+        check.compare("plain", member);
+        check.compare("empty", gzip(new byte[0]));
+        check.compare("fextra", withHeaderFields(member, FLAG_EXTRA));
+        check.compare("fname", withHeaderFields(member, FLAG_NAME));
+        check.compare("fcomment", withHeaderFields(member, FLAG_COMMENT));
+        check.compare("fhcrc", withHeaderFields(member, FLAG_HCRC));
+        check.compare("all-flags", withHeaderFields(member, FLAG_EXTRA | FLAG_NAME | FLAG_COMMENT | FLAG_HCRC));
+
+        check.compare("truncated/header", Arrays.copyOf(member, 5));
+        check.compare("truncated/fname", Arrays.copyOf(withHeaderFields(member, FLAG_NAME), HEADER_BYTES + 3));
+        check.compare("truncated/deflate", Arrays.copyOf(member, member.length / 2));
+        check.compare("truncated/no-trailer", Arrays.copyOf(member, member.length - 8));
+        check.compare("truncated/trailer", Arrays.copyOf(member, member.length - 1));
+
+        byte[] corruptCrc = member.clone();
+        corruptCrc[corruptCrc.length - 8] ^= 0x01;
+        check.compare("corrupt/crc", corruptCrc);
+        byte[] corruptIsize = member.clone();
+        writeIntLE(corruptIsize, corruptIsize.length - 4, MAX_PRESIZE_BYTES + 1L);
+        check.compare("corrupt/isize-over-presize", corruptIsize);
+
+        byte[] second = gzip("第二个成员".getBytes(StandardCharsets.UTF_8));
+        check.compare("multi-member", concat(member, second));
+        check.compare("trailing-garbage", concat(member, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}));
+
+        byte[] large = new byte[MAX_PRESIZE_BYTES + 4096];
+        for (int i = 0; i < large.length; i += sample.length) {
+            System.arraycopy(sample, 0, large, i, Math.min(sample.length, large.length - i));
+        }
+        check.compare("isize-over-presize", gzip(large));
+
+        check.compareText("utf8", member, sample);
+        System.out.printf("gzip round-trip checks: passed=%d, failed=%d%n", check.passed, check.failures.size());
+        return check.failures;
+    }
+
+    private void compare(String name, byte[] data) {
+        Outcome expected = decode(() -> legacyDecompress(data));
+        Outcome actual = decode(() -> GzipUtils.decompressGzipResponse(data));
+        boolean same = expected.error() == null
+            ? actual.error() == null && expected.text().equals(actual.text())
+            : expected.error() == actual.error();
+        record(name, same, "expected=" + expected + ", actual=" + actual);
+    }
+
+    /**
+     * 改造前的 GzipUtils.decompressGzipResponse：GZIPInputStream 解压，ZipException 时按原文返回。
+     */
+    private static String legacyDecompress(byte[] data) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (ZipException e) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 字符串路径（{@link GzipUtils#decompressGzipResponse}）经复用的字符缓冲区解码，须与按 UTF-8 直接构造一致。
+     */
+    private void compareText(String name, byte[] data, byte[] expected) {
+        String actual;
+        try {
+            actual = GzipUtils.decompressGzipResponse(data);
+        } catch (Exception e) {
+            record(name, false, "error=" + e);
+            return;
+        }
+        record(name, actual.equals(new String(expected, StandardCharsets.UTF_8)), "decoded text differs");
+    }
+
+    private void record(String name, boolean same, String detail) {
+        if (same) {
+            passed++;
+        } else {
+            failures.add(name + ": " + detail);
+        }
+    }
+
+    private static Outcome decode(Decoder decoder) {
+        try {
+            return new Outcome(decoder.decode(), null);
+        } catch (Exception e) {
+            return new Outcome(null, e.getClass());
+        }
+    }
+
+    /**
+     * 在 member 的 10 字节固定头部之后按 RFC 1952 的顺序插入 FEXTRA、FNAME、FCOMMENT 与 FHCRC 字段。
+     */
+    private static byte[] withHeaderFields(byte[] member, int flags) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(member, 0, HEADER_BYTES);
+        if ((flags & FLAG_EXTRA) != 0) {
+            byte[] extra = {'F', 'Q', 4, 0, 1, 2, 3, 4};
+            header.write(extra.length);
+            header.write(0);
+            header.writeBytes(extra);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            header.writeBytes("chapter.html".getBytes(StandardCharsets.ISO_8859_1));
+            header.write(0);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            header.writeBytes("fq".getBytes(StandardCharsets.ISO_8859_1));
+            header.write(0);
+        }
+        byte[] prefix = header.toByteArray();
+        prefix[3] = (byte) flags;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(member.length + prefix.length);
+        out.writeBytes(prefix);
+        if ((flags & FLAG_HCRC) != 0) {
+            CRC32 crc = new CRC32();
+            crc.update(prefix);
+            out.write((int) crc.getValue() & 0xff);
+            out.write((int) (crc.getValue() >>> 8) & 0xff);
+        }
+        out.write(member, HEADER_BYTES, member.length - HEADER_BYTES);
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static void writeIntLE(byte[] data, int offset, long value) {
+        for (int i = 0; i < 4; i++) {
+            data[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        String decode() throws Exception;
+    }
+
+    private record Outcome(String text, Class<?> error) {
+
+        @Override
+        public String toString() {
+            return error != null ? error.getSimpleName() : text.length() + " chars";
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.mengying.fqnovel.bench;
+
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.service.FQEncryptService;
+import com.mengying.fqnovel.service.SignatureHeaderParser;
+import com.mengying.fqnovel.service.SignatureRequest;
+import com.mengying.fqnovel.unidbg.CpuBackends;
+import com.mengying.fqnovel.unidbg.IdleFQ;
+import com.mengying.fqnovel.utils.GzipUtils;
+import com.mengying.fqnovel.utils.ProcessMemory;
+import com.mengying.fqnovel.utils.Texts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * signer 基准测试：在各 CPU 后端上执行相同的 generateSignature 负载，
+ * 输出吞吐（签名/秒）、p50/p99 延迟与 RSS，便于为当前硬件选择最快的后端。
+ * <p>
+ * 用法（打包后）：
+ * <pre>
+ * java --enable-native-access=ALL-UNNAMED -cp target/fqnovel.jar \
+ *   -Dloader.main=com.mengying.fqnovel.bench.SignerBenchmark \
+ *   org.springframework.boot.loader.launch.PropertiesLauncher \
+ *   --backends=unicorn2,dynarmic --iterations=500 --warmup=50
+ * </pre>
+ * 模式：
+ * <ul>
+ *   <li>{@code --mode=backend}（默认）：对比各 CPU 后端</li>
+ *   <li>{@code --mode=batch --batch-sizes=1,4,16}：经由 FQEncryptService 完整签名路径（加锁、epoch 检查、
+ *   header 拼接、结果解析），对比不同批大小下的单次签名开销</li>
+ *   <li>{@code --mode=io}：对比签名 I/O 路径改造前后（拼接 header 字符串 + 兼容解析 vs 复用缓冲区 + 单次扫描解析）
+ *   的单次耗时与每次调用的堆分配字节数；{@code --skip-sign} 只测解析</li>
+ *   <li>{@code --mode=memory --instances=4 --snapshot=true --virtual-modules=true}：依次创建多个实例并保持存活，
+ *   输出每个实例的 RSS 增量、模拟器映射内存、快照堆占用与堆增量；切换 {@code --virtual-modules} 或
+ *   {@code MALLOC_ARENA_MAX} 分别运行即可对比内存占用</li>
+ *   <li>{@code --mode=gzip --chapter-chars=6000 --batch-chapters=30}：对比 gzip 解压改造前后
+ *   （每次新建 GZIPInputStream + 1KB 拷贝缓冲 + ByteArrayOutputStream vs 池化 Inflater + 按 ISIZE 预分配）
+ *   在单章与一批章节大小下的单次耗时与堆分配字节数，不需要 so 与 apk</li>
+ * </ul>
+ */
+public final class SignerBenchmark {
+
+    static final String SAMPLE_URL = "https://api5-normal-sinfonlineb.fqnovel.com/reading/reader/batch_full/v"
+        + "?item_ids=7276384138653291064&req_type=1&aid=1967&iid=573270579220059&device_id=1778337441136410"
+        + "&ac=wifi&channel=googleplay&app_name=novelapp&version_code=68132&version_name=6.8.1.32"
+        + "&device_platform=android&os=android&ssmix=a&update_version_code=68132&device_type=Sirius"
+        + "&device_brand=Xiaomi&language=zh&os_api=33&os_version=13&_rticket=1700000000000";
+    static final String SAMPLE_HEADERS = "accept\r\napplication/json; charset=utf-8,application/x-protobuf"
+        + "\r\ncookie\r\nstore-region=cn-zj; store-region-src=did; install_id=573270579220059"
+        + "\r\nuser-agent\r\ncom.dragon.read.oversea.gp/68132 (Linux; U; Android 13; zh_CN; Sirius; Build/V417IR;tt-ok/3.12.13.4-tiktok)"
+        + "\r\nx-ss-req-ticket\r\n1700000000000";
+
+    // native 签名结果的典型格式（key\r\nvalue 交替行），用于解析基准
+    static final String SAMPLE_RESULT = "X-Argus\r\n/hHh2vJ3eZ7Gx2r0GZ4bJ2F0aQ7h0PvJtQ0aS6m9nHk1fG2Yq0rXbZs3dV4uW5tA6yC7xE8wR9tB0vN1mL2kJ3hG4fD5s=="
+        + "\r\nX-Gorgon\r\n8404a0c7000087a14cd6a1b2c3d4e5f60718293a4b5c6d7e8f"
+        + "\r\nX-Khronos\r\n1700000000"
+        + "\r\nX-Ladon\r\nQm9vazpSZWFkZXI6U2FtcGxlOkxhZG9uOlZhbHVlOjE3MDAwMDAwMDA="
+        + "\r\nX-Helios\r\nYWJjZGVmZ2hpamtsbW5vcHFyc3R1dnd4eXoxMjM0NTY3ODkw"
+        + "\r\nX-Medusa\r\nMTIzNDU2Nzg5MGFiY2RlZmdoaWprbG1ub3BxcnN0dXZ3eHl6QUJDREVGR0hJSktMTU5PUA=="
+        + "\r\nX-Neptune\r\nbmVwdHVuZQ==\r\n";
+
+    private static final long MB = 1024L * 1024L;
+
+    private SignerBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseArgs(args);
+        if ("batch".equalsIgnoreCase(options.get("mode"))) {
+            runBatchMode(options);
+            return;
+        }
+        if ("io".equalsIgnoreCase(options.get("mode"))) {
+            runIoMode(options);
+            return;
+        }
+        if ("memory".equalsIgnoreCase(options.get("mode"))) {
+            runMemoryMode(options);
+            return;
+        }
+        if ("gzip".equalsIgnoreCase(options.get("mode"))) {
+            runGzipMode(options);
+            return;
+        }
+        List<String> backends = splitList(options.getOrDefault("backends", CpuBackends.UNICORN2 + "," + CpuBackends.DYNARMIC));
+        int iterations = Math.max(1, Integer.parseInt(options.getOrDefault("iterations", "200")));
+        int warmup = Math.max(0, Integer.parseInt(options.getOrDefault("warmup", "20")));
+        String apkPath = options.get("apk-path");
+        String apkClasspath = options.get("apk-classpath");
+
+        System.out.printf(Locale.ROOT, "signer benchmark: iterations=%d, warmup=%d, backends=%s%n", iterations, warmup, backends);
+        List<String> rows = new ArrayList<>();
+        for (String backend : backends) {
+            rows.add(runBackend(backend, iterations, warmup, apkPath, apkClasspath));
+        }
+
+        System.out.println();
+        System.out.println("backend      actual               init(ms)  sig/s     p50(us)   p99(us)   rss(MB)");
+        rows.forEach(System.out::println);
+    }
+
+    /**
+     * 基准用的 signer 配置：默认不记录快照，其余项取配置默认值。
+     */
+    private static UnidbgProperties signerProperties(String backend, String apkPath, String apkClasspath) {
+        UnidbgProperties properties = new UnidbgProperties();
+        properties.setSnapshotEnabled(false);
+        properties.setBackend(backend);
+        properties.setApkPath(apkPath);
+        properties.setApkClasspath(apkClasspath);
+        return properties;
+    }
+
+    private static String runBackend(String backend, int iterations, int warmup, String apkPath, String apkClasspath) {
+        long initStart = System.nanoTime();
+        IdleFQ signer = new IdleFQ(IdleFQ.Options.from(signerProperties(backend, apkPath, apkClasspath)));
+        long initMs = (System.nanoTime() - initStart) / 1_000_000L;
+        try {
+            for (int i = 0; i < warmup; i++) {
+                signer.generateSignature(SAMPLE_URL, SAMPLE_HEADERS);
+            }
+
+            long[] latencies = new long[iterations];
+            int failures = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                long t0 = System.nanoTime();
+                String signature = signer.generateSignature(SAMPLE_URL, SAMPLE_HEADERS);
+                latencies[i] = System.nanoTime() - t0;
+                if (!Texts.hasText(signature)) {
+                    failures++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (failures > 0) {
+                System.out.printf(Locale.ROOT, "[%s] 签名失败次数: %d/%d%n", backend, failures, iterations);
+            }
+
+            return formatRow(backend, signer.getBackendName(), initMs, iterations, elapsed, latencies);
+        } finally {
+            signer.destroy();
+        }
+    }
+
+    private static void runBatchMode(Map<String, String> options) {
+        List<Integer> batchSizes = new ArrayList<>();
+        for (String size : splitList(options.getOrDefault("batch-sizes", "1,2,4,8,16"))) {
+            batchSizes.add(Math.max(1, Integer.parseInt(size)));
+        }
+        int iterations = Math.max(1, Integer.parseInt(options.getOrDefault("iterations", "256")));
+        int warmup = Math.max(0, Integer.parseInt(options.getOrDefault("warmup", "20")));
+
+        UnidbgProperties properties = signerProperties(options.getOrDefault("backend", CpuBackends.UNICORN2),
+            options.get("apk-path"), options.get("apk-classpath"));
+        properties.setPoolSize(1);
+
+        Map<String, String> headers = sampleHeaderMap();
+        System.out.printf(Locale.ROOT, "signer batch benchmark: iterations=%d, warmup=%d, batchSizes=%s%n", iterations, warmup, batchSizes);
+        FQEncryptService service = new FQEncryptService(properties);
+        try {
+            for (int i = 0; i < warmup; i++) {
+                service.generateSignatureHeaders(SAMPLE_URL, headers);
+            }
+
+            System.out.println();
+            System.out.println("batch  batches  total(ms)  per-sig(us)  vs-batch1");
+            double baselineMicros = -1;
+            for (int batchSize : batchSizes) {
+                List<SignatureRequest> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add(new SignatureRequest(SAMPLE_URL, headers));
+                }
+                int batches = Math.max(1, (iterations + batchSize - 1) / batchSize);
+                long start = System.nanoTime();
+                for (int i = 0; i < batches; i++) {
+                    service.generateSignatureHeadersBatch(batch);
+                }
+                long elapsed = System.nanoTime() - start;
+                double perSignatureMicros = elapsed / 1_000.0 / ((long) batches * batchSize);
+                if (baselineMicros < 0) {
+                    baselineMicros = perSignatureMicros;
+                }
+                System.out.printf(Locale.ROOT, "%-6d %-8d %-10d %-12.1f %.2fx%n",
+                    batchSize, batches, elapsed / 1_000_000L, perSignatureMicros, perSignatureMicros / baselineMicros);
+            }
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static void runIoMode(Map<String, String> options) {
+        int iterations = Math.max(1, Integer.parseInt(options.getOrDefault("iterations", "200")));
+        int warmup = Math.max(0, Integer.parseInt(options.getOrDefault("warmup", "20")));
+        int parseIterations = Math.max(1, Integer.parseInt(options.getOrDefault("parse-iterations", "200000")));
+        Map<String, String> headers = sampleHeaderMap();
+
+        System.out.printf(Locale.ROOT, "signer io benchmark: iterations=%d, warmup=%d, parseIterations=%d%n",
+            iterations, warmup, parseIterations);
+        List<String> rows = new ArrayList<>();
+        rows.add(measure("parse/lenient", parseIterations, parseIterations / 10,
+            () -> SignatureHeaderParser.parseLenient(SAMPLE_RESULT)));
+        rows.add(measure("parse/one-pass", parseIterations, parseIterations / 10,
+            () -> SignatureHeaderParser.parse(SAMPLE_RESULT)));
+
+        if (!Boolean.parseBoolean(options.getOrDefault("skip-sign", "false"))) {
+            IdleFQ signer = new IdleFQ(IdleFQ.Options.from(signerProperties(options.getOrDefault("backend", CpuBackends.UNICORN2),
+                options.get("apk-path"), options.get("apk-classpath"))));
+            try {
+                // 改造前：每次拼接 header 字符串、兼容解析；改造后：Map 直接写入复用缓冲区、单次扫描解析
+                rows.add(measure("sign/string", iterations, warmup, () -> SignatureHeaderParser.parseLenient(
+                    signer.generateSignature(SAMPLE_URL, IdleFQ.joinHeaders(headers)))));
+                rows.add(measure("sign/buffer", iterations, warmup,
+                    () -> SignatureHeaderParser.parse(signer.generateSignature(SAMPLE_URL, headers))));
+            } finally {
+                signer.destroy();
+            }
+        }
+
+        System.out.println();
+        System.out.println("case             ops        avg(ns)     p99(ns)     alloc(B/op)");
+        rows.forEach(System.out::println);
+    }
+
+    private static void runMemoryMode(Map<String, String> options) {
+        int instances = Math.max(1, Integer.parseInt(options.getOrDefault("instances", "4")));
+        boolean snapshot = Boolean.parseBoolean(options.getOrDefault("snapshot", "true"));
+        boolean virtualModules = Boolean.parseBoolean(options.getOrDefault("virtual-modules", "true"));
+        String backend = options.getOrDefault("backend", CpuBackends.UNICORN2);
+        System.out.printf(Locale.ROOT, "signer memory benchmark: instances=%d, backend=%s, snapshot=%s, virtualModules=%s, MALLOC_ARENA_MAX=%s%n",
+            instances, backend, snapshot, virtualModules, Objects.toString(System.getenv("MALLOC_ARENA_MAX"), "-"));
+
+        long baselineRss = ProcessMemory.rssBytes();
+        long baselineHeap = usedHeapBytes();
+        UnidbgProperties properties = signerProperties(backend, options.get("apk-path"), options.get("apk-classpath"));
+        properties.setSnapshotEnabled(snapshot);
+        properties.setVirtualModules(virtualModules);
+        List<IdleFQ> signers = new ArrayList<>(instances);
+        List<String> rows = new ArrayList<>();
+        try {
+            for (int i = 0; i < instances; i++) {
+                long heapBefore = usedHeapBytes();
+                long initStart = System.nanoTime();
+                IdleFQ signer = new IdleFQ(IdleFQ.Options.from(properties));
+                long initMs = (System.nanoTime() - initStart) / 1_000_000L;
+                signers.add(signer);
+                // 签一次，使签名路径用到的页面计入 RSS
+                signer.generateSignature(SAMPLE_URL, SAMPLE_HEADERS);
+                rows.add(String.format(Locale.ROOT, "%-9d %-9d %-14s %-12d %-14d %d",
+                    i, initMs, formatMb(signer.getInitRssBytes()), signer.getMappedBytes() / MB,
+                    signer.getSnapshotBytes() / MB, (usedHeapBytes() - heapBefore) / MB));
+            }
+            long totalRss = ProcessMemory.rssBytes();
+
+            System.out.println();
+            System.out.println("instance  init(ms)  rss-delta(MB)  mapped(MB)  snapshot(MB)  heap-delta(MB)");
+            rows.forEach(System.out::println);
+            System.out.println();
+            System.out.printf(Locale.ROOT, "rss: baseline=%s, total=%s, per-instance=%s; heap: baseline=%dMB, total=%dMB%n",
+                formatMb(baselineRss), formatMb(totalRss),
+                baselineRss < 0 || totalRss < 0 ? "n/a" : String.valueOf((totalRss - baselineRss) / instances / MB),
+                baselineHeap / MB, usedHeapBytes() / MB);
+        } finally {
+            signers.forEach(IdleFQ::destroy);
+        }
+    }
+
+    private static void runGzipMode(Map<String, String> options) {
+        int iterations = Math.max(1, Integer.parseInt(options.getOrDefault("iterations", "20000")));
+        int warmup = Math.max(0, Integer.parseInt(options.getOrDefault("warmup", String.valueOf(iterations / 4))));
+        int chapterChars = Math.max(1, Integer.parseInt(options.getOrDefault("chapter-chars", "6000")));
+        int batchChapters = Math.max(1, Integer.parseInt(options.getOrDefault("batch-chapters", "30")));
+        Random random = new Random(42L);
+        byte[] chapterText = sampleChapterText(random, chapterChars).getBytes(StandardCharsets.UTF_8);
+        StringBuilder batchBuilder = new StringBuilder();
+        for (int i = 0; i < batchChapters; i++) {
+            batchBuilder.append(sampleChapterText(random, chapterChars));
+        }
+        byte[] batchText = batchBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] chapter = gzip(chapterText);
+        byte[] batch = gzip(batchText);
+
+        // 先校验池化解压与 GZIPInputStream 的行为一致，不一致时不输出性能数据
+        List<String> failures = GzipRoundTripCheck.run(chapterText);
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("  FAIL " + failure));
+            System.exit(1);
+        }
+
+        System.out.printf(Locale.ROOT, "gzip benchmark: iterations=%d, warmup=%d, chapter=%dB->%dB, batch=%dB->%dB%n",
+            iterations, warmup, chapterText.length, chapter.length, batchText.length, batch.length);
+        int batchIterations = Math.max(1, iterations / batchChapters);
+        int batchWarmup = Math.max(0, warmup / batchChapters);
+        List<String> rows = new ArrayList<>();
+        rows.add(measure("chapter/stream", iterations, warmup, () -> legacyUngzip(chapter)));
+        rows.add(measure("chapter/pooled", iterations, warmup, () -> pooledUngzip(chapter)));
+        rows.add(measure("batch/stream", batchIterations, batchWarmup, () -> legacyUngzip(batch)));
+        rows.add(measure("batch/pooled", batchIterations, batchWarmup, () -> pooledUngzip(batch)));
+
+        System.out.println();
+        System.out.println("case             ops        avg(ns)     p99(ns)     alloc(B/op)");
+        rows.forEach(System.out::println);
+    }
+
+    /**
+     * 由常用汉字与标点随机组成的段落文本，压缩率接近真实章节正文。
+     */
+    static String sampleChapterText(Random random, int chars) {
+        String alphabet = "的一是了我不人在他有这个上们来到时大地为子中你说生国年着就那和要她出也得里后自以会家可下而过天去能对小多然于心学么之都好看起发当没成只如事把还用第样道想作种开美总从无情己面最女但现前些所同日手又行意动方期它头经长儿回位分爱老因很给名法间斯知世什两次使身者被高已亲其进此话常与活正感";
+        StringBuilder text = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++) {
+            if (i % 40 == 39) {
+                text.append(i % 200 == 199 ? '\n' : '。');
+            } else if (i % 9 == 8) {
+                text.append('，');
+            } else {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+        }
+        return text.toString();
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 改造前的 GzipUtils.ungzip
+     */
+    private static String legacyUngzip(byte[] data) {
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = gzipInputStream.read(buffer)) != -1) {
+                byteArrayOutputStream.write(buffer, 0, length);
+            }
+            return byteArrayOutputStream.toString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String pooledUngzip(byte[] data) {
+        try {
+            return GzipUtils.decompressGzipResponse(data);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 触发一次 GC 后的已用堆，减少回收时机对增量的干扰
+     */
+    private static long usedHeapBytes() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String formatMb(long bytes) {
+        return bytes < 0 ? "n/a" : String.valueOf(bytes / MB);
+    }
+
+    private static String measure(String name, int iterations, int warmup, Supplier<?> work) {
+        for (int i = 0; i < warmup; i++) {
+            work.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] latencies = new long[iterations];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long t0 = System.nanoTime();
+            work.get();
+            latencies[i] = System.nanoTime() - t0;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return String.format(Locale.ROOT, "%-16s %-10d %-11d %-11d %d",
+            name, iterations, elapsed / iterations, percentile(latencies, 0.99), allocated / iterations);
+    }
+
+    static Map<String, String> sampleHeaderMap() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String[] parts = SAMPLE_HEADERS.split("\r\n");
+        for (int i = 0; i + 1 < parts.length; i += 2) {
+            headers.put(parts[i], parts[i + 1]);
+        }
+        return headers;
+    }
+
+    static String formatRow(String backend, String actual, long initMs, int iterations, long elapsedNanos, long[] latencies) {
+        double perSecond = iterations * 1_000_000_000.0 / Math.max(1L, elapsedNanos);
+        long rss = ProcessMemory.rssBytes();
+        return String.format(Locale.ROOT, "%-12s %-20s %-9d %-9.1f %-9d %-9d %s",
+            backend, actual, initMs, perSecond,
+            percentile(latencies, 0.50) / 1_000L, percentile(latencies, 0.99) / 1_000L,
+            rss < 0 ? "n/a" : String.valueOf(rss / (1024L * 1024L)));
+    }
+
+    static long percentile(long[] values, double p) {
+        if (values.length == 0) {
+            return 0L;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg == null || !arg.startsWith("--")) {
+                continue;
+            }
+            int idx = arg.indexOf('=');
+            if (idx > 2) {
+                options.put(arg.substring(2, idx), arg.substring(idx + 1));
+            } else {
+                options.put(arg.substring(2), "true");
+            }
+        }
+        return options;
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> result = new ArrayList<>();
+        for (String part : value.split(",")) {
+            String trimmed = Texts.trimToNull(part);
+            if (trimmed != null) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+}
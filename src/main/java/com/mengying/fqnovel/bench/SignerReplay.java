@@ -0,0 +1,297 @@
+package com.mengying.fqnovel.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.service.FQEncryptService;
+import com.mengying.fqnovel.unidbg.CpuBackends;
+import com.mengying.fqnovel.unidbg.IdleFQ;
+import com.mengying.fqnovel.utils.Texts;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 确定性签名回放：在确定性模式（虚拟时钟 + 固定随机种子）下对一组 (url, headers) 输入签名，
+ * 录制为语料，之后可在无网络的机器上按相同配置回放，逐条比对签名结果并输出吞吐与延迟，
+ * 用于对比 CPU 后端、池配置与 so 升级前后的回归与性能变化。
+ * <p>
+ * 用法（打包后，入口与 {@link SignerBenchmark} 相同，替换 -Dloader.main）：
+ * <pre>
+ * # 录制：--inputs 为每行 {"url":...,"headers":{...}} 的 JSONL，省略时生成 --count 条合成输入
+ * ... --mode=record --out=signer-corpus.jsonl --inputs=inputs.jsonl
+ * # 回放：虚拟时钟起点与种子取自语料首行，可改变 --backend/--pool-size/--threads/--repeat
+ * ... --mode=verify --corpus=signer-corpus.jsonl --backend=dynarmic --pool-size=2 --threads=2
+ * # 快照回滚：新建实例签名作为期望，另一实例每轮先签扰动输入再回滚，回滚后的签名须逐条一致
+ * ... --mode=snapshot --count=50 --cycles=3
+ * </pre>
+ * 回放或回滚校验存在不一致时以退出码 1 结束，便于接入 CI。
+ */
+public final class SignerReplay {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SYNTHETIC_ITEM_ID_BASE = 7276384138653291064L;
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
+    private SignerReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SignerBenchmark.parseArgs(args);
+        String mode = options.getOrDefault("mode", "verify");
+        int exitCode = switch (mode.toLowerCase(Locale.ROOT)) {
+            case "record" -> record(options);
+            case "verify" -> verify(options);
+            case "snapshot" -> verifySnapshot(options);
+            default -> throw new IllegalArgumentException("未知模式: " + mode + "（record/verify/snapshot）");
+        };
+        System.exit(exitCode);
+    }
+
+    private static int record(Map<String, String> options) throws IOException {
+        Path out = Path.of(Objects.requireNonNull(Texts.trimToNull(options.get("out")), "缺少 --out 参数"));
+        long epochMs = Long.parseLong(options.getOrDefault("epoch-ms", "1700000000000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        List<Sample> inputs = options.containsKey("inputs")
+            ? readInputs(Path.of(options.get("inputs")))
+            : syntheticInputs(Integer.parseInt(options.getOrDefault("count", "200")), epochMs);
+
+        UnidbgProperties properties = properties(options, epochMs, seed, 1);
+        FQEncryptService service = new FQEncryptService(properties);
+        int empty = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(MAPPER.writeValueAsString(new Meta(epochMs, seed, properties.getBackend(), inputs.size())));
+            writer.newLine();
+            for (Sample input : inputs) {
+                Map<String, String> signature = service.generateSignatureHeaders(input.url(), input.headers());
+                if (signature.isEmpty()) {
+                    empty++;
+                }
+                writer.write(MAPPER.writeValueAsString(new Sample(input.url(), input.headers(), signature)));
+                writer.newLine();
+            }
+        } finally {
+            service.destroy();
+        }
+        System.out.printf(Locale.ROOT, "已录制 %d 条签名语料: %s（空结果 %d）%n", inputs.size(), out, empty);
+        return empty > 0 ? 1 : 0;
+    }
+
+    private static int verify(Map<String, String> options) throws Exception {
+        Path corpusPath = Path.of(Objects.requireNonNull(Texts.trimToNull(options.get("corpus")), "缺少 --corpus 参数"));
+        Meta meta;
+        List<Sample> corpus = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(corpusPath, StandardCharsets.UTF_8)) {
+            meta = MAPPER.readValue(reader.readLine(), Meta.class);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    corpus.add(MAPPER.readValue(line, Sample.class));
+                }
+            }
+        }
+        int poolSize = Math.max(1, Integer.parseInt(options.getOrDefault("pool-size", "1")));
+        int threads = Math.max(1, Integer.parseInt(options.getOrDefault("threads", String.valueOf(poolSize))));
+        int repeat = Math.max(1, Integer.parseInt(options.getOrDefault("repeat", "1")));
+        UnidbgProperties properties = properties(options, meta.epochMs(), meta.seed(), poolSize);
+        System.out.printf(Locale.ROOT, "signer replay: samples=%d, repeat=%d, backend=%s（录制时 %s）, poolSize=%d, threads=%d%n",
+            corpus.size(), repeat, properties.getBackend(), meta.backend(), poolSize, threads);
+
+        FQEncryptService service = new FQEncryptService(properties);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int total = corpus.size() * repeat;
+        long[] latencies = new long[total];
+        AtomicInteger mismatches = new AtomicInteger();
+        long elapsed;
+        try {
+            List<Future<?>> futures = new ArrayList<>(total);
+            long start = System.nanoTime();
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                Sample sample = corpus.get(i % corpus.size());
+                futures.add(executor.submit(() -> {
+                    long t0 = System.nanoTime();
+                    Map<String, String> actual = service.generateSignatureHeaders(sample.url(), sample.headers());
+                    latencies[index] = System.nanoTime() - t0;
+                    if (!actual.equals(sample.expected())) {
+                        reportMismatch(mismatches.incrementAndGet(), index % corpus.size(), sample, actual);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("回放签名失败", e.getCause());
+                }
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+            service.destroy();
+        }
+
+        System.out.println();
+        System.out.println("samples   mismatches  sig/s     p50(us)   p99(us)");
+        System.out.printf(Locale.ROOT, "%-9d %-11d %-9.1f %-9d %d%n",
+            total, mismatches.get(), total * 1_000_000_000.0 / Math.max(1L, elapsed),
+            SignerBenchmark.percentile(latencies, 0.50) / 1_000L, SignerBenchmark.percentile(latencies, 0.99) / 1_000L);
+        return mismatches.get() > 0 ? 1 : 0;
+    }
+
+    /**
+     * 快照回滚校验：同一组输入在回滚后的实例上依次签名，结果须与新建实例逐条一致，而不只是回滚没有报错。
+     */
+    private static int verifySnapshot(Map<String, String> options) throws IOException {
+        long epochMs = Long.parseLong(options.getOrDefault("epoch-ms", "1700000000000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        int cycles = Math.max(1, Integer.parseInt(options.getOrDefault("cycles", "3")));
+        int count = Math.max(1, Integer.parseInt(options.getOrDefault("count", "50")));
+        List<Sample> inputs = options.containsKey("inputs")
+            ? readInputs(Path.of(options.get("inputs")))
+            : syntheticInputs(count, epochMs);
+        // 扰动输入：时间戳与章节 id 均不同，用于在回滚前改变实例状态
+        List<Sample> noise = syntheticInputs(inputs.size(), epochMs + 86_400_000L);
+        UnidbgProperties properties = properties(options, epochMs, seed, 1);
+        properties.setSnapshotEnabled(true);
+        IdleFQ.Options signerOptions = IdleFQ.Options.from(properties);
+        System.out.printf(Locale.ROOT, "snapshot verify: samples=%d, cycles=%d, backend=%s%n",
+            inputs.size(), cycles, properties.getBackend());
+
+        List<String> expected;
+        IdleFQ fresh = new IdleFQ(signerOptions);
+        try {
+            expected = signAll(fresh, inputs);
+        } finally {
+            fresh.destroy();
+        }
+        if (expected.contains(null)) {
+            System.out.println("新建实例存在空签名，无法作为期望结果");
+            return 1;
+        }
+
+        int mismatches = 0;
+        IdleFQ restored = new IdleFQ(signerOptions);
+        try {
+            for (int cycle = 1; cycle <= cycles; cycle++) {
+                signAll(restored, noise);
+                if (!restored.restoreSnapshot()) {
+                    System.out.printf(Locale.ROOT, "快照回滚失败: cycle=%d%n", cycle);
+                    return 1;
+                }
+                List<String> actual = signAll(restored, inputs);
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (!expected.get(i).equals(actual.get(i)) && ++mismatches <= MAX_REPORTED_MISMATCHES) {
+                        System.out.printf(Locale.ROOT, "回滚后签名不一致: cycle=%d, index=%d, url=%s%n",
+                            cycle, i, Texts.truncate(inputs.get(i).url(), 120));
+                    }
+                }
+            }
+        } finally {
+            restored.destroy();
+        }
+        System.out.printf(Locale.ROOT, "已校验 %d 条回滚后签名，不一致 %d 条%n", inputs.size() * cycles, mismatches);
+        return mismatches > 0 ? 1 : 0;
+    }
+
+    private static List<String> signAll(IdleFQ signer, List<Sample> inputs) {
+        List<String> signatures = new ArrayList<>(inputs.size());
+        for (Sample input : inputs) {
+            signatures.add(signer.generateSignature(input.url(), input.headers()));
+        }
+        return signatures;
+    }
+
+    private static void reportMismatch(int count, int index, Sample sample, Map<String, String> actual) {
+        if (count > MAX_REPORTED_MISMATCHES) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        for (String key : sample.expected().keySet()) {
+            if (!Objects.equals(sample.expected().get(key), actual.get(key))) {
+                keys.add(key);
+            }
+        }
+        for (String key : actual.keySet()) {
+            if (!sample.expected().containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        System.out.printf(Locale.ROOT, "签名不一致: index=%d, keys=%s, url=%s%n", index, keys, Texts.truncate(sample.url(), 120));
+    }
+
+    private static UnidbgProperties properties(Map<String, String> options, long epochMs, long seed, int poolSize) {
+        UnidbgProperties properties = new UnidbgProperties();
+        properties.setPoolSize(poolSize);
+        properties.setDeterministic(true);
+        properties.setDeterministicEpochMs(epochMs);
+        properties.setDeterministicSeed(seed);
+        properties.setBackend(options.getOrDefault("backend", CpuBackends.UNICORN2));
+        properties.setApkPath(options.get("apk-path"));
+        properties.setApkClasspath(options.get("apk-classpath"));
+        properties.setFreeNativeResult(Boolean.parseBoolean(options.getOrDefault("free-native-result", "false")));
+        // 回放比较的是固定实例状态下的签名，关闭按调用次数回收
+        properties.setRecycleMaxCalls(0L);
+        properties.setRecycleMaxMappedGrowthMb(0L);
+        return properties;
+    }
+
+    private static List<Sample> readInputs(Path path) throws IOException {
+        List<Sample> inputs = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, Object> node = MAPPER.readValue(line, new TypeReference<>() {
+            });
+            Map<String, String> headers = MAPPER.convertValue(node.getOrDefault("headers", Map.of()), new TypeReference<>() {
+            });
+            inputs.add(new Sample(String.valueOf(node.get("url")), headers, Map.of()));
+        }
+        return inputs;
+    }
+
+    /**
+     * 以基准测试样例为模板，逐条改变章节 id 与请求时间戳。
+     */
+    private static List<Sample> syntheticInputs(int count, long epochMs) {
+        List<Sample> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String ticket = String.valueOf(epochMs + i);
+            String url = SignerBenchmark.SAMPLE_URL
+                .replace("item_ids=7276384138653291064", "item_ids=" + (SYNTHETIC_ITEM_ID_BASE + i))
+                .replace("_rticket=1700000000000", "_rticket=" + ticket);
+            Map<String, String> headers = new LinkedHashMap<>(SignerBenchmark.sampleHeaderMap());
+            headers.put("x-ss-req-ticket", ticket);
+            inputs.add(new Sample(url, headers, Map.of()));
+        }
+        return inputs;
+    }
+
+    /**
+     * 语料首行：录制时的虚拟时钟起点、随机种子与后端
+     */
+    record Meta(long epochMs, long seed, String backend, int samples) {
+    }
+
+    /**
+     * 一条签名输入与期望的签名 headers
+     */
+    record Sample(String url, Map<String, String> headers, Map<String, String> expected) {
+    }
+}
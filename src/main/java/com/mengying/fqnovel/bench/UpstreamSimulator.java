@@ -0,0 +1,512 @@
+package com.mengying.fqnovel.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mengying.fqnovel.config.FQConstants;
+import com.mengying.fqnovel.service.FqCrypto;
+import com.mengying.fqnovel.utils.GzipUtils;
+import com.mengying.fqnovel.utils.Texts;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 本地上游模拟器：在本机以 HTTP 提供 registerkey、directory、search 与 batch_full 四个接口，
+ * 配合 {@code FQ_API_BASE_URL} 指向本服务，可在不访问真实上游的情况下压测
+ * FQChapterPrefetchService → UpstreamSignedRequestService 整条链路（签名仍由本服务的 signer 完成，模拟器不校验签名）。
+ * <p>
+ * 合成响应与真实格式一致：registerkey 用固定的 REG_KEY 加密一个伪造的内容密钥，章节正文为
+ * {@code <blk>} HTML 经 gzip 后用该密钥 AES-CBC 加密，客户端走与线上相同的解密、解压与提取路径。
+ * 相同 seed 下同一章节 id 的正文不变，结果可复现。
+ * <p>
+ * 用法（入口与 {@link SignerBenchmark} 相同，替换 -Dloader.main；也可在进程内调用 {@link #start}）：
+ * <pre>
+ * # 合成响应，注入延迟与故障
+ * ... --port=18080 --latency-ms=80 --jitter-ms=40 --error-rate=0.01 --empty-rate=0.01
+ * # 录制：转发到真实上游一次并按接口保存响应（会访问真实上游，仅用于采集样本）
+ * ... --record=upstream-corpus --upstream=https://api5-normal-sinfonlineb.fqnovel.com
+ * # 回放：优先返回录制的响应，未录制的请求回退到合成响应
+ * ... --replay=upstream-corpus
+ * </pre>
+ * 延迟对所有接口生效；错误（HTTP 503）与空响应体只注入 batch_full、directory、search，避免启动时的 registerkey 失败。
+ */
+public final class UpstreamSimulator implements AutoCloseable {
+
+    private static final String REGISTER_KEY_PATH = "/reading/crypt/registerkey";
+    private static final long KEYVER = 1L;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long ITEM_ID_BASE = 7_000_000_000_000_000_000L;
+    private static final int SEARCH_PAGE_SIZE = 10;
+    private static final int MAX_CACHED_CHAPTERS = 4096;
+    private static final int MAX_RECORD_KEY_CHARS = 80;
+    // JDK HttpClient 不允许转发的请求头
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    /**
+     * 模拟器配置；rate 为 0~1 的概率。
+     */
+    public record Options(
+        long latencyMs,
+        long jitterMs,
+        double errorRate,
+        double emptyRate,
+        int chaptersPerBook,
+        int chapterChars,
+        long seed,
+        Path replayDir,
+        Path recordDir,
+        String recordUpstream
+    ) {
+
+        public static Options defaults() {
+            return parse(Map.of());
+        }
+
+        static Options parse(Map<String, String> options) {
+            Path record = options.containsKey("record") ? Path.of(options.get("record")) : null;
+            String upstream = Texts.trimToNull(options.get("upstream"));
+            if (record != null && upstream == null) {
+                throw new IllegalArgumentException("--record 需要同时指定 --upstream");
+            }
+            return new Options(
+                Math.max(0L, Long.parseLong(options.getOrDefault("latency-ms", "0"))),
+                Math.max(0L, Long.parseLong(options.getOrDefault("jitter-ms", "0"))),
+                Double.parseDouble(options.getOrDefault("error-rate", "0")),
+                Double.parseDouble(options.getOrDefault("empty-rate", "0")),
+                Math.max(1, Integer.parseInt(options.getOrDefault("chapters", "200"))),
+                Math.max(1, Integer.parseInt(options.getOrDefault("chapter-chars", "3000"))),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                options.containsKey("replay") ? Path.of(options.get("replay")) : null,
+                record,
+                upstream
+            );
+        }
+    }
+
+    private enum Endpoint {
+        REGISTER_KEY("registerkey", REGISTER_KEY_PATH, false),
+        BATCH_FULL("batch_full", FQConstants.Chapter.BATCH_FULL_PATH, true),
+        DIRECTORY("directory", FQConstants.Search.DIRECTORY_ALL_ITEMS_PATH, true),
+        SEARCH("search", FQConstants.Search.TAB_PATH, true);
+
+        private final String label;
+        private final String path;
+        private final boolean faultInjected;
+        private final LongAdder requests = new LongAdder();
+
+        Endpoint(String label, String path, boolean faultInjected) {
+            this.label = label;
+            this.path = path;
+            this.faultInjected = faultInjected;
+        }
+
+        static Endpoint of(String requestPath) {
+            for (Endpoint endpoint : values()) {
+                if (requestPath.startsWith(endpoint.path)) {
+                    return endpoint;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient recordClient;
+    private final String contentKeyHex;
+    private final String registerKeyResponse;
+    private final Map<String, String> encryptedChapters = new ConcurrentHashMap<>();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedEmpty = new LongAdder();
+
+    private UpstreamSimulator(HttpServer server, Options options) {
+        this.server = server;
+        this.options = options;
+        this.recordClient = options.recordDir() != null ? HttpClient.newHttpClient() : null;
+        Random random = new Random(options.seed());
+        byte[] contentKey = new byte[16];
+        random.nextBytes(contentKey);
+        this.contentKeyHex = FqCrypto.byteArrayToHexString(contentKey);
+        this.registerKeyResponse = buildRegisterKeyResponse(contentKey);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * 在本机启动模拟器。
+     *
+     * @param port 0 表示随机端口
+     */
+    public static UpstreamSimulator start(int port, Options options) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        UpstreamSimulator simulator = new UpstreamSimulator(server, options);
+        server.start();
+        return simulator;
+    }
+
+    /**
+     * 作为 {@code fq.api.base-url} 使用的地址。
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = SignerBenchmark.parseArgs(args);
+        Options options = Options.parse(arguments);
+        UpstreamSimulator simulator = start(Integer.parseInt(arguments.getOrDefault("port", "18080")), options);
+        System.out.printf(Locale.ROOT, "upstream simulator: %s（FQ_API_BASE_URL=%s）, latency=%d±%dms, errorRate=%.3f, emptyRate=%.3f, "
+                + "replay=%s, record=%s%n",
+            simulator.baseUrl(), simulator.baseUrl(), options.latencyMs(), options.jitterMs(), options.errorRate(),
+            options.emptyRate(), options.replayDir(), options.recordDir());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(simulator.summary());
+            simulator.close();
+        }));
+        Thread.currentThread().join();
+    }
+
+    /**
+     * 各接口请求数与注入的故障数。
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder("upstream simulator requests:");
+        for (Endpoint endpoint : Endpoint.values()) {
+            summary.append(' ').append(endpoint.label).append('=').append(endpoint.requests.sum());
+        }
+        return summary.append(", injectedErrors=").append(injectedErrors.sum())
+            .append(", injectedEmpty=").append(injectedEmpty.sum()).toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (recordClient != null) {
+            recordClient.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            Endpoint endpoint = Endpoint.of(exchange.getRequestURI().getPath());
+            if (endpoint == null) {
+                // 未模拟的路径（含连接预热的 HEAD /）
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            endpoint.requests.increment();
+            sleepLatency();
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String recordKey = recordKey(endpoint, query);
+            if (options.recordDir() != null) {
+                forwardAndRecord(exchange, endpoint, recordKey, requestBody);
+                return;
+            }
+            if (endpoint.faultInjected && inject(options.errorRate())) {
+                injectedErrors.increment();
+                sendJson(exchange, 503, "{\"code\":503,\"message\":\"simulated upstream error\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (endpoint.faultInjected && inject(options.emptyRate())) {
+                injectedEmpty.increment();
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            byte[] recorded = replay(endpoint, recordKey);
+            sendJson(exchange, 200, recorded != null ? recorded : synthetic(endpoint, query));
+        } catch (Exception e) {
+            System.err.printf(Locale.ROOT, "模拟请求处理失败: %s %s: %s%n", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), e);
+            if (exchange.getResponseCode() < 0) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        }
+    }
+
+    private byte[] synthetic(Endpoint endpoint, Map<String, String> query) throws IOException {
+        if (endpoint == Endpoint.REGISTER_KEY) {
+            return registerKeyResponse.getBytes(StandardCharsets.UTF_8);
+        }
+        Map<String, Object> body = switch (endpoint) {
+            case BATCH_FULL -> batchFull(query.getOrDefault("item_ids", ""));
+            case DIRECTORY -> directory(query.getOrDefault("book_id", ""));
+            default -> search(query.getOrDefault("query", ""), query.getOrDefault("tab_type", "3"));
+        };
+        return MAPPER.writeValueAsBytes(body);
+    }
+
+    /**
+     * registerkey 的 key 字段：REG_KEY 加密的 32 字节，前 16 字节为内容密钥。
+     */
+    private static String buildRegisterKeyResponse(byte[] contentKey) {
+        try {
+            byte[] plain = new byte[32];
+            System.arraycopy(contentKey, 0, plain, 0, contentKey.length);
+            String key = encryptWithIv(new FqCrypto(FqCrypto.REG_KEY), plain);
+            return MAPPER.writeValueAsString(envelope(Map.of("key", key, "keyver", KEYVER)));
+        } catch (Exception e) {
+            throw new IllegalStateException("无法生成模拟 registerkey", e);
+        }
+    }
+
+    private Map<String, Object> batchFull(String itemIds) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (String itemId : itemIds.split(",")) {
+            String id = itemId.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            String title = "第" + chapterNumber(id) + "章 模拟章节";
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("code", 0);
+            item.put("title", title);
+            item.put("content", encryptedChapter(id, title));
+            item.put("novel_data", Map.of("author", "模拟作者"));
+            item.put("text_type", 1);
+            item.put("crypt_status", 1);
+            item.put("compress_status", 1);
+            item.put("key_version", KEYVER);
+            data.put(id, item);
+        }
+        return envelope(data);
+    }
+
+    private String encryptedChapter(String itemId, String title) {
+        String cached = encryptedChapters.get(itemId);
+        if (cached != null) {
+            return cached;
+        }
+        if (encryptedChapters.size() >= MAX_CACHED_CHAPTERS) {
+            encryptedChapters.clear();
+        }
+        Random random = new Random(options.seed() ^ itemId.hashCode());
+        StringBuilder html = new StringBuilder("<header><div class=\"tt-title\"><h1><blk>")
+            .append(title).append("</blk></h1></div></header><article>");
+        int paragraph = 0;
+        for (String line : SignerBenchmark.sampleChapterText(random, options.chapterChars()).split("\n")) {
+            if (!line.isBlank()) {
+                html.append("<p idx=\"").append(paragraph).append("\"><blk i=\"").append(paragraph++).append("\">")
+                    .append(line).append("</blk></p>");
+            }
+        }
+        html.append("</article>");
+        try {
+            String encrypted = encryptWithIv(FqCrypto.getOrCreate(contentKeyHex), gzip(html.toString().getBytes(StandardCharsets.UTF_8)));
+            encryptedChapters.put(itemId, encrypted);
+            return encrypted;
+        } catch (Exception e) {
+            throw new IllegalStateException("无法生成模拟章节", e);
+        }
+    }
+
+    private Map<String, Object> directory(String bookId) {
+        long base = itemIdBase(bookId);
+        List<Map<String, Object>> items = new ArrayList<>(options.chaptersPerBook());
+        long firstPassTime = 1_700_000_000L;
+        for (int i = 0; i < options.chaptersPerBook(); i++) {
+            items.add(Map.of(
+                "item_id", String.valueOf(base + i),
+                "title", "第" + (i + 1) + "章 模拟章节",
+                "first_pass_time", firstPassTime + i * 86_400L
+            ));
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("book_info", Map.of("book_id", bookId, "book_name", "模拟书籍 " + bookId, "author", "模拟作者",
+            "serial_count", options.chaptersPerBook()));
+        data.put("item_data_list", items);
+        data.put("serial_count", options.chaptersPerBook());
+        return envelope(data);
+    }
+
+    private Map<String, Object> search(String query, String tabType) {
+        long base = Math.floorMod(query.hashCode(), 1_000_000L) * 100L;
+        List<Map<String, Object>> books = new ArrayList<>(SEARCH_PAGE_SIZE);
+        for (int i = 0; i < SEARCH_PAGE_SIZE; i++) {
+            String bookId = String.valueOf(ITEM_ID_BASE + base + i);
+            books.add(Map.of(
+                "book_id", bookId,
+                "book_name", query + " " + (i + 1),
+                "author", "模拟作者",
+                "abstract", "模拟简介",
+                "word_number", options.chaptersPerBook() * (long) options.chapterChars(),
+                "last_chapter_title", "第" + options.chaptersPerBook() + "章 模拟章节"
+            ));
+        }
+        Map<String, Object> tab = new LinkedHashMap<>();
+        tab.put("tab_type", Integer.parseInt(tabType.isBlank() ? "3" : tabType));
+        tab.put("data", List.of(Map.of("book_data", books)));
+        tab.put("total", books.size());
+        tab.put("has_more", false);
+        tab.put("search_id", "sim-" + Integer.toHexString(query.hashCode()));
+        return envelope(Map.of("search_tabs", List.of(tab)));
+    }
+
+    /**
+     * 目录中章节 id 连续，batch_full 按 id 与书籍基数之差推出章节序号。
+     */
+    private long itemIdBase(String bookId) {
+        return ITEM_ID_BASE + Math.floorMod(bookId.hashCode(), 1_000_000L) * 100_000L;
+    }
+
+    private static long chapterNumber(String itemId) {
+        try {
+            return Long.parseLong(itemId) % 100_000L + 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static Map<String, Object> envelope(Object data) {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("code", 0);
+        envelope.put("message", "success");
+        envelope.put("data", data);
+        return envelope;
+    }
+
+    private static String encryptWithIv(FqCrypto crypto, byte[] plain) throws Exception {
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        byte[] encrypted = crypto.encrypt(plain, iv);
+        byte[] combined = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        long delay = options.latencyMs();
+        if (options.jitterMs() > 0L) {
+            delay += ThreadLocalRandom.current().nextLong(options.jitterMs() + 1);
+        }
+        if (delay > 0L) {
+            Thread.sleep(delay);
+        }
+    }
+
+    private static boolean inject(double rate) {
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("accept-encoding");
+        byte[] payload = body;
+        if (acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            payload = gzip(body);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, payload.length == 0 ? -1 : payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // ── 录制与回放 ─────────────────────────────────────────────────
+
+    private static String recordKey(Endpoint endpoint, Map<String, String> query) {
+        String key = switch (endpoint) {
+            case REGISTER_KEY -> "default";
+            case BATCH_FULL -> query.getOrDefault("item_ids", "");
+            case DIRECTORY -> query.getOrDefault("book_id", "");
+            case SEARCH -> query.getOrDefault("query", "") + "_" + query.getOrDefault("tab_type", "") + "_"
+                + query.getOrDefault("offset", "0");
+        };
+        String sanitized = key.replaceAll("[^0-9A-Za-z_-]", "_");
+        if (sanitized.length() > MAX_RECORD_KEY_CHARS) {
+            sanitized = sanitized.substring(0, MAX_RECORD_KEY_CHARS) + "_" + Integer.toHexString(key.hashCode());
+        }
+        return sanitized.isEmpty() ? "default" : sanitized;
+    }
+
+    private byte[] replay(Endpoint endpoint, String recordKey) throws IOException {
+        if (options.replayDir() == null) {
+            return null;
+        }
+        Path file = options.replayDir().resolve(endpoint.label).resolve(recordKey + ".json");
+        return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+    }
+
+    /**
+     * 原样转发到真实上游（含本服务生成的签名头），把解压后的响应体按接口与请求键保存，再原样返回给调用方。
+     */
+    private void forwardAndRecord(HttpExchange exchange, Endpoint endpoint, String recordKey, byte[] requestBody) throws Exception {
+        URI target = URI.create(options.recordUpstream() + exchange.getRequestURI().getRawPath()
+            + (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : ""));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+            .method(exchange.getRequestMethod(), requestBody.length == 0
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(requestBody));
+        exchange.getRequestHeaders().forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> builder.header(name, value));
+            }
+        });
+        HttpResponse<byte[]> response = recordClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        byte[] body = response.body();
+        if (response.statusCode() == 200 && body.length > 0) {
+            Path dir = Files.createDirectories(options.recordDir().resolve(endpoint.label));
+            Files.writeString(dir.resolve(recordKey + ".json"), GzipUtils.decompressGzipResponse(body), StandardCharsets.UTF_8);
+        }
+        response.headers().firstValue("content-type").ifPresent(value -> exchange.getResponseHeaders().set("Content-Type", value));
+        response.headers().firstValue("content-encoding").ifPresent(value -> exchange.getResponseHeaders().set("Content-Encoding", value));
+        exchange.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int idx = pair.indexOf('=');
+            String name = idx >= 0 ? pair.substring(0, idx) : pair;
+            String value = idx >= 0 ? pair.substring(idx + 1) : "";
+            query.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+}
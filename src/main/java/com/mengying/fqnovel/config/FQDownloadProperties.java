@@ -100,6 +100,10 @@ public class FQDownloadProperties {
     public static class Upstream {
         private long connectTimeoutMs = 8000;
         private long readTimeoutMs = 15000;
+        private String protocol = "http1.1";
+        private int clientThreads = 4;
+        private int warmConnections = 2;
+        private long warmIntervalMs = 20000;
 
         public long getConnectTimeoutMs() {
             return connectTimeoutMs;
@@ -116,6 +120,38 @@ public class FQDownloadProperties {
         public void setReadTimeoutMs(long readTimeoutMs) {
             this.readTimeoutMs = readTimeoutMs;
         }
+
+        public String getProtocol() {
+            return protocol;
+        }
+
+        public void setProtocol(String protocol) {
+            this.protocol = protocol;
+        }
+
+        public int getClientThreads() {
+            return clientThreads;
+        }
+
+        public void setClientThreads(int clientThreads) {
+            this.clientThreads = clientThreads;
+        }
+
+        public int getWarmConnections() {
+            return warmConnections;
+        }
+
+        public void setWarmConnections(int warmConnections) {
+            this.warmConnections = warmConnections;
+        }
+
+        public long getWarmIntervalMs() {
+            return warmIntervalMs;
+        }
+
+        public void setWarmIntervalMs(long warmIntervalMs) {
+            this.warmIntervalMs = warmIntervalMs;
+        }
     }
 
     public static class Prefetch {
@@ -10,6 +10,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application.unidbg")
 public class UnidbgProperties {
+
+    public static final String MODE_IN_PROCESS = "in-process";
+    public static final String MODE_PROCESS = "process";
+
     /**
      * 是否打印调用信息
      */
@@ -31,6 +35,178 @@ public class UnidbgProperties {
      */
     private long upstreamEmptyResetCooldownMs = 8000L;
 
+    /**
+     * signer（IdleFQ）实例池大小。
+     * <p>
+     * 每个实例拥有独立的模拟器与锁，签名吞吐约随实例数线性增长；
+     * 但每个实例会额外占用数百 MB 内存，请结合容器内存上限配置。
+     */
+    private int poolSize = 1;
+
+    /**
+     * 是否在 signer 初始化完成（JNI_OnLoad 之后）记录模拟器快照。
+     * <p>
+     * 启用后，普通 reset 会在原实例上回滚快照（毫秒级），无需重新加载 so；
+     * 回滚失败或遇到自愈/重启类升级重置时，仍会完整重建实例。
+     * <p>
+     * 快照只回滚寄存器与 native 内存：DVM 全局/弱全局引用表与 fd 表仅校验大小、不恢复内容，
+     * unidbg 的 mmap/brk 分配器状态与 rootfs 下写入的文件也不在快照内，回滚后的签名未必与新建实例一致，因此默认关闭；
+     * 开启前请用 {@code SignerReplay --mode=snapshot} 校验当前 so 与后端。
+     */
+    private boolean snapshotEnabled = false;
+
+    /**
+     * 是否在后台常驻一个热备 signer 实例。
+     * <p>
+     * 启用后完整重建只需切换指针；代价是常驻多占用一个实例的内存。
+     * 未启用时，回收与隔离触发的重建仍在槽位锁之外进行，仅切换时短暂持锁；
+     * reset epoch 触发且无法快照回滚的重置则持锁同步重建该槽位，旧实例不再承接重置后的重试。
+     */
+    private boolean standbyEnabled = false;
+
+    /**
+     * CPU 后端：unicorn2（默认）、dynarmic（仅 Linux/macOS x86_64 等平台可用）、unicorn（内置）。
+     * <p>
+     * 所选后端不可用时自动回退到 unicorn2。
+     */
+    private String backend = "unicorn2";
+
+    /**
+     * 签名队列容量：排队请求超过该值时立即拒绝（SIGNER_BUSY），避免突发流量堆积大量等待线程。
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 单次签名的截止时间（ms），从入队开始计算；超时的请求不会再进入模拟器。设为 0 表示不限制。
+     */
+    private long signTimeoutMs = 10000L;
+
+    /**
+     * 单个 signer 实例最多服务的签名次数，达到后主动回收（快照回滚或后台重建）。设为 0 可禁用。
+     */
+    private long recycleMaxCalls = 50000L;
+
+    /**
+     * 单个 signer 实例模拟器映射内存相对初始化完成时的最大增长（MB），超过后主动回收。设为 0 可禁用。
+     */
+    private long recycleMaxMappedGrowthMb = 256L;
+
+    /**
+     * 读取签名结果后是否调用模拟器内 libc free 释放 native 返回的缓冲区。
+     * <p>
+     * 可避免长时间运行时模拟器堆持续增长；若 native 复用该缓冲区导致签名异常，请保持关闭。
+     */
+    private boolean freeNativeResult = false;
+
+    /**
+     * 是否开启签名函数 native 热点采集（基本块与系统调用计数），结果见 /signer/profile。
+     * <p>
+     * 开启后签名会明显变慢，仅用于排查；dynarmic 后端不支持 hook，会自动跳过。
+     */
+    private boolean profileEnabled = false;
+
+    /**
+     * 签名运行模式：in-process（默认，模拟器运行在服务 JVM 内）或 process（独立签名工作进程）。
+     * <p>
+     * process 模式下每个工作进程托管一个 signer 实例，经 Unix domain socket 提供签名；
+     * 模拟器的原生崩溃或内存失控只会影响单个工作进程，主进程会自动拉起新的工作进程。
+     */
+    private String mode = MODE_IN_PROCESS;
+
+    /**
+     * process 模式下的工作进程数。
+     */
+    private int workerCount = 2;
+
+    /**
+     * process 模式下工作进程的额外 JVM 参数（空格分隔，例如 -Xmx512m）。
+     */
+    private String workerJvmOptions = "";
+
+    /**
+     * process 模式下等待工作进程就绪的最长时间（ms），超时后强制结束并重新拉起。
+     */
+    private long workerStartTimeoutMs = 180000L;
+
+    /**
+     * 是否按排队延迟与内存余量自动伸缩 signer 实例数（仅 in-process 模式）。
+     * <p>
+     * 实例数在 poolSize 与 autoscaleMaxSize 之间调整：签名排队 p95 超过目标时扩容，持续空闲后缩容。
+     */
+    private boolean autoscaleEnabled = false;
+
+    /**
+     * 自动伸缩的实例数上限。
+     */
+    private int autoscaleMaxSize = 4;
+
+    /**
+     * 扩容触发阈值：统计窗口内签名排队等待 p95（ms）。
+     */
+    private long autoscaleTargetQueueWaitMs = 100L;
+
+    /**
+     * 持续空闲多久（ms）后缩容一个实例。
+     */
+    private long autoscaleIdleShrinkMs = 300000L;
+
+    /**
+     * 自动伸缩的评估间隔（ms），同时也是 p95 统计窗口。
+     */
+    private long autoscaleIntervalMs = 5000L;
+
+    /**
+     * 扩容前要求的最小堆内存余量（MB，最大堆减去已用堆）。
+     */
+    private long autoscaleMinHeapHeadroomMb = 256L;
+
+    /**
+     * 扩容后进程 RSS 的上限（MB，按单实例 RSS 增量估算）；设为 0 表示不检查。
+     */
+    private long autoscaleMaxRssMb = 0L;
+
+    /**
+     * signer 实例隔离阈值：实例健康评分（上游成功/失败回报的指数加权平均，新实例为 1.0）低于该值时，
+     * 只隔离并回滚/重建该实例，不再触发全局重置。设为 0 可禁用隔离。
+     */
+    private double quarantineScore = 0.4;
+
+    /**
+     * 实例预热签名数：后台新建的实例（其余槽位、重建、热备、扩容）在接入流量前先执行若干次合成签名，
+     * 让 so 代码完成翻译与缓存，避免首批真实请求承担冷启动延迟。启动时同步创建的首个槽位不预热。默认 0（关闭）。
+     */
+    private int warmupSignatures = 0;
+
+    /**
+     * 是否为每个实例注册 libandroid/libjnigraphics 虚拟模块。签名路径不依赖它们时可关闭以减少实例映射内存，
+     * 关闭后须用签名回放（SignerReplay）确认签名结果不变。
+     */
+    private boolean virtualModules = true;
+
+    /**
+     * 签名工作进程的 glibc malloc arena 上限（MALLOC_ARENA_MAX），限制多线程 native 分配造成的 RSS 膨胀；
+     * 只作用于工作进程，主进程（Spring/Tomcat）不受影响；0 表示沿用主进程环境。
+     */
+    private int workerMallocArenaMax = 2;
+
+    /**
+     * 确定性模式：模拟器内的时间（含 MS 时间回调）取自从 deterministicEpochMs 开始的虚拟时钟，
+     * /dev/urandom 与 getrandom 取自固定种子，每次签名前重置，同一输入得到可复现的签名。
+     * <p>
+     * 仅用于签名回放回归与基准测试（见 SignerReplay），签名中的时间戳固定，不能用于真实上游请求。
+     */
+    private boolean deterministic = false;
+
+    /**
+     * 确定性模式虚拟时钟的起点（epoch ms）
+     */
+    private long deterministicEpochMs = 1_700_000_000_000L;
+
+    /**
+     * 确定性模式随机源种子
+     */
+    private long deterministicSeed = 0L;
+
     /**
      * 番茄小说 APK 文件路径（建议使用 base.apk 的绝对路径）
      * 优先级高于 apkClasspath；适合本地或容器运行时挂载文件。
@@ -67,6 +243,230 @@ public class UnidbgProperties {
         this.upstreamEmptyResetCooldownMs = upstreamEmptyResetCooldownMs;
     }
 
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    public boolean isStandbyEnabled() {
+        return standbyEnabled;
+    }
+
+    public void setStandbyEnabled(boolean standbyEnabled) {
+        this.standbyEnabled = standbyEnabled;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getSignTimeoutMs() {
+        return signTimeoutMs;
+    }
+
+    public void setSignTimeoutMs(long signTimeoutMs) {
+        this.signTimeoutMs = signTimeoutMs;
+    }
+
+    public long getRecycleMaxCalls() {
+        return recycleMaxCalls;
+    }
+
+    public void setRecycleMaxCalls(long recycleMaxCalls) {
+        this.recycleMaxCalls = recycleMaxCalls;
+    }
+
+    public long getRecycleMaxMappedGrowthMb() {
+        return recycleMaxMappedGrowthMb;
+    }
+
+    public void setRecycleMaxMappedGrowthMb(long recycleMaxMappedGrowthMb) {
+        this.recycleMaxMappedGrowthMb = recycleMaxMappedGrowthMb;
+    }
+
+    public boolean isFreeNativeResult() {
+        return freeNativeResult;
+    }
+
+    public void setFreeNativeResult(boolean freeNativeResult) {
+        this.freeNativeResult = freeNativeResult;
+    }
+
+    public boolean isProfileEnabled() {
+        return profileEnabled;
+    }
+
+    public void setProfileEnabled(boolean profileEnabled) {
+        this.profileEnabled = profileEnabled;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public String getWorkerJvmOptions() {
+        return workerJvmOptions;
+    }
+
+    public void setWorkerJvmOptions(String workerJvmOptions) {
+        this.workerJvmOptions = workerJvmOptions;
+    }
+
+    public long getWorkerStartTimeoutMs() {
+        return workerStartTimeoutMs;
+    }
+
+    public void setWorkerStartTimeoutMs(long workerStartTimeoutMs) {
+        this.workerStartTimeoutMs = workerStartTimeoutMs;
+    }
+
+    public boolean isAutoscaleEnabled() {
+        return autoscaleEnabled;
+    }
+
+    public void setAutoscaleEnabled(boolean autoscaleEnabled) {
+        this.autoscaleEnabled = autoscaleEnabled;
+    }
+
+    public int getAutoscaleMaxSize() {
+        return autoscaleMaxSize;
+    }
+
+    public void setAutoscaleMaxSize(int autoscaleMaxSize) {
+        this.autoscaleMaxSize = autoscaleMaxSize;
+    }
+
+    public long getAutoscaleTargetQueueWaitMs() {
+        return autoscaleTargetQueueWaitMs;
+    }
+
+    public void setAutoscaleTargetQueueWaitMs(long autoscaleTargetQueueWaitMs) {
+        this.autoscaleTargetQueueWaitMs = autoscaleTargetQueueWaitMs;
+    }
+
+    public long getAutoscaleIdleShrinkMs() {
+        return autoscaleIdleShrinkMs;
+    }
+
+    public void setAutoscaleIdleShrinkMs(long autoscaleIdleShrinkMs) {
+        this.autoscaleIdleShrinkMs = autoscaleIdleShrinkMs;
+    }
+
+    public long getAutoscaleIntervalMs() {
+        return autoscaleIntervalMs;
+    }
+
+    public void setAutoscaleIntervalMs(long autoscaleIntervalMs) {
+        this.autoscaleIntervalMs = autoscaleIntervalMs;
+    }
+
+    public long getAutoscaleMinHeapHeadroomMb() {
+        return autoscaleMinHeapHeadroomMb;
+    }
+
+    public void setAutoscaleMinHeapHeadroomMb(long autoscaleMinHeapHeadroomMb) {
+        this.autoscaleMinHeapHeadroomMb = autoscaleMinHeapHeadroomMb;
+    }
+
+    public long getAutoscaleMaxRssMb() {
+        return autoscaleMaxRssMb;
+    }
+
+    public void setAutoscaleMaxRssMb(long autoscaleMaxRssMb) {
+        this.autoscaleMaxRssMb = autoscaleMaxRssMb;
+    }
+
+    public double getQuarantineScore() {
+        return quarantineScore;
+    }
+
+    public void setQuarantineScore(double quarantineScore) {
+        this.quarantineScore = quarantineScore;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public int getWarmupSignatures() {
+        return warmupSignatures;
+    }
+
+    public void setWarmupSignatures(int warmupSignatures) {
+        this.warmupSignatures = warmupSignatures;
+    }
+
+    public boolean isVirtualModules() {
+        return virtualModules;
+    }
+
+    public void setVirtualModules(boolean virtualModules) {
+        this.virtualModules = virtualModules;
+    }
+
+    public int getWorkerMallocArenaMax() {
+        return workerMallocArenaMax;
+    }
+
+    public void setWorkerMallocArenaMax(int workerMallocArenaMax) {
+        this.workerMallocArenaMax = workerMallocArenaMax;
+    }
+
+    public long getDeterministicEpochMs() {
+        return deterministicEpochMs;
+    }
+
+    public void setDeterministicEpochMs(long deterministicEpochMs) {
+        this.deterministicEpochMs = deterministicEpochMs;
+    }
+
+    public long getDeterministicSeed() {
+        return deterministicSeed;
+    }
+
+    public void setDeterministicSeed(long deterministicSeed) {
+        this.deterministicSeed = deterministicSeed;
+    }
+
     public String getApkPath() {
         return apkPath;
     }
@@ -0,0 +1,90 @@
+package com.mengying.fqnovel.config;
+
+import com.mengying.fqnovel.service.UpstreamHttpMetrics;
+import com.mengying.fqnovel.utils.NamedDaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLContext;
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class UpstreamHttpClientConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamHttpClientConfig.class);
+    private static final String PROTOCOL_HTTP2 = "http2";
+
+    /**
+     * HttpClient 专用线程池：异步回调与响应处理不落到 common pool，也不与业务线程池争用。
+     */
+    @Bean(name = "upstreamHttpExecutor", destroyMethod = "shutdown")
+    public ExecutorService upstreamHttpExecutor(FQDownloadProperties downloadProperties) {
+        int threads = Math.max(1, downloadProperties.getUpstream().getClientThreads());
+        return Executors.newFixedThreadPool(threads, new NamedDaemonThreadFactory("fq-upstream-http-"));
+    }
+
+    /**
+     * 上游请求使用的 JDK HttpClient：请求经 sendAsync 非阻塞发送，连接可复用，避免高频章节请求下频繁建连。
+     * 读超时按请求设置，见 UpstreamSignedRequestService；SSLContext 经 {@link UpstreamHttpMetrics} 包装以统计建连与握手。
+     */
+    @Bean
+    public HttpClient upstreamHttpClient(
+        FQDownloadProperties downloadProperties,
+        ExecutorService upstreamHttpExecutor,
+        UpstreamHttpMetrics upstreamHttpMetrics
+    ) {
+        Duration connectTimeout = safeTimeout(downloadProperties.getUpstream().getConnectTimeoutMs(), Duration.ofSeconds(8));
+        HttpClient.Version version = resolveVersion(downloadProperties.getUpstream().getProtocol());
+        log.info("上游 HttpClient: protocol={}, clientThreads={}", version, downloadProperties.getUpstream().getClientThreads());
+        return HttpClient.newBuilder()
+            .connectTimeout(connectTimeout)
+            .version(version)
+            .executor(upstreamHttpExecutor)
+            .sslContext(upstreamHttpMetrics.instrument(defaultSslContext()))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    /**
+     * HTTP_2 对 https 经 ALPN 协商，上游不支持时同一连接直接以 HTTP/1.1 通信，无需额外回退逻辑。
+     */
+    private static HttpClient.Version resolveVersion(String protocol) {
+        String normalized = protocol == null ? "" : protocol.trim().toLowerCase(Locale.ROOT);
+        return PROTOCOL_HTTP2.equals(normalized) || "h2".equals(normalized)
+            ? HttpClient.Version.HTTP_2
+            : HttpClient.Version.HTTP_1_1;
+    }
+
+    private static SSLContext defaultSslContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("无法获取默认 SSLContext", e);
+        }
+    }
+
+    /**
+     * 单次上游请求的读超时（从发出请求到收齐响应）。
+     */
+    public static Duration readTimeout(FQDownloadProperties downloadProperties) {
+        return safeTimeout(downloadProperties.getUpstream().getReadTimeoutMs(), Duration.ofSeconds(15));
+    }
+
+    private static Duration safeTimeout(long valueMs, Duration defaultValue) {
+        if (valueMs <= 0) {
+            return defaultValue;
+        }
+        if (valueMs > Integer.MAX_VALUE) {
+            return Duration.ofMillis(Integer.MAX_VALUE);
+        }
+        return Duration.ofMillis(valueMs);
+    }
+
+}
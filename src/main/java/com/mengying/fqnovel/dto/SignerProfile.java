@@ -0,0 +1,33 @@
+package com.mengying.fqnovel.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 签名函数 native 热点报告（需开启 application.unidbg.profile-enabled）。
+ *
+ * @param enabled              是否已开启采集
+ * @param signatures           采集期间的签名次数
+ * @param totalInstructions    采集期间执行的指令总数（按基本块字节数估算）
+ * @param hotBlocks            按执行指令数降序的热点基本块（模块名+偏移）
+ * @param syscallsPerSignature 平均每次签名发起的系统调用次数
+ * @param jniCallsPerSignature 平均每次签名的 JNI 回调次数
+ */
+public record SignerProfile(
+    boolean enabled,
+    long signatures,
+    long totalInstructions,
+    List<HotBlock> hotBlocks,
+    Map<String, Double> syscallsPerSignature,
+    Map<String, Double> jniCallsPerSignature
+) {
+
+    /**
+     * @param location     模块名+偏移（如 libmetasec_ml.so+0x168c80）
+     * @param executions   基本块执行次数
+     * @param instructions 该基本块累计执行的指令数
+     * @param share        占全部指令数的比例（%）
+     */
+    public record HotBlock(String location, long executions, long instructions, double share) {
+    }
+}
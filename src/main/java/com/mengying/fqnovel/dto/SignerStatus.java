@@ -0,0 +1,32 @@
+package com.mengying.fqnovel.dto;
+
+import java.util.Map;
+
+/**
+ * signer 池运行状态（重置/切换/不可用时长、签名队列深度与等待时间等指标）。
+ * <p>
+ * jniSignatures/jniCallsPerSignature 为本进程内模拟器的 JNI 回调统计（独立进程模式下由各工作进程各自记录）。
+ */
+public record SignerStatus(
+    int poolSize,
+    boolean standbyReady,
+    long snapshotRestores,
+    long swaps,
+    long standbySwaps,
+    long lastSwapMicros,
+    long maxSwapMicros,
+    long lastRebuildMs,
+    long unavailableEvents,
+    long lastUnavailableMs,
+    long totalUnavailableMs,
+    long recycles,
+    int queueDepth,
+    int queueCapacity,
+    long queueRejected,
+    long queueExpired,
+    long avgQueueWaitMicros,
+    long maxQueueWaitMicros,
+    long jniSignatures,
+    Map<String, Double> jniCallsPerSignature
+) {
+}
@@ -1,6 +1,7 @@
 package com.mengying.fqnovel.service;
 
 import com.mengying.fqnovel.config.FQDownloadProperties;
+import com.mengying.fqnovel.utils.NamedDaemonThreadFactory;
 import com.mengying.fqnovel.utils.ProcessLifecycle;
 import com.mengying.fqnovel.utils.Texts;
 import org.slf4j.Logger;
@@ -10,7 +11,6 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PreDestroy;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -238,20 +238,4 @@ public class AutoRestartService {
     public void destroy() {
         restartExecutor.shutdownNow();
     }
-
-    private static final class NamedDaemonThreadFactory implements ThreadFactory {
-        private final String prefix;
-        private final AtomicInteger seq = new AtomicInteger(0);
-
-        private NamedDaemonThreadFactory(String prefix) {
-            this.prefix = prefix;
-        }
-
-        @Override
-        public Thread newThread(Runnable runnable) {
-            Thread thread = new Thread(runnable, prefix + seq.incrementAndGet());
-            thread.setDaemon(true);
-            return thread;
-        }
-    }
 }
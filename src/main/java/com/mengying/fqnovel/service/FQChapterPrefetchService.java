@@ -6,6 +6,7 @@ import com.mengying.fqnovel.dto.FQDirectoryResponse;
 import com.mengying.fqnovel.dto.FQNovelChapterInfo;
 import com.mengying.fqnovel.dto.FQNovelRequest;
 import com.mengying.fqnovel.dto.FQNovelResponse;
+import com.mengying.fqnovel.dto.FqIBatchFullResponse;
 import com.mengying.fqnovel.dto.ItemContent;
 import com.mengying.fqnovel.utils.LocalCacheFactory;
 import com.mengying.fqnovel.utils.ThrottledLogger;
@@ -56,6 +57,7 @@ public class FQChapterPrefetchService {
     private final FQDirectoryService fqDirectoryService;
     private final ChapterContentBuilder chapterContentBuilder;
     private final AutoRestartService autoRestartService;
+    private final UpstreamSignedRequestService upstreamSignedRequestService;
     private final ObjectProvider<PgChapterCacheService> pgChapterCacheServiceProvider;
     @Qualifier("fqPrefetchExecutor")
     private final Executor prefetchExecutor;
@@ -74,6 +76,7 @@ public class FQChapterPrefetchService {
         FQDirectoryService fqDirectoryService,
         ChapterContentBuilder chapterContentBuilder,
         AutoRestartService autoRestartService,
+        UpstreamSignedRequestService upstreamSignedRequestService,
         ObjectProvider<PgChapterCacheService> pgChapterCacheServiceProvider,
         @Qualifier("fqPrefetchExecutor") Executor prefetchExecutor
     ) {
@@ -82,6 +85,7 @@ public class FQChapterPrefetchService {
         this.fqDirectoryService = fqDirectoryService;
         this.chapterContentBuilder = chapterContentBuilder;
         this.autoRestartService = autoRestartService;
+        this.upstreamSignedRequestService = upstreamSignedRequestService;
         this.pgChapterCacheServiceProvider = pgChapterCacheServiceProvider;
         this.prefetchExecutor = prefetchExecutor;
     }
@@ -149,7 +153,8 @@ public class FQChapterPrefetchService {
                 }
 
                 // 兜底：仍未命中则只取单章
-                return fqNovelService.batchFull(chapterId, bookId, true).thenApply(single -> {
+                return fqNovelService.batchFull(chapterId, bookId, true).thenApply(result -> {
+                    FQNovelResponse<FqIBatchFullResponse> single = result.response();
                     if (single.code() != 0 || single.data() == null) {
                         return FQNovelResponse.<FQNovelChapterInfo>error("获取章节内容失败: " + single.message());
                     }
@@ -172,14 +177,15 @@ public class FQChapterPrefetchService {
                         cacheChapter(bookId, chapterId, info);
                         return FQNovelResponse.success(info);
                     } catch (Exception e) {
-                        throw new RuntimeException(e);
+                        throw new SignedChapterException(e, result.signer());
                     }
                 });
             })
             .exceptionally(e -> {
                 Throwable t = unwrapCompletionException(e);
                 String msg = exceptionMessage(t);
-                recordChapterFailure(bookId, chapterId, msg);
+                SignerTag signer = t instanceof SignedChapterException signed ? signed.signer : null;
+                recordChapterFailure(bookId, chapterId, msg, signer);
                 if (isChapterWarnLevelFailure(msg)) {
                     logChapterWarnThrottled(bookId, chapterId, msg, t);
                 } else {
@@ -293,7 +299,8 @@ public class FQChapterPrefetchService {
 
             // 拉取并解密（处理放在 prefetchExecutor 上，避免占用业务线程池）
             String joined = String.join(",", batchIds);
-            return fqNovelService.batchFull(joined, bookId, true).thenAcceptAsync(batch -> {
+            return fqNovelService.batchFull(joined, bookId, true).thenAcceptAsync(result -> {
+                FQNovelResponse<FqIBatchFullResponse> batch = result.response();
                 if (batch == null || batch.code() != 0 || batch.data() == null || batch.data().data() == null) {
                     return;
                 }
@@ -309,7 +316,7 @@ public class FQChapterPrefetchService {
                         FQNovelChapterInfo info = chapterContentBuilder.buildChapterInfo(bookId, itemId, content);
                         cacheChapter(bookId, itemId, info);
                     } catch (Exception e) {
-                        String normalizedReason = recordChapterFailure(bookId, itemId, e.getMessage(), false);
+                        String normalizedReason = recordChapterFailure(bookId, itemId, e.getMessage());
                         if (firstBatchRiskReason == null
                             && UpstreamSignedRequestService.REASON_CHAPTER_EMPTY_OR_SHORT.equals(
                                 UpstreamSignedRequestService.resolveRetryReason(normalizedReason))) {
@@ -318,7 +325,7 @@ public class FQChapterPrefetchService {
                         log.debug("预取章节处理失败 - bookId: {}, itemId: {}", bookId, itemId, e);
                     }
                 }
-                handleChapterRiskSignal(firstBatchRiskReason);
+                handleChapterRiskSignal(firstBatchRiskReason, result.signer());
             }, exec);
         });
     }
@@ -539,17 +546,14 @@ public class FQChapterPrefetchService {
         return reason.contains("upstream item code=");
     }
 
-    private void recordChapterFailure(String bookId, String chapterId, String reason) {
-        recordChapterFailure(bookId, chapterId, reason, true);
+    private void recordChapterFailure(String bookId, String chapterId, String reason, SignerTag signer) {
+        handleChapterRiskSignal(recordChapterFailure(bookId, chapterId, reason), signer);
     }
 
-    private String recordChapterFailure(String bookId, String chapterId, String reason, boolean countRiskSignal) {
+    private String recordChapterFailure(String bookId, String chapterId, String reason) {
         String normalizedReason = normalizeFailureReason(reason);
         cacheChapterFailure(bookId, chapterId, normalizedReason);
         cacheChapterRetryBackoff(bookId, chapterId, normalizedReason);
-        if (countRiskSignal) {
-            handleChapterRiskSignal(normalizedReason);
-        }
         return normalizedReason;
     }
 
@@ -567,12 +571,15 @@ public class FQChapterPrefetchService {
         return isChapterRetryBackoffReason(reason) || reason.contains("upstream item code=");
     }
 
-    private void handleChapterRiskSignal(String normalizedReason) {
+    /**
+     * 章节内容为空/过短视为签名被上游风控：计入产出签名的实例，无法归因时退回全局重置。
+     */
+    private void handleChapterRiskSignal(String normalizedReason, SignerTag signer) {
         String retryReason = UpstreamSignedRequestService.resolveRetryReason(normalizedReason);
         if (!UpstreamSignedRequestService.REASON_CHAPTER_EMPTY_OR_SHORT.equals(retryReason)) {
             return;
         }
-        FQEncryptServiceWorker.requestGlobalReset(retryReason);
+        upstreamSignedRequestService.reportUpstreamFailure(signer, retryReason);
         autoRestartService.recordFailure(retryReason);
     }
 
@@ -585,4 +592,15 @@ public class FQChapterPrefetchService {
         log.debug("单章获取失败详情 - bookId: {}, chapterId: {}", bookId, chapterId, throwable);
     }
 
+    /**
+     * 单章兜底的章节处理失败，附带产出签名的实例；消息与原异常的 toString 一致。
+     */
+    private static final class SignedChapterException extends RuntimeException {
+        private final transient SignerTag signer;
+
+        private SignedChapterException(Throwable cause, SignerTag signer) {
+            super(cause);
+            this.signer = signer;
+        }
+    }
 }
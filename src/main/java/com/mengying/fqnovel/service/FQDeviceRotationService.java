@@ -165,13 +165,11 @@ public class FQDeviceRotationService {
                 return false;
             }
 
-            String body = upstream.responseBody();
-            String trimmedBody = Texts.trimToNull(body);
-            if (trimmedBody == null || trimmedBody.startsWith("<")) {
+            // 非 JSON 响应在流式解析时已抛出异常，空响应为 MissingNode
+            JsonNode root = upstream.jsonBody();
+            if (root == null || root.isMissingNode()) {
                 return false;
             }
-
-            JsonNode root = upstream.jsonBody();
             if (root.path("code").asInt(-1) != 0) {
                 return false;
             }
@@ -9,8 +9,6 @@ import com.mengying.fqnovel.utils.FQApiUtils;
 import com.mengying.fqnovel.utils.FQDirectoryResponseTransformer;
 import com.mengying.fqnovel.utils.LocalCacheFactory;
 import com.mengying.fqnovel.utils.Texts;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Cache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +33,6 @@ public class FQDirectoryService {
 
     private final FQApiUtils fqApiUtils;
     private final FQDownloadProperties downloadProperties;
-    private final ObjectMapper objectMapper;
     private final UpstreamSignedRequestService upstreamSignedRequestService;
     @Qualifier("applicationTaskExecutor")
     private final Executor taskExecutor;
@@ -46,13 +43,11 @@ public class FQDirectoryService {
     public FQDirectoryService(
         FQApiUtils fqApiUtils,
         FQDownloadProperties downloadProperties,
-        ObjectMapper objectMapper,
         UpstreamSignedRequestService upstreamSignedRequestService,
         @Qualifier("applicationTaskExecutor") Executor taskExecutor
     ) {
         this.fqApiUtils = fqApiUtils;
         this.downloadProperties = downloadProperties;
-        this.objectMapper = objectMapper;
         this.upstreamSignedRequestService = upstreamSignedRequestService;
         this.taskExecutor = taskExecutor;
     }
@@ -102,7 +97,7 @@ public class FQDirectoryService {
             Map<String, String> params = fqApiUtils.buildDirectoryParams(directoryRequest);
             String fullUrl = fqApiUtils.buildUrlWithParams(url, params);
 
-            UpstreamSignedRequestService.UpstreamJsonResult upstream = upstreamSignedRequestService.executeSignedJsonGetOrLogFailure(
+            UpstreamSignedRequestService.UpstreamRawResult upstream = upstreamSignedRequestService.executeSignedRawGetOrLogFailure(
                 fullUrl,
                 fqApiUtils.buildCommonHeaders(),
                 "目录请求",
@@ -112,31 +107,26 @@ public class FQDirectoryService {
                 return FQNovelResponse.error("签名生成失败");
             }
 
-            String responseBody = upstream.responseBody();
-            JsonNode rootNode = upstream.jsonBody();
-            Integer upstreamCode = UpstreamSignedRequestService.nonZeroUpstreamCode(rootNode);
-            if (upstreamCode != null) {
-                String upstreamMessage = UpstreamSignedRequestService.upstreamMessageOrDefault(rootNode, "upstream error");
-                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "目录接口上游失败原始响应", responseBody);
-                return FQNovelResponse.error(upstreamCode, upstreamMessage);
+            // 直接从解压流绑定 data，不经过字符串与 JSON 树
+            UpstreamSignedRequestService.UpstreamEnvelope<FQDirectoryResponse> envelope =
+                upstreamSignedRequestService.readEnvelope(upstream, FQDirectoryResponse.class);
+            if (envelope.code() != 0) {
+                String upstreamMessage = Texts.defaultIfBlank(envelope.message(), "upstream error");
+                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "目录接口上游失败原始响应", upstream::responseBody);
+                return FQNovelResponse.error(envelope.code(), upstreamMessage);
             }
 
-            JsonNode dataNode = rootNode.path("data");
-            if (dataNode.isMissingNode() || dataNode.isNull()) {
-                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "目录接口上游缺少data原始响应", responseBody);
-                return directoryFailure(UpstreamSignedRequestService.upstreamMessageOrDefault(rootNode, "upstream response missing data"));
-            }
-
-            FQDirectoryResponse directoryResponse = objectMapper.treeToValue(dataNode, FQDirectoryResponse.class);
+            FQDirectoryResponse directoryResponse = envelope.data();
             if (directoryResponse == null) {
-                return directoryFailure(UpstreamSignedRequestService.upstreamMessageOrDefault(rootNode, "upstream parse error"));
+                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "目录接口上游缺少data原始响应", upstream::responseBody);
+                return directoryFailure(Texts.defaultIfBlank(envelope.message(), "upstream response missing data"));
             }
             if (Boolean.TRUE.equals(directoryRequest.getMinimalResponse())) {
                 FQDirectoryResponseTransformer.trimForMinimalResponse(directoryResponse);
             } else {
                 FQDirectoryResponseTransformer.enhanceChapterList(directoryResponse);
             }
-            FQEncryptServiceWorker.recordUpstreamSuccess();
+            upstreamSignedRequestService.reportUpstreamSuccess(upstream.signer());
             return FQNovelResponse.success(directoryResponse);
 
         } catch (Exception e) {
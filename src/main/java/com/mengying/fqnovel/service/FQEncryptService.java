@@ -1,74 +1,515 @@
 package com.mengying.fqnovel.service;
 
 import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.dto.SignerStatus;
 import com.mengying.fqnovel.unidbg.IdleFQ;
+import com.mengying.fqnovel.unidbg.NativeProfiler;
+import com.mengying.fqnovel.utils.NamedDaemonThreadFactory;
 import com.mengying.fqnovel.utils.ProcessLifecycle;
-import com.mengying.fqnovel.utils.TempFileUtils;
+import com.mengying.fqnovel.utils.ProcessMemory;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
 import com.mengying.fqnovel.utils.Texts;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
-public class FQEncryptService {
+public class FQEncryptService implements HeaderSigner {
 
     private static final Logger log = LoggerFactory.getLogger(FQEncryptService.class);
-    private static final ObjectMapper SHARED_OBJECT_MAPPER = new ObjectMapper();
-    private static final Pattern HEADER_COLON_PAIR = Pattern.compile("^[A-Za-z0-9-]{1,64}:\\s*.+$");
-    private static final String HEADER_X_ARGUS = "x-argus";
-    private static final String HEADER_X_GORGON = "x-gorgon";
-    private static final int RAW_LOG_MAX_LENGTH = 200;
+    // 映射内存统计需遍历内存表，每隔若干次签名检查一次
+    private static final long MAPPED_CHECK_INTERVAL = 64L;
+    private static final long BYTES_PER_MB = 1024L * 1024L;
 
     private final UnidbgProperties properties;
-    private final ReentrantLock lock = new ReentrantLock();
-    private volatile IdleFQ idleFQ;
+    // 已就绪的槽位（写时复制，签名路径无锁读取）
+    private volatile List<SignerSlot> slots;
+    private final Object slotsMutex = new Object();
+    private final AtomicInteger dispatchCursor = new AtomicInteger(0);
+    // 槽位 id 单调递增、不复用：缩容回收的 id 若被新槽位沿用，在途请求持有的旧 SignerTag 会误记到新实例上
+    private final AtomicInteger nextSlotId = new AtomicInteger(0);
+    private final SignerMetrics metrics = new SignerMetrics();
+    // 热备实例：重置时直接切换，切换后由后台线程补充
+    private final AtomicReference<IdleFQ> standby = new AtomicReference<>();
+    private final AtomicBoolean standbyRefillScheduled = new AtomicBoolean(false);
+    // 单线程串行执行重建/补充热备，避免同时构建多个实例放大内存峰值
+    private final ExecutorService maintenanceExecutor =
+        Executors.newSingleThreadExecutor(new NamedDaemonThreadFactory("signer-maintenance-"));
+    // 有界签名队列：队列满时快速拒绝，过期任务在进入模拟器前丢弃
+    private final ThreadPoolExecutor signExecutor;
+    private final int queueCapacity;
+    private final int basePoolSize;
+    // 自动伸缩（未开启时均为 null）
+    private final SignerAutoscaler autoscaler;
+    private final ScheduledExecutorService autoscaleExecutor;
+    private final AtomicBoolean scalingPending = new AtomicBoolean(false);
+    private volatile boolean destroyed = false;
 
     public FQEncryptService(UnidbgProperties properties) {
         this.properties = properties;
-        this.idleFQ = createIdleFq();
-        log.info("签名服务初始化完成");
+        NativeProfiler.setEnabled(properties.isProfileEnabled());
+        if (properties.isDeterministic()) {
+            log.warn("签名确定性模式已开启（虚拟时钟 epochMs={}, seed={}），签名仅用于回放/基准，不能用于真实上游请求",
+                properties.getDeterministicEpochMs(), properties.getDeterministicSeed());
+        }
+        int poolSize = Math.max(1, properties.getPoolSize());
+        this.basePoolSize = poolSize;
+        // 仅同步创建首个实例即可开始签名；其余槽位由后台线程逐个补齐，缩短冷启动到首次签名的时间
+        long startNs = System.nanoTime();
+        try {
+            long resetEpoch = FQEncryptServiceWorker.currentResetEpoch();
+            this.slots = List.of(new SignerSlot(nextSlotId.getAndIncrement(), createIdleFq(false), resetEpoch));
+        } catch (RuntimeException | Error e) {
+            maintenanceExecutor.shutdownNow();
+            throw e;
+        }
+        this.queueCapacity = Math.max(1, properties.getQueueCapacity());
+        this.signExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new NamedDaemonThreadFactory("signer-worker-"));
+        log.info("签名服务初始化完成: poolSize={}, firstSignerMs={}, standby={}, queueCapacity={}",
+            poolSize, (System.nanoTime() - startNs) / 1_000_000L, properties.isStandbyEnabled(), queueCapacity);
+        for (int i = 1; i < poolSize; i++) {
+            scheduleSlotWarmup(nextSlotId.getAndIncrement());
+        }
+        scheduleStandbyRefill();
+
+        if (properties.isAutoscaleEnabled()) {
+            this.autoscaler = new SignerAutoscaler(properties, poolSize);
+            this.autoscaleExecutor = Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory("signer-autoscaler-"));
+            scheduleAutoscalerStart();
+        } else {
+            this.autoscaler = null;
+            this.autoscaleExecutor = null;
+        }
+    }
+
+    /**
+     * 维护线程按提交顺序执行：排在其余槽位与热备的创建之后，待初始实例全部就绪再开始评估，
+     * 避免启动期间的排队等待触发扩容、与预热同时构建实例。
+     */
+    private void scheduleAutoscalerStart() {
+        long intervalMs = Math.max(1_000L, properties.getAutoscaleIntervalMs());
+        try {
+            maintenanceExecutor.execute(() -> {
+                if (destroyed || ProcessLifecycle.isShuttingDown()) {
+                    return;
+                }
+                autoscaleExecutor.scheduleWithFixedDelay(this::autoscaleQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+                log.info("签名池自动伸缩已开启: minSize={}, maxSize={}, size={}, targetQueueWaitMs={}, intervalMs={}",
+                    autoscaler.minSize(), autoscaler.maxSize(), slots.size(), properties.getAutoscaleTargetQueueWaitMs(), intervalMs);
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("签名服务已关闭，跳过自动伸缩");
+        }
+    }
+
+    private void autoscaleQuietly() {
+        try {
+            autoscale();
+        } catch (Throwable t) {
+            log.warn("签名池自动伸缩评估异常", t);
+        }
+    }
+
+    private void autoscale() {
+        if (destroyed || ProcessLifecycle.isShuttingDown()) {
+            return;
+        }
+        int size = slots.size();
+        SignerAutoscaler.Decision decision = autoscaler.evaluate(System.nanoTime(), size,
+            metrics.queueWaitBuckets(), metrics.executionSumNanos(), scalingPending.get());
+        if (decision == SignerAutoscaler.Decision.NONE || !scalingPending.compareAndSet(false, true)) {
+            return;
+        }
+        // 与重建/热备补充共用维护线程，避免同时构建多个实例放大内存峰值
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    if (destroyed || ProcessLifecycle.isShuttingDown()) {
+                        return;
+                    }
+                    if (decision == SignerAutoscaler.Decision.GROW) {
+                        scaleUp(size);
+                    } else {
+                        scaleDown(size);
+                    }
+                } catch (Throwable t) {
+                    log.warn("签名池伸缩失败: decision={}", decision, t);
+                } finally {
+                    scalingPending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scalingPending.set(false);
+        }
+    }
+
+    private void scaleUp(int fromSize) {
+        long rssBefore = ProcessMemory.rssBytes();
+        long startNs = System.nanoTime();
+        long resetEpoch = FQEncryptServiceWorker.currentResetEpoch();
+        IdleFQ signer;
+        try {
+            signer = createIdleFq(true);
+        } catch (OutOfMemoryError oom) {
+            autoscaler.recordOom();
+            log.warn("扩容创建签名实例内存不足，暂停扩容: size={}", fromSize, oom);
+            return;
+        }
+        int size;
+        synchronized (slotsMutex) {
+            if (destroyed) {
+                destroySignerQuietly(signer);
+                return;
+            }
+            List<SignerSlot> next = new ArrayList<>(slots);
+            next.add(new SignerSlot(nextSlotId.getAndIncrement(), signer, resetEpoch));
+            slots = List.copyOf(next);
+            size = next.size();
+            resizeSignExecutor(size);
+        }
+        autoscaler.recordGrowth(rssBefore, ProcessMemory.rssBytes());
+        log.info("签名池已扩容: size={} -> {}, queueWaitP95Ms={}, utilization={}, costMs={}",
+            fromSize, size, autoscaler.lastWaitP95Nanos() / 1_000_000L,
+            String.format(Locale.ROOT, "%.2f", autoscaler.lastUtilization()), (System.nanoTime() - startNs) / 1_000_000L);
+    }
+
+    /**
+     * 移出 id 最大的槽位：先从池中摘除并标记回收，等在途请求释放槽位锁后再销毁其实例。
+     */
+    private void scaleDown(int fromSize) {
+        SignerSlot victim = null;
+        int size;
+        synchronized (slotsMutex) {
+            if (destroyed || slots.size() <= autoscaler.minSize()) {
+                return;
+            }
+            List<SignerSlot> next = new ArrayList<>(slots);
+            for (SignerSlot slot : next) {
+                if (victim == null || slot.id() > victim.id()) {
+                    victim = slot;
+                }
+            }
+            next.remove(victim);
+            victim.retire();
+            slots = List.copyOf(next);
+            size = next.size();
+            resizeSignExecutor(size);
+        }
+        IdleFQ old;
+        victim.lock().lock();
+        try {
+            old = victim.signer();
+            victim.signer(null);
+        } finally {
+            victim.lock().unlock();
+        }
+        destroySignerQuietly(old);
+        autoscaler.recordShrink();
+        log.info("签名池已缩容: size={} -> {}, slot={}, utilization={}",
+            fromSize, size, victim.id(), String.format(Locale.ROOT, "%.2f", autoscaler.lastUtilization()));
     }
 
+    /**
+     * 签名线程数跟随槽位数（不低于初始 poolSize）；需持有 slotsMutex。
+     */
+    private void resizeSignExecutor(int size) {
+        int threads = Math.max(basePoolSize, size);
+        if (threads > signExecutor.getMaximumPoolSize()) {
+            signExecutor.setMaximumPoolSize(threads);
+            signExecutor.setCorePoolSize(threads);
+        } else {
+            signExecutor.setCorePoolSize(threads);
+            signExecutor.setMaximumPoolSize(threads);
+        }
+    }
+
+    private void scheduleSlotWarmup(int id) {
+        try {
+            maintenanceExecutor.execute(() -> {
+                if (destroyed || ProcessLifecycle.isShuttingDown()) {
+                    return;
+                }
+                long startNs = System.nanoTime();
+                try {
+                    // 先读 epoch 再建实例：建实例期间发生的重置仍会在首次签名时补做
+                    long resetEpoch = FQEncryptServiceWorker.currentResetEpoch();
+                    IdleFQ signer = createIdleFq(true);
+                    synchronized (slotsMutex) {
+                        if (destroyed) {
+                            destroySignerQuietly(signer);
+                            return;
+                        }
+                        List<SignerSlot> next = new ArrayList<>(slots);
+                        next.add(new SignerSlot(id, signer, resetEpoch));
+                        slots = List.copyOf(next);
+                    }
+                    log.info("签名槽位已就绪: slot={}, costMs={}", id, (System.nanoTime() - startNs) / 1_000_000L);
+                } catch (Throwable t) {
+                    log.warn("后台创建签名槽位失败: slot={}", id, t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("签名服务已关闭，跳过槽位预热: slot={}", id);
+        }
+    }
+
+    /**
+     * 重置池内全部 signer。
+     * <p>
+     * 非升级类原因优先走快照回滚；AUTO_SELF_HEAL/AUTO_RESTART 等升级重置始终完整重建。
+     * 完整重建在槽位锁之外构建新实例（或直接取热备），仅在切换指针时短暂持锁，签名流量不会被长时间阻塞。
+     */
     public void reset(String reason) {
         if (ProcessLifecycle.isShuttingDown()) {
             log.warn("进程退出中，跳过签名服务重置: reason={}", reason);
             return;
         }
-        lock.lock();
+        boolean fullRebuild = FQEncryptServiceWorker.isEscalatedReset(reason);
+        for (SignerSlot slot : slots) {
+            if (!fullRebuild && restoreSlot(slot, reason)) {
+                continue;
+            }
+            rebuildSlot(slot, reason);
+        }
+    }
+
+    private boolean restoreSlot(SignerSlot slot, String reason) {
+        slot.lock().lock();
         try {
-            IdleFQ old = this.idleFQ;
-            IdleFQ replacement;
-            boolean oldDestroyedForRetry = false;
+            return restoreSlotLocked(slot, reason);
+        } finally {
+            slot.lock().unlock();
+        }
+    }
+
+    private boolean restoreSlotLocked(SignerSlot slot, String reason) {
+        IdleFQ current = slot.signer();
+        SignerEvents.Reset event = new SignerEvents.Reset();
+        event.begin();
+        // 快照只回写可写数据页，代码页与已翻译的代码保持不变，回滚后无需再预热
+        if (current == null) {
+            return false;
+        }
+        if (!current.restoreSnapshot()) {
+            if (current.isCorrupted()) {
+                discardCorruptedLocked(slot, current, reason);
+            }
+            return false;
+        }
+        slot.renew();
+        metrics.recordSnapshotRestore();
+        commitResetEvent(event, slot, "snapshot", reason);
+        log.warn("签名服务已通过快照回滚，slot={}, reason={}", slot.id(), reason);
+        return true;
+    }
+
+    /**
+     * 快照回滚中途失败的实例不能再签名：持锁摘除并异步销毁，槽位的下一次签名同步创建新实例（或由调用方随后的重建/热备切换补上）。
+     */
+    private void discardCorruptedLocked(SignerSlot slot, IdleFQ corrupted, String reason) {
+        slot.signer(null);
+        destroySignerAsync(corrupted);
+        log.error("快照回滚失败，已摘除损坏的签名实例: slot={}, reason={}", slot.id(), reason);
+    }
 
+    /**
+     * 在不持有槽位锁的情况下准备新实例，然后原子切换。
+     */
+    private void rebuildSlot(SignerSlot slot, String reason) {
+        SignerEvents.Reset event = new SignerEvents.Reset();
+        event.begin();
+        long startNs = System.nanoTime();
+        IdleFQ replacement = standby.getAndSet(null);
+        boolean fromStandby = replacement != null;
+        if (replacement == null) {
             try {
-                replacement = createIdleFq();
+                replacement = createIdleFq(true);
             } catch (OutOfMemoryError oom) {
-                // 在容器内存偏紧时，先销毁旧实例再重试一次，避免短时间双 signer 共存放大内存峰值。
-                log.warn("重置签名服务时创建新实例内存不足，先释放旧实例后重试: reason={}", reason, oom);
-                this.idleFQ = null;
-                destroySignerQuietly(old);
-                oldDestroyedForRetry = true;
-                replacement = createIdleFq();
+                if (autoscaler != null) {
+                    autoscaler.recordOom();
+                }
+                log.warn("重置签名服务时创建新实例内存不足，先释放旧实例后重试: slot={}, reason={}", slot.id(), reason, oom);
+                rebuildSlotAfterOom(slot);
+                commitResetEvent(event, slot, "rebuild-after-oom", reason);
+                log.warn("签名服务已重置，slot={}, reason={}", slot.id(), reason);
+                return;
             }
+        }
 
-            this.idleFQ = replacement;
-            if (!oldDestroyedForRetry) {
-                destroySignerQuietly(old);
+        IdleFQ old;
+        long lockStartNs = System.nanoTime();
+        slot.lock().lock();
+        try {
+            if (slot.isRetired()) {
+                // 重建期间槽位已被缩容回收，丢弃新实例
+                old = replacement;
+            } else {
+                old = slot.signer();
+                slot.signer(replacement);
             }
-            log.warn("签名服务已重置，reason={}", reason);
         } finally {
-            lock.unlock();
+            slot.lock().unlock();
         }
+        long endNs = System.nanoTime();
+        metrics.recordSwap(endNs - lockStartNs, endNs - startNs, fromStandby);
+        commitResetEvent(event, slot, fromStandby ? "standby" : "rebuild", reason);
+
+        destroySignerQuietly(old);
+        if (fromStandby) {
+            scheduleStandbyRefill();
+        }
+        log.warn("签名服务已重置（{}），slot={}, reason={}", fromStandby ? "热备切换" : "重建后切换", slot.id(), reason);
     }
 
-    private IdleFQ createIdleFq() {
-        return new IdleFQ(properties.isVerbose(), properties.getApkPath(), properties.getApkClasspath());
+    /**
+     * 内存不足时的兜底：持锁先销毁旧实例再重建，避免双 signer 共存放大内存峰值；
+     * 期间该槽位不可用，时长计入不可用指标（池内其他槽位不受影响）。
+     */
+    private void rebuildSlotAfterOom(SignerSlot slot) {
+        long startNs = System.nanoTime();
+        slot.lock().lock();
+        try {
+            IdleFQ old = slot.signer();
+            slot.signer(null);
+            destroySignerQuietly(old);
+            if (!slot.isRetired()) {
+                slot.signer(createIdleFq(false));
+            }
+        } finally {
+            slot.lock().unlock();
+            metrics.recordUnavailable(System.nanoTime() - startNs);
+        }
+    }
+
+    private void scheduleSlotRebuild(SignerSlot slot, String reason) {
+        if (destroyed || !slot.rebuilding().compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    if (!destroyed && !ProcessLifecycle.isShuttingDown()) {
+                        rebuildSlot(slot, reason);
+                    }
+                } catch (Throwable t) {
+                    log.warn("后台重建签名实例失败: slot={}, reason={}", slot.id(), reason, t);
+                } finally {
+                    slot.rebuilding().set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slot.rebuilding().set(false);
+        }
+    }
+
+    private void scheduleStandbyRefill() {
+        if (!properties.isStandbyEnabled() || destroyed || !standbyRefillScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    if (destroyed || ProcessLifecycle.isShuttingDown() || standby.get() != null) {
+                        return;
+                    }
+                    IdleFQ candidate = createIdleFq(true);
+                    if (!standby.compareAndSet(null, candidate)) {
+                        destroySignerQuietly(candidate);
+                    }
+                    if (destroyed) {
+                        destroySignerQuietly(standby.getAndSet(null));
+                    }
+                    log.info("热备签名实例已就绪");
+                } catch (Throwable t) {
+                    log.warn("补充热备签名实例失败", t);
+                } finally {
+                    standbyRefillScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            standbyRefillScheduled.set(false);
+        }
+    }
+
+    /**
+     * @param warm 是否在返回前预热；调用方同步等待或持有槽位锁时传 false，实例由真实请求完成首次翻译
+     */
+    private IdleFQ createIdleFq(boolean warm) {
+        SignerEvents.Init event = new SignerEvents.Init();
+        event.begin();
+        long startNs = System.nanoTime();
+        boolean success = false;
+        try {
+            IdleFQ signer = new IdleFQ(IdleFQ.Options.from(properties));
+            long warmupNs = warm ? warmUp(signer) : 0L;
+            success = true;
+            if (event.shouldCommit()) {
+                event.backend = signer.getBackendName();
+                event.warmup = warmupNs;
+            }
+            return signer;
+        } finally {
+            metrics.recordInit(System.nanoTime() - startNs, success);
+            if (event.shouldCommit()) {
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 后台新建的实例接入流量前执行 warmup-signatures 次合成签名。
+     *
+     * @return 预热耗时（纳秒），未开启时为 0
+     */
+    private long warmUp(IdleFQ signer) {
+        int count = Math.max(0, properties.getWarmupSignatures());
+        if (count == 0) {
+            return 0L;
+        }
+        long startNs = System.nanoTime();
+        int succeeded = SignerWarmup.run(signer, count);
+        long costNs = System.nanoTime() - startNs;
+        metrics.recordWarmup(costNs, count - succeeded);
+        if (succeeded < count) {
+            log.warn("签名实例预热存在失败: succeeded={}/{}, costMs={}", succeeded, count, costNs / 1_000_000L);
+        } else {
+            log.info("签名实例预热完成: signatures={}, costMs={}", count, costNs / 1_000_000L);
+        }
+        return costNs;
+    }
+
+    private static void commitResetEvent(SignerEvents.Reset event, SignerSlot slot, String mode, String reason) {
+        if (event.shouldCommit()) {
+            event.slot = slot.id();
+            event.mode = mode;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    private static void commitSignEvent(SignerEvents.Sign event, SignerSlot slot, int batchSize) {
+        if (event.shouldCommit()) {
+            event.slot = slot.id();
+            event.batchSize = batchSize;
+            event.commit();
+        }
     }
 
     /**
@@ -79,123 +520,587 @@ public class FQEncryptService {
      * @return 包含各种签名header的Map
      */
     public Map<String, String> generateSignatureHeaders(String url, String headers) {
+        return generateSignatureHeaders(url, headers, -1L);
+    }
+
+    /**
+     * 生成签名 headers，并在签名前让所分配槽位对齐到指定的全局 reset epoch。
+     *
+     * @param resetEpoch 全局 reset epoch；小于 0 表示不检查
+     */
+    Map<String, String> generateSignatureHeaders(String url, String headers, long resetEpoch) {
+        return sign(url, headers, null, resetEpoch).headers();
+    }
+
+    /**
+     * 签名主路径：headers 与 headerMap 二选一；headerMap 由 signer 直接编码进模拟器缓冲区，不拼接中间字符串。
+     * <p>
+     * 结果附带生成它的槽位与实例代数；签名为空、无法解析或 signer 抛出异常时计入该实例的健康评分。
+     */
+    private SignedHeaders sign(String url, String headers, Map<String, String> headerMap, long resetEpoch) {
         try {
             if (ProcessLifecycle.isShuttingDown()) {
-                return Map.of();
+                return SignedHeaders.EMPTY;
             }
 
             if (log.isDebugEnabled()) {
                 log.debug("准备生成FQ签名 - URL: {}", url);
-                log.debug("准备生成FQ签名 - Headers: {}", maskSensitiveHeaders(headers));
+                log.debug("准备生成FQ签名 - Headers: {}",
+                    maskSensitiveHeaders(headerMap != null ? IdleFQ.joinHeaders(headerMap) : headers));
             }
 
+            SignerEvents.Sign event = new SignerEvents.Sign();
+            event.begin();
             String signatureResult;
-            lock.lock();
+            SignerTag tag;
+            long waitStartNs = System.nanoTime();
+            SignerSlot slot = acquireSlot();
             try {
-                IdleFQ signer = ensureSignerLocked();
-                signatureResult = signer.generateSignature(url, headers);
+                recordLockWait(event, System.nanoTime() - waitStartNs);
+                ensureSlotResetUpToDate(slot, resetEpoch);
+                IdleFQ signer = ensureSignerLocked(slot);
+                tag = new SignerTag(slot.id(), slot.generation());
+                long execStartNs = System.nanoTime();
+                try {
+                    signatureResult = headerMap != null
+                        ? signer.generateSignature(url, headerMap)
+                        : signer.generateSignature(url, headers);
+                } catch (RuntimeException e) {
+                    recordOutcome(slot, tag.generation(), false, UpstreamSignedRequestService.REASON_SIGNER_FAIL);
+                    throw e;
+                }
+                event.execution = System.nanoTime() - execStartNs;
+                metrics.recordExecution(event.execution);
+                maybeRecycleLocked(slot, signer);
             } finally {
-                lock.unlock();
+                releaseSlot(slot);
             }
 
-            if (!Texts.hasText(signatureResult)) {
-                log.error("签名生成失败，返回结果为空");
-                return Map.of();
+            Map<String, String> result = toSignatureHeaders(signatureResult, event);
+            commitSignEvent(event, slot, 1);
+            if (result.isEmpty()) {
+                recordOutcome(slot, tag.generation(), false, UpstreamSignedRequestService.REASON_SIGNER_FAIL);
+                return SignedHeaders.EMPTY;
             }
+            return new SignedHeaders(result, tag);
 
-            // 解析返回的签名结果
-            Map<String, String> result = parseSignatureResult(signatureResult);
+        } catch (Exception e) {
+            log.error("生成FQ签名失败", e);
+            return SignedHeaders.EMPTY;
+        }
+    }
 
-            removeHeaderIgnoreCase(result, "X-Neptune");
+    /**
+     * 批量生成签名 headers：整批只获取一次槽位、只对齐一次 reset epoch，结果与请求顺序一致。
+     * <p>
+     * 单条签名失败时对应位置返回空 Map，不影响同批其他请求。
+     */
+    public List<Map<String, String>> generateSignatureHeadersBatch(List<SignatureRequest> requests) {
+        return generateSignatureHeadersBatch(requests, -1L);
+    }
 
-            if (log.isDebugEnabled()) {
-                log.debug("FQ签名生成成功: {}", result);
-            }
-            return result;
+    List<Map<String, String>> generateSignatureHeadersBatch(List<SignatureRequest> requests, long resetEpoch) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        if (ProcessLifecycle.isShuttingDown()) {
+            return emptyResults(requests);
+        }
 
+        int size = requests.size();
+        List<String> urls = new ArrayList<>(size);
+        List<Map<String, String>> headerMaps = new ArrayList<>(size);
+        for (SignatureRequest request : requests) {
+            urls.add(request.url());
+            headerMaps.add(request.headers());
+        }
+
+        SignerEvents.Sign event = new SignerEvents.Sign();
+        event.begin();
+        String[] signatureResults;
+        SignerSlot slot;
+        long generation;
+        try {
+            long waitStartNs = System.nanoTime();
+            slot = acquireSlot();
+            try {
+                recordLockWait(event, System.nanoTime() - waitStartNs);
+                ensureSlotResetUpToDate(slot, resetEpoch);
+                IdleFQ signer = ensureSignerLocked(slot);
+                generation = slot.generation();
+                long execStartNs = System.nanoTime();
+                try {
+                    signatureResults = signer.generateSignatures(urls, headerMaps);
+                } catch (RuntimeException e) {
+                    recordOutcome(slot, generation, false, UpstreamSignedRequestService.REASON_SIGNER_FAIL);
+                    throw e;
+                }
+                event.execution = System.nanoTime() - execStartNs;
+                // 执行耗时按条均摊，与单条签名的分布可比
+                long perSignatureNs = event.execution / size;
+                for (int i = 0; i < size; i++) {
+                    metrics.recordExecution(perSignatureNs);
+                }
+                maybeRecycleLocked(slot, signer);
+            } finally {
+                releaseSlot(slot);
+            }
         } catch (Exception e) {
-            log.error("生成FQ签名失败", e);
-            return Map.of();
+            log.error("批量生成FQ签名失败: size={}", size, e);
+            return emptyResults(requests);
+        }
+
+        List<Map<String, String>> results = new ArrayList<>(size);
+        for (String signatureResult : signatureResults) {
+            Map<String, String> result = toSignatureHeaders(signatureResult, event);
+            if (result.isEmpty()) {
+                recordOutcome(slot, generation, false, UpstreamSignedRequestService.REASON_SIGNER_FAIL);
+            }
+            results.add(result);
         }
+        commitSignEvent(event, slot, size);
+        return results;
     }
 
-    private IdleFQ ensureSignerLocked() {
-        IdleFQ signer = this.idleFQ;
-        if (signer != null) {
-            return signer;
+    static List<Map<String, String>> emptyResults(List<SignatureRequest> requests) {
+        int size = requests == null ? 0 : requests.size();
+        List<Map<String, String>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(Map.of());
+        }
+        return results;
+    }
+
+    private void recordLockWait(SignerEvents.Sign event, long nanos) {
+        event.lockWait = nanos;
+        metrics.recordLockWait(nanos);
+    }
+
+    private Map<String, String> toSignatureHeaders(String signatureResult, SignerEvents.Sign event) {
+        if (!Texts.hasText(signatureResult)) {
+            metrics.recordEmptyResult();
+            event.emptyResults++;
+            log.error("签名生成失败，返回结果为空");
+            return Map.of();
+        }
+
+        // 解析返回的签名结果（已去除 X-Neptune）
+        Map<String, String> result = SignatureHeaderParser.parse(signatureResult);
+        if (result.isEmpty()) {
+            metrics.recordUnparseableResult();
+            event.unparseableResults++;
+            log.error("签名结果无法解析: length={}", signatureResult.length());
+            return result;
         }
-        this.idleFQ = createIdleFq();
-        return this.idleFQ;
+        metrics.recordOkResult();
+
+        if (log.isDebugEnabled()) {
+            log.debug("FQ签名生成成功: {}", result);
+        }
+        return result;
     }
 
     /**
-     * 生成FQ应用的签名headers (重载方法，支持Map格式的headers)
+     * 异步生成签名 headers：提交到有界队列，由签名工作线程执行。
+     * <p>
+     * 队列已满时立即以 {@link SignerBusyException} 失败；超过 timeoutMs 仍未完成时同样以该异常失败，
+     * 尚未开始的任务会在进入模拟器前被丢弃。
      *
-     * @param url 请求的URL
-     * @param headerMap 请求头的Map，key为header名称，value为header值
-     * @return 包含各种签名header的Map
+     * @param timeoutMs 从提交开始计算的截止时间（ms），小于等于 0 表示不限制
      */
-    public Map<String, String> generateSignatureHeaders(String url, Map<String, String> headerMap) {
-        if (headerMap == null || headerMap.isEmpty()) {
-            return generateSignatureHeaders(url, "");
+    @Override
+    public CompletableFuture<SignedHeaders> submitSignatureHeaders(String url, Map<String, String> headerMap, long timeoutMs) {
+        return submit(() -> signTagged(url, headerMap, FQEncryptServiceWorker.currentResetEpoch()),
+            SignedHeaders.EMPTY, timeoutMs);
+    }
+
+    /**
+     * 上游结果回报：按签名时记录的槽位与实例代数计入健康评分，实例已被替换时忽略。
+     */
+    @Override
+    public void reportOutcome(SignerTag tag, boolean success, String reason) {
+        if (tag == null) {
+            return;
+        }
+        for (SignerSlot slot : slots) {
+            if (slot.id() == tag.instance()) {
+                recordOutcome(slot, tag.generation(), success, reason);
+                return;
+            }
         }
+    }
 
-        return generateSignatureHeaders(url, buildSignatureInputHeaders(headerMap));
+    private void recordOutcome(SignerSlot slot, long generation, boolean success, String reason) {
+        if (slot.generation() != generation) {
+            return;
+        }
+        if (success) {
+            slot.health().recordSuccess();
+        } else if (slot.health().recordFailure(properties.getQuarantineScore())) {
+            quarantine(slot, reason);
+        }
     }
 
     /**
-     * 解析签名生成结果
-     * 根据返回的字符串解析出各个header值
+     * 隔离单个槽位：不再分配新请求（池内只剩隔离槽位时除外），由维护线程回滚快照或重建后恢复；
+     * 上次隔离后不久再次被隔离时跳过快照直接完整重建。其他槽位不受影响。
      */
-    private Map<String, String> parseSignatureResult(String signatureResult) {
-        if (signatureResult == null) {
-            return Map.of();
+    private void quarantine(SignerSlot slot, String reason) {
+        boolean fullRebuild = slot.health().shouldEscalate() || !properties.isSnapshotEnabled();
+        String resetReason = "QUARANTINE:" + reason;
+        metrics.recordQuarantine();
+        log.warn("签名实例已隔离: slot={}, generation={}, reason={}, fullRebuild={}",
+            slot.id(), slot.generation(), reason, fullRebuild);
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    if (!destroyed && !ProcessLifecycle.isShuttingDown() && !slot.isRetired()
+                        && (fullRebuild || !restoreSlot(slot, resetReason))) {
+                        rebuildSlot(slot, resetReason);
+                    }
+                } catch (Throwable t) {
+                    log.warn("隔离实例恢复失败: slot={}, reason={}", slot.id(), reason, t);
+                } finally {
+                    // 恢复失败时同样解除隔离，避免永久损失容量
+                    slot.health().renew();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slot.health().renew();
         }
+    }
 
-        String normalized = Texts.trimToEmpty(normalizeLineBreaks(signatureResult));
-        if (normalized.isEmpty()) {
-            return Map.of();
+    /**
+     * 异步批量生成签名 headers：整批作为一个队列任务，在同一个槽位上连续签名。
+     */
+    @Override
+    public CompletableFuture<List<Map<String, String>>> submitSignatureHeadersBatch(List<SignatureRequest> requests, long timeoutMs) {
+        return submit(() -> generateSignatureHeadersBatch(requests, FQEncryptServiceWorker.currentResetEpoch()),
+            emptyResults(requests), timeoutMs);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work, T emptyResult, long timeoutMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (destroyed || ProcessLifecycle.isShuttingDown()) {
+            future.complete(emptyResult);
+            return future;
         }
 
-        // 1) JSON 格式：{"X-Argus":"...","X-Khronos":"..."}
-        if (normalized.startsWith("{") && normalized.endsWith("}")) {
+        long enqueuedAtNs = System.nanoTime();
+        long deadlineNs = timeoutMs > 0 ? enqueuedAtNs + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : Long.MAX_VALUE;
+        try {
+            signExecutor.execute(new QueuedSign<>(future, work, emptyResult, enqueuedAtNs, deadlineNs));
+        } catch (RejectedExecutionException e) {
+            metrics.recordQueueRejected();
+            future.completeExceptionally(new SignerBusyException("签名队列已满: capacity=" + queueCapacity));
+            return future;
+        }
+
+        if (timeoutMs > 0) {
+            CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+                if (future.completeExceptionally(new SignerBusyException("签名等待超时: timeoutMs=" + timeoutMs))) {
+                    metrics.recordQueueExpired();
+                }
+            });
+        }
+        return future;
+    }
+
+    private final class QueuedSign<T> implements Runnable {
+        private final CompletableFuture<T> future;
+        private final Supplier<T> work;
+        private final T emptyResult;
+        private final long enqueuedAtNs;
+        private final long deadlineNs;
+
+        private QueuedSign(CompletableFuture<T> future, Supplier<T> work, T emptyResult, long enqueuedAtNs, long deadlineNs) {
+            this.future = future;
+            this.work = work;
+            this.emptyResult = emptyResult;
+            this.enqueuedAtNs = enqueuedAtNs;
+            this.deadlineNs = deadlineNs;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                // 调用方已超时或取消，不再占用模拟器
+                return;
+            }
+            long startedAtNs = System.nanoTime();
+            metrics.recordQueueWait(startedAtNs - enqueuedAtNs);
+            if (startedAtNs - deadlineNs > 0) {
+                if (future.completeExceptionally(new SignerBusyException("签名排队超过截止时间"))) {
+                    metrics.recordQueueExpired();
+                }
+                return;
+            }
             try {
-                Map<String, String> jsonMap = SHARED_OBJECT_MAPPER.readValue(normalized, new TypeReference<Map<String, String>>() {});
-                return jsonMap != null ? new HashMap<>(jsonMap) : Map.of();
-            } catch (Exception ignored) {
-                // 继续按行格式解析
+                future.complete(work.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
             }
         }
 
-        // 2) 行格式：支持
-        //    - key\nvalue\nkey\nvalue...
-        //    - key: value\nkey2: value2...
-        String[] lines = normalized.split("\n");
-        Map<String, String> result = new HashMap<>();
+        private void abandon() {
+            future.complete(emptyResult);
+        }
+    }
 
-        if (looksLikeColonPairs(lines)) {
-            parseColonPairs(lines, result);
-        } else if (lines.length >= 2 && lines.length % 2 == 0) {
-            parseAlternatingPairs(lines, result);
-        } else {
-            // 兜底：尝试按空白分隔的 key=value
-            parseEqualsPairs(lines, result);
+    /**
+     * 选择并锁定一个槽位；拿到锁时槽位已被缩容回收则重新选择。
+     */
+    private SignerSlot acquireSlot() {
+        while (true) {
+            SignerSlot slot = acquireSlotOnce();
+            if (!slot.isRetired()) {
+                return slot;
+            }
+            releaseSlot(slot);
+        }
+    }
+
+    /**
+     * 优先抢占空闲槽位，全部繁忙时排到在途请求最少的槽位上；隔离或预热中的槽位只在没有其他槽位可选时使用。
+     */
+    private SignerSlot acquireSlotOnce() {
+        List<SignerSlot> slots = this.slots;
+        int size = slots.size();
+        int start = Math.floorMod(dispatchCursor.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            SignerSlot candidate = slots.get((start + i) % size);
+            if (!candidate.isDispatchable()) {
+                continue;
+            }
+            candidate.inflight().incrementAndGet();
+            if (candidate.lock().tryLock()) {
+                return candidate;
+            }
+            candidate.inflight().decrementAndGet();
+        }
+
+        SignerSlot leastLoaded = null;
+        for (int i = 0; i < size; i++) {
+            SignerSlot candidate = slots.get((start + i) % size);
+            if (leastLoaded == null || preferForDispatch(candidate, leastLoaded)) {
+                leastLoaded = candidate;
+            }
         }
+        leastLoaded.inflight().incrementAndGet();
+        leastLoaded.lock().lock();
+        return leastLoaded;
+    }
 
-        // 常见签名头部可能存在大小写差异，这里仅做存在性提示，不做强制
-        boolean hasArgus = hasCommonSignatureHeader(result);
-        if (!hasArgus) {
-            log.warn("签名结果解析后未发现常见签名头部，raw={}", truncateForLog(normalized));
+    private static boolean preferForDispatch(SignerSlot candidate, SignerSlot current) {
+        boolean candidateDispatchable = candidate.isDispatchable();
+        if (candidateDispatchable != current.isDispatchable()) {
+            return candidateDispatchable;
         }
+        return candidate.inflight().get() < current.inflight().get();
+    }
 
-        return result;
+    private static void releaseSlot(SignerSlot slot) {
+        slot.lock().unlock();
+        slot.inflight().decrementAndGet();
+    }
+
+    private void ensureSlotResetUpToDate(SignerSlot slot, long resetEpoch) {
+        if (resetEpoch < 0 || slot.localResetEpoch() == resetEpoch) {
+            return;
+        }
+        if (ProcessLifecycle.isShuttingDown()) {
+            return;
+        }
+        // 自上次对齐以来出现过升级重置（自愈/重启前置）时，不信任快照，完整重建
+        boolean fullRebuild = FQEncryptServiceWorker.latestFullRebuildEpoch() > slot.localResetEpoch();
+        String reason = "RESET_EPOCH:" + resetEpoch;
+        slot.localResetEpoch(resetEpoch);
+
+        if (!fullRebuild && restoreSlotLocked(slot, reason)) {
+            return;
+        }
+
+        IdleFQ current = slot.signer();
+        IdleFQ replacement = standby.getAndSet(null);
+        if (replacement != null) {
+            SignerEvents.Reset event = new SignerEvents.Reset();
+            event.begin();
+            long startNs = System.nanoTime();
+            slot.signer(replacement);
+            long swapNs = System.nanoTime() - startNs;
+            metrics.recordSwap(swapNs, swapNs, true);
+            commitResetEvent(event, slot, "standby", reason);
+            destroySignerAsync(current);
+            scheduleStandbyRefill();
+            log.warn("签名服务已重置（热备切换），slot={}, reason={}", slot.id(), reason);
+            return;
+        }
+
+        // 无热备：旧实例已被判定异常，不能再承接重置后的重试。持锁先销毁再同步新建（只阻塞本槽位，避免双实例共存）；
+        // 回滚中途失败的实例已被摘除，同样由 ensureSignerLocked 同步新建
+        if (current != null) {
+            SignerEvents.Reset event = new SignerEvents.Reset();
+            event.begin();
+            slot.signer(null);
+            destroySignerQuietly(current);
+            ensureSignerLocked(slot);
+            commitResetEvent(event, slot, "rebuild", reason);
+            log.warn("签名服务已重置（同步重建），slot={}, reason={}", slot.id(), reason);
+        }
+    }
+
+    /**
+     * 按调用次数/映射内存增长主动回收实例：优先快照回滚，否则后台重建后切换。
+     */
+    private void maybeRecycleLocked(SignerSlot slot, IdleFQ signer) {
+        if (slot.rebuilding().get()) {
+            return;
+        }
+        long calls = signer.getCallsServed();
+        String reason = null;
+        long maxCalls = properties.getRecycleMaxCalls();
+        if (maxCalls > 0 && calls >= maxCalls) {
+            reason = "RECYCLE:calls=" + calls;
+        } else if (properties.getRecycleMaxMappedGrowthMb() > 0 && slot.shouldCheckMappedBytes(calls, MAPPED_CHECK_INTERVAL)) {
+            long growth = signer.getMappedBytesGrowth();
+            if (growth >= properties.getRecycleMaxMappedGrowthMb() * BYTES_PER_MB) {
+                reason = "RECYCLE:mappedGrowthMb=" + growth / BYTES_PER_MB;
+            }
+        }
+        if (reason == null) {
+            return;
+        }
+
+        metrics.recordRecycle();
+        // 回滚失败且实例已被摘除时，下一次签名会同步创建新实例，无需再后台重建
+        if (restoreSlotLocked(slot, reason) || slot.signer() == null) {
+            return;
+        }
+        scheduleSlotRebuild(slot, reason);
+    }
+
+    private IdleFQ ensureSignerLocked(SignerSlot slot) {
+        IdleFQ signer = slot.signer();
+        if (signer != null) {
+            return signer;
+        }
+        long startNs = System.nanoTime();
+        try {
+            signer = createIdleFq(false);
+        } finally {
+            metrics.recordUnavailable(System.nanoTime() - startNs);
+        }
+        slot.signer(signer);
+        return signer;
+    }
+
+    /**
+     * signer 池运行状态（用于状态接口与排障）。
+     */
+    @Override
+    public SignerStatus getStatus() {
+        return metrics.toStatus(slots.size(), standby.get() != null, signExecutor.getQueue().size(), queueCapacity);
+    }
+
+    /**
+     * 以 Prometheus 文本格式输出池指标与各槽位实例的年龄、调用次数、初始化耗时。
+     */
+    @Override
+    public void writeMetrics(PrometheusTextWriter out) {
+        List<SignerSlot> current = slots;
+        IdleFQ standbySigner = standby.get();
+        metrics.writeTo(out, current.size(), standbySigner != null, signExecutor.getQueue().size(), queueCapacity);
+        if (autoscaler != null) {
+            autoscaler.writeTo(out, current.size());
+        }
+
+        out.family("fq_signer_slot_inflight", "gauge", "槽位上排队或执行中的请求数");
+        for (SignerSlot slot : current) {
+            out.sample("fq_signer_slot_inflight", slot.inflight().get(), "slot", Integer.toString(slot.id()));
+        }
+        out.family("fq_signer_instance_age_seconds", "gauge", "槽位当前 signer 实例自创建以来的时长");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null) {
+                out.sample("fq_signer_instance_age_seconds", signer.getAgeNanos() / 1e9, "slot", Integer.toString(slot.id()));
+            }
+        }
+        out.family("fq_signer_instance_calls", "gauge", "槽位当前 signer 实例自创建（或上次快照回滚）以来的签名次数");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null) {
+                out.sample("fq_signer_instance_calls", signer.getCallsServed(), "slot", Integer.toString(slot.id()));
+            }
+        }
+        out.family("fq_signer_instance_health_score", "gauge", "槽位当前 signer 实例的健康评分（上游结果的指数加权平均）");
+        for (SignerSlot slot : current) {
+            out.sample("fq_signer_instance_health_score", slot.health().score(), "slot", Integer.toString(slot.id()));
+        }
+        out.family("fq_signer_instance_quarantined", "gauge", "槽位是否处于隔离中");
+        for (SignerSlot slot : current) {
+            out.sample("fq_signer_instance_quarantined", slot.health().isQuarantined() ? 1 : 0, "slot", Integer.toString(slot.id()));
+        }
+        out.family("fq_signer_instance_ready", "gauge", "槽位是否可正常分配请求（未被隔离）");
+        for (SignerSlot slot : current) {
+            out.sample("fq_signer_instance_ready", slot.isDispatchable() ? 1 : 0, "slot", Integer.toString(slot.id()));
+        }
+        out.family("fq_signer_instance_init_seconds", "gauge", "槽位当前 signer 实例的初始化耗时");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null) {
+                out.sample("fq_signer_instance_init_seconds", signer.getInitNanos() / 1e9, "slot", Integer.toString(slot.id()));
+            }
+        }
+        out.family("fq_signer_instance_mapped_bytes", "gauge", "槽位当前 signer 实例的模拟器映射内存（native）");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null) {
+                out.sample("fq_signer_instance_mapped_bytes", signer.getMappedBytes(), "slot", Integer.toString(slot.id()));
+            }
+        }
+        out.family("fq_signer_instance_snapshot_bytes", "gauge", "槽位当前 signer 实例的快照在堆上持有的字节数");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null) {
+                out.sample("fq_signer_instance_snapshot_bytes", signer.getSnapshotBytes(), "slot", Integer.toString(slot.id()));
+            }
+        }
+        out.family("fq_signer_instance_init_rss_bytes", "gauge", "槽位当前 signer 实例创建前后的进程 RSS 差值");
+        for (SignerSlot slot : current) {
+            IdleFQ signer = slot.signer();
+            if (signer != null && signer.getInitRssBytes() >= 0L) {
+                out.sample("fq_signer_instance_init_rss_bytes", signer.getInitRssBytes(), "slot", Integer.toString(slot.id()));
+            }
+        }
+    }
+
+    /**
+     * 生成FQ应用的签名headers (重载方法，支持Map格式的headers)
+     *
+     * @param url 请求的URL
+     * @param headerMap 请求头的Map，key为header名称，value为header值
+     * @return 包含各种签名header的Map
+     */
+    public Map<String, String> generateSignatureHeaders(String url, Map<String, String> headerMap) {
+        return generateSignatureHeaders(url, headerMap, -1L);
+    }
+
+    Map<String, String> generateSignatureHeaders(String url, Map<String, String> headerMap, long resetEpoch) {
+        return signTagged(url, headerMap, resetEpoch).headers();
+    }
+
+    SignedHeaders signTagged(String url, Map<String, String> headerMap, long resetEpoch) {
+        if (headerMap == null || headerMap.isEmpty()) {
+            return sign(url, "", null, resetEpoch);
+        }
+        return sign(url, null, headerMap, resetEpoch);
     }
 
     private String maskSensitiveHeaders(String headers) {
         if (headers == null || headers.isEmpty()) {
             return headers;
         }
-        String normalized = normalizeLineBreaks(headers);
+        String normalized = SignatureHeaderParser.normalizeLineBreaks(headers);
         StringBuilder masked = new StringBuilder();
         String[] lines = normalized.split("\n");
         boolean redactNextValue = false;
@@ -232,120 +1137,55 @@ public class FQEncryptService {
             || lowerCaseName.startsWith("x-tt-uuid");
     }
 
-    private void removeHeaderIgnoreCase(Map<String, String> headers, String name) {
-        if (headers == null || headers.isEmpty() || name == null) {
-            return;
+    /**
+     * 清理资源
+     */
+    @Override
+    public void destroy() {
+        synchronized (slotsMutex) {
+            destroyed = true;
         }
-        String target = name.toLowerCase(Locale.ROOT);
-        headers.keySet().removeIf(key -> key != null && key.toLowerCase(Locale.ROOT).equals(target));
-    }
-
-    private static String normalizeLineBreaks(String value) {
-        return value.replace("\r\n", "\n").replace('\r', '\n');
-    }
-
-    private static boolean looksLikeColonPairs(String[] lines) {
-        for (String line : lines) {
-            if (HEADER_COLON_PAIR.matcher(Texts.trimToEmpty(line)).matches()) {
-                return true;
-            }
+        if (autoscaleExecutor != null) {
+            autoscaleExecutor.shutdownNow();
         }
-        return false;
-    }
-
-    private static void parseColonPairs(String[] lines, Map<String, String> result) {
-        for (String line : lines) {
-            String trimmed = Texts.trimToEmpty(line);
-            if (trimmed.isEmpty()) {
-                continue;
+        maintenanceExecutor.shutdownNow();
+        for (Runnable pending : signExecutor.shutdownNow()) {
+            if (pending instanceof QueuedSign<?> queued) {
+                queued.abandon();
             }
-            int idx = trimmed.indexOf(':');
-            if (idx <= 0) {
-                continue;
-            }
-            putHeader(result, trimmed.substring(0, idx), trimmed.substring(idx + 1));
-        }
-    }
-
-    private static void parseAlternatingPairs(String[] lines, Map<String, String> result) {
-        for (int i = 0; i < lines.length - 1; i += 2) {
-            putHeader(result, lines[i], lines[i + 1]);
         }
-    }
+        destroySignerQuietly(standby.getAndSet(null));
 
-    private static void parseEqualsPairs(String[] lines, Map<String, String> result) {
-        for (String line : lines) {
-            String trimmed = Texts.trimToEmpty(line);
-            if (trimmed.isEmpty()) {
-                continue;
+        // 清理池内全部 IdleFQ 资源
+        for (SignerSlot slot : slots) {
+            IdleFQ old;
+            slot.lock().lock();
+            try {
+                old = slot.signer();
+                slot.signer(null);
+            } finally {
+                slot.lock().unlock();
             }
-            int idx = trimmed.indexOf('=');
-            if (idx <= 0) {
-                continue;
+            if (old != null) {
+                old.destroy();
             }
-            putHeader(result, trimmed.substring(0, idx), trimmed.substring(idx + 1));
         }
-    }
 
-    private static void putHeader(Map<String, String> result, String rawKey, String rawValue) {
-        String key = Texts.trimToEmpty(rawKey);
-        if (key.isEmpty()) {
-            return;
-        }
-        result.put(key, Texts.trimToEmpty(rawValue));
-    }
+        // 释放共享资源缓存
+        IdleFQ.releaseSharedResources();
 
-    private static boolean hasCommonSignatureHeader(Map<String, String> headers) {
-        return headers.keySet().stream()
-            .filter(k -> k != null)
-            .map(k -> k.toLowerCase(Locale.ROOT))
-            .anyMatch(k -> HEADER_X_ARGUS.equals(k) || HEADER_X_GORGON.equals(k));
-    }
-
-    private static String truncateForLog(String value) {
-        if (value.length() <= RAW_LOG_MAX_LENGTH) {
-            return value;
-        }
-        return value.substring(0, RAW_LOG_MAX_LENGTH) + "...";
+        log.info("签名服务资源释放完成");
     }
 
-    // 将 header map 转换为 unidbg signer 需要的 key\r\nvalue\r\n... 格式。
-    private static String buildSignatureInputHeaders(Map<String, String> headerMap) {
-        // 每个 header 约 key(20)+CRLF(2)+value(50)=72，条目间再加 CRLF(2)。
-        int estimatedCapacity = headerMap.size() * 74;
-        StringBuilder builder = new StringBuilder(estimatedCapacity);
-        boolean first = true;
-        for (Map.Entry<String, String> entry : headerMap.entrySet()) {
-            if (!first) {
-                builder.append("\r\n");
-            }
-            builder.append(entry.getKey()).append("\r\n").append(entry.getValue());
-            first = false;
+    private void destroySignerAsync(IdleFQ signer) {
+        if (signer == null) {
+            return;
         }
-        return builder.toString();
-    }
-
-    /**
-     * 清理资源
-     */
-    public void destroy() {
-        // 清理IdleFQ资源
-        IdleFQ old;
-        lock.lock();
         try {
-            old = this.idleFQ;
-            this.idleFQ = null;
-        } finally {
-            lock.unlock();
-        }
-        if (old != null) {
-            old.destroy();
+            maintenanceExecutor.execute(() -> destroySignerQuietly(signer));
+        } catch (RejectedExecutionException e) {
+            destroySignerQuietly(signer);
         }
-
-        // 清理临时文件
-        TempFileUtils.cleanup();
-
-        log.info("签名服务资源释放完成");
     }
 
     private static void destroySignerQuietly(IdleFQ signer) {
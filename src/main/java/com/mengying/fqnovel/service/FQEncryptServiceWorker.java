@@ -1,17 +1,24 @@
 package com.mengying.fqnovel.service;
 
 import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.dto.SignerProfile;
+import com.mengying.fqnovel.dto.SignerStatus;
+import com.mengying.fqnovel.unidbg.NativeProfiler;
 import com.mengying.fqnovel.utils.ProcessLifecycle;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PreDestroy;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service("fqEncryptWorker")
 public class FQEncryptServiceWorker {
@@ -19,38 +26,61 @@ public class FQEncryptServiceWorker {
     private static final Logger log = LoggerFactory.getLogger(FQEncryptServiceWorker.class);
 
     private static final AtomicLong RESET_EPOCH = new AtomicLong(0L);
+    // 最近一次升级重置（需要完整重建、不可走快照回滚）对应的 epoch
+    private static final AtomicLong FULL_REBUILD_EPOCH = new AtomicLong(0L);
     private static final AtomicBoolean SOFT_UPSTREAM_RESET_ARMED = new AtomicBoolean(true);
     private static long lastResetRequestAtMs = 0L;
     private static long lastUpstreamEmptyResetRequestAtMs = 0L;
     private static volatile long RESET_COOLDOWN_MS = 2000L;
     private static volatile long UPSTREAM_EMPTY_RESET_COOLDOWN_MS = 8000L;
-    private final FQEncryptService signer;
-    private long localResetEpoch = 0L;
+    private final HeaderSigner signer;
+    private final long signTimeoutMs;
+
+    /**
+     * requestGlobalReset 的处理结果：被接受或因冷却/未重新武装/进程退出被抑制。
+     */
+    enum ResetOutcome {
+        ACCEPTED("accepted"),
+        COOLDOWN("cooldown"),
+        UPSTREAM_COOLDOWN("upstream_cooldown"),
+        SOFT_DISARMED("soft_disarmed"),
+        SHUTTING_DOWN("shutting_down");
+
+        private final String label;
+        private final LongAdder count = new LongAdder();
+
+        ResetOutcome(String label) {
+            this.label = label;
+        }
+    }
 
     @Autowired
     public FQEncryptServiceWorker(UnidbgProperties unidbgProperties) {
         UnidbgProperties properties = Objects.requireNonNull(unidbgProperties, "unidbgProperties must not be null");
         RESET_COOLDOWN_MS = Math.max(0L, properties.getResetCooldownMs());
         UPSTREAM_EMPTY_RESET_COOLDOWN_MS = Math.max(0L, properties.getUpstreamEmptyResetCooldownMs());
-        this.signer = new FQEncryptService(properties);
+        this.signTimeoutMs = Math.max(0L, properties.getSignTimeoutMs());
+        this.signer = UnidbgProperties.MODE_PROCESS.equalsIgnoreCase(properties.getMode())
+            ? new RemoteSignerPool(properties)
+            : new FQEncryptService(properties);
     }
 
     public static synchronized long requestGlobalReset(String reason) {
         if (ProcessLifecycle.isShuttingDown()) {
-            return RESET_EPOCH.get();
+            return suppressReset(reason, ResetOutcome.SHUTTING_DOWN);
         }
 
         long now = System.currentTimeMillis();
         boolean softUpstreamReset = isSoftUpstreamReset(reason);
         if (isWithinCooldown(lastResetRequestAtMs, now, RESET_COOLDOWN_MS)) {
-            return RESET_EPOCH.get();
+            return suppressReset(reason, ResetOutcome.COOLDOWN);
         }
         if (softUpstreamReset
             && isWithinCooldown(lastUpstreamEmptyResetRequestAtMs, now, UPSTREAM_EMPTY_RESET_COOLDOWN_MS)) {
-            return RESET_EPOCH.get();
+            return suppressReset(reason, ResetOutcome.UPSTREAM_COOLDOWN);
         }
         if (softUpstreamReset && !isEscalatedReset(reason) && !SOFT_UPSTREAM_RESET_ARMED.get()) {
-            return RESET_EPOCH.get();
+            return suppressReset(reason, ResetOutcome.SOFT_DISARMED);
         }
 
         lastResetRequestAtMs = now;
@@ -60,10 +90,31 @@ public class FQEncryptServiceWorker {
         }
 
         long epoch = RESET_EPOCH.incrementAndGet();
+        if (isEscalatedReset(reason)) {
+            FULL_REBUILD_EPOCH.set(epoch);
+        }
+        recordResetRequest(reason, ResetOutcome.ACCEPTED, epoch);
         log.warn("请求重置签名服务: epoch={}, reason={}", epoch, reason);
         return epoch;
     }
 
+    private static long suppressReset(String reason, ResetOutcome outcome) {
+        long epoch = RESET_EPOCH.get();
+        recordResetRequest(reason, outcome, epoch);
+        return epoch;
+    }
+
+    private static void recordResetRequest(String reason, ResetOutcome outcome, long epoch) {
+        outcome.count.increment();
+        SignerEvents.ResetRequest event = new SignerEvents.ResetRequest();
+        if (event.shouldCommit()) {
+            event.reason = reason;
+            event.outcome = outcome.label;
+            event.epoch = epoch;
+            event.commit();
+        }
+    }
+
     private static boolean isWithinCooldown(long lastAtMs, long nowMs, long cooldownMs) {
         return cooldownMs > 0 && lastAtMs > 0 && nowMs - lastAtMs < cooldownMs;
     }
@@ -74,38 +125,105 @@ public class FQEncryptServiceWorker {
             || reason.contains(UpstreamSignedRequestService.REASON_CHAPTER_EMPTY_OR_SHORT));
     }
 
-    private static boolean isEscalatedReset(String reason) {
+    static boolean isEscalatedReset(String reason) {
         return reason != null
             && (reason.startsWith("AUTO_SELF_HEAL:")
             || reason.startsWith("AUTO_RESTART:"));
     }
 
+    static long latestFullRebuildEpoch() {
+        return FULL_REBUILD_EPOCH.get();
+    }
+
+    /**
+     * 签名工作进程内使用：对齐主进程随请求下发的 reset epoch（只前进不回退）。
+     */
+    static void applyRemoteEpochs(long resetEpoch, long fullRebuildEpoch) {
+        RESET_EPOCH.accumulateAndGet(resetEpoch, Math::max);
+        FULL_REBUILD_EPOCH.accumulateAndGet(fullRebuildEpoch, Math::max);
+    }
+
     public static void recordUpstreamSuccess() {
         SOFT_UPSTREAM_RESET_ARMED.set(true);
     }
 
     /**
-     * 同步生成FQ签名headers (重载方法，支持Map格式的headers)
+     * 异步生成FQ签名headers，截止时间为 sign-timeout-ms。
+     */
+    public CompletableFuture<SignedHeaders> generateSignatureHeadersAsync(String url, Map<String, String> headerMap) {
+        return generateSignatureHeadersAsync(url, headerMap, signTimeoutMs);
+    }
+
+    /**
+     * 异步生成FQ签名headers。
+     * <p>
+     * reset epoch 由各槽位在持锁签名前自行对齐，池内其他槽位不受单个槽位重建影响。
      *
-     * @param url 请求的URL
-     * @param headerMap 请求头的Map
-     * @return 包含签名信息的签名头
+     * @param timeoutMs 截止时间（ms，含排队），小于等于 0 表示不限制
+     * @return 签名结果；队列已满或超时时以 {@link SignerBusyException} 异常完成
      */
-    public synchronized Map<String, String> generateSignatureHeadersSync(String url, Map<String, String> headerMap) {
-        ensureResetUpToDate();
-        return signer.generateSignatureHeaders(url, headerMap);
+    public CompletableFuture<SignedHeaders> generateSignatureHeadersAsync(String url, Map<String, String> headerMap, long timeoutMs) {
+        return signer.submitSignatureHeaders(url, headerMap, timeoutMs);
     }
 
-    private void ensureResetUpToDate() {
-        if (ProcessLifecycle.isShuttingDown()) {
-            return;
+    /**
+     * 批量异步生成签名headers：整批在同一个 signer 实例上连续签名，结果与请求顺序一致。
+     * <p>
+     * 整批作为一个队列任务参与排队与截止时间控制；单条失败时对应位置为空 Map。
+     */
+    public CompletableFuture<List<Map<String, String>>> generateSignatureHeadersBatchAsync(List<SignatureRequest> requests) {
+        return signer.submitSignatureHeadersBatch(requests, signTimeoutMs);
+    }
+
+    /**
+     * 上游接受了某个实例产出的签名：重新武装软重置并计入该实例的健康评分。
+     */
+    public void reportSignerSuccess(SignerTag signerTag) {
+        recordUpstreamSuccess();
+        if (signerTag != null) {
+            signer.reportOutcome(signerTag, true, null);
         }
-        long epoch = RESET_EPOCH.get();
-        if (epoch == localResetEpoch) {
+    }
+
+    /**
+     * 上游拒绝了某个实例产出的签名（风控、空响应等）：只计入该实例的健康评分，评分过低时单独隔离恢复，
+     * 其他实例不受影响。无法归因到实例（批量签名、签名本身失败）或升级类原因时退回全局重置。
+     */
+    public void reportSignerFailure(SignerTag signerTag, String reason) {
+        if (signerTag == null || isEscalatedReset(reason)) {
+            requestGlobalReset(reason);
             return;
         }
-        signer.reset("RESET_EPOCH:" + epoch);
-        localResetEpoch = epoch;
+        signer.reportOutcome(signerTag, false, reason);
+    }
+
+    public SignerStatus getSignerStatus() {
+        return signer.getStatus();
+    }
+
+    /**
+     * 以 Prometheus 文本格式输出重置请求统计与签名池指标。
+     */
+    public String getSignerMetricsText() {
+        PrometheusTextWriter out = new PrometheusTextWriter();
+        out.family("fq_signer_reset_requests_total", "counter", "重置请求数（按处理结果，含冷却等原因被抑制的请求）");
+        for (ResetOutcome outcome : ResetOutcome.values()) {
+            out.sample("fq_signer_reset_requests_total", outcome.count.sum(), "outcome", outcome.label);
+        }
+        out.gauge("fq_signer_reset_epoch", "当前全局 reset epoch", RESET_EPOCH.get());
+        signer.writeMetrics(out);
+        return out.toString();
+    }
+
+    /**
+     * 本进程内 signer 的 native 热点报告（独立进程模式下各工作进程单独采集，此处为空）。
+     */
+    public SignerProfile getSignerProfile(int top) {
+        return NativeProfiler.report(Math.max(1, Math.min(top, 500)));
+    }
+
+    static long currentResetEpoch() {
+        return ProcessLifecycle.isShuttingDown() ? -1L : RESET_EPOCH.get();
     }
 
     @PreDestroy
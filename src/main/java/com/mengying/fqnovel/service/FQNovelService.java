@@ -13,17 +13,27 @@ import com.mengying.fqnovel.utils.FQApiUtils;
 import com.mengying.fqnovel.utils.ProcessLifecycle;
 import com.mengying.fqnovel.utils.RetryBackoff;
 import com.mengying.fqnovel.utils.Texts;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipException;
 
 @Service
 public class FQNovelService {
@@ -64,90 +74,142 @@ public class FQNovelService {
         this.taskExecutor = taskExecutor;
     }
 
-    public CompletableFuture<FQNovelResponse<FqIBatchFullResponse>> batchFull(String itemIds, String bookId, boolean download) {
-        return CompletableFuture.supplyAsync(() -> executeBatchFullWithRetry(itemIds, bookId, download), taskExecutor);
-    }
-
-    private FQNovelResponse<FqIBatchFullResponse> executeBatchFullWithRetry(String itemIds, String bookId, boolean download) {
+    /**
+     * 拉取 batch_full；成功时附带产出最后一次签名的实例，供调用方在校验章节内容后回报。
+     * <p>
+     * 签名、限流、请求、解析与重试退避都以 future 阶段串联，等待期间不占用线程。
+     */
+    public CompletableFuture<BatchFullResult> batchFull(String itemIds, String bookId, boolean download) {
         if (ProcessLifecycle.isShuttingDown()) {
-            return FQNovelResponse.error("服务正在退出中，请稍后重试");
+            return CompletableFuture.completedFuture(BatchFullResult.untagged(FQNovelResponse.error("服务正在退出中，请稍后重试")));
         }
+        return attemptBatchFull(itemIds, bookId, download, 1);
+    }
 
+    private CompletableFuture<BatchFullResult> attemptBatchFull(String itemIds, String bookId, boolean download, int attempt) {
         int maxAttempts = Math.max(1, downloadProperties.getRetry().getMaxRetries());
         long baseDelayMs = Math.max(0L, downloadProperties.getRetry().getDelayMs());
         long maxDelayMs = Math.max(baseDelayMs, downloadProperties.getRetry().getMaxDelayMs());
 
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                return fetchBatchFullOnce(itemIds, bookId, download);
-            } catch (Exception e) {
+        // 上游已返回时记录产出签名的实例，失败只归因到该实例
+        AtomicReference<SignerTag> signer = new AtomicReference<>();
+        // 解压与 JSON 绑定放在业务执行器上，不占用驱动 HttpClient I/O 的执行器
+        return requestBatchFull(itemIds, bookId, download)
+            .thenApplyAsync(upstream -> {
+                signer.set(upstream.signer());
+                return new BatchFullResult(parseBatchFull(upstream), upstream.signer());
+            }, taskExecutor)
+            .exceptionallyCompose(error -> {
+                Exception e = unwrapFailure(error);
                 FQNovelResponse<FqIBatchFullResponse> decision =
-                    handleBatchFullException(e, itemIds, attempt, maxAttempts, baseDelayMs, maxDelayMs);
+                    handleBatchFullException(e, signer.get(), itemIds, attempt, maxAttempts);
                 if (decision != null) {
-                    return decision;
+                    return CompletableFuture.completedFuture(BatchFullResult.untagged(decision));
                 }
-            }
-        }
-        return FQNovelResponse.error("获取章节内容失败: 超过最大重试次数");
+                long delay = RetryBackoff.computeDelay(baseDelayMs, maxDelayMs, attempt, 10, 0L, 250L, false);
+                Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, taskExecutor);
+                return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                    .thenCompose(next -> attemptBatchFull(itemIds, bookId, download, next));
+            });
     }
 
-    private FQNovelResponse<FqIBatchFullResponse> fetchBatchFullOnce(String itemIds, String bookId, boolean download) throws Exception {
+    private CompletableFuture<UpstreamSignedRequestService.UpstreamRawResult> requestBatchFull(String itemIds, String bookId, boolean download) {
         String url = fqApiUtils.getBaseUrl() + FQConstants.Chapter.BATCH_FULL_PATH;
         Map<String, String> params = fqApiUtils.buildBatchFullParams(itemIds, bookId, download);
         String fullUrl = fqApiUtils.buildUrlWithParams(url, params);
 
-        UpstreamSignedRequestService.UpstreamRawResult upstream =
-            upstreamSignedRequestService.executeSignedRawGetRateLimited(fullUrl, fqApiUtils.buildCommonHeaders());
-        if (upstream == null) {
-            throw new IllegalStateException("签名生成失败");
-        }
+        return upstreamSignedRequestService.executeSignedRawGetRateLimitedAsync(fullUrl, fqApiUtils.buildCommonHeaders())
+            .thenApply(upstream -> {
+                if (upstream == null) {
+                    throw new IllegalStateException("签名生成失败");
+                }
+                return upstream;
+            });
+    }
 
-        String responseBody = upstream.responseBody();
-        String trimmedBody = Texts.trimToNull(responseBody);
-        if (trimmedBody == null) {
-            throw new RuntimeException("Empty upstream response");
-        }
-        if (!trimmedBody.startsWith("{") && !trimmedBody.startsWith("[")) {
-            if (UpstreamSignedRequestService.containsIllegalAccess(trimmedBody)) {
-                throw new IllegalStateException(UpstreamSignedRequestService.REASON_ILLEGAL_ACCESS);
-            }
-            throw new IllegalStateException(UpstreamSignedRequestService.REASON_UPSTREAM_NON_JSON);
+    private static Exception unwrapFailure(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
         }
+        return current instanceof Exception exception ? exception : new CompletionException(current);
+    }
 
-        FqIBatchFullResponse batchResponse = objectMapper.readValue(responseBody, FqIBatchFullResponse.class);
+    private FQNovelResponse<FqIBatchFullResponse> parseBatchFull(UpstreamSignedRequestService.UpstreamRawResult upstream) {
+        FqIBatchFullResponse batchResponse;
+        try {
+            batchResponse = readBatchFull(upstream);
+        } catch (ZipException | EOFException e) {
+            throw new IllegalStateException(UpstreamSignedRequestService.REASON_UPSTREAM_GZIP, e);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
         if (batchResponse == null) {
             throw new RuntimeException("Upstream parse failed");
         }
         if (batchResponse.code() != 0) {
             String msg = Texts.trimToEmpty(batchResponse.message());
-            String raw = Texts.trimToEmpty(responseBody);
             if (batchResponse.code() == 110L
                 || UpstreamSignedRequestService.containsIllegalAccess(msg)
-                || UpstreamSignedRequestService.containsIllegalAccess(raw)) {
+                || UpstreamSignedRequestService.containsIllegalAccess(upstream.responseBody())) {
                 throw new IllegalStateException(UpstreamSignedRequestService.REASON_ILLEGAL_ACCESS);
             }
             return FQNovelResponse.error((int) batchResponse.code(), msg);
         }
 
-        FQEncryptServiceWorker.recordUpstreamSuccess();
+        upstreamSignedRequestService.reportUpstreamSuccess(upstream.signer());
         autoRestartService.recordSuccess();
         return FQNovelResponse.success(batchResponse);
     }
 
+    /**
+     * 边解压边绑定 batch_full 响应：首个 token 判定空响应与非 JSON，只有这两种错误路径才把响应体解码成文本。
+     */
+    private FqIBatchFullResponse readBatchFull(UpstreamSignedRequestService.UpstreamRawResult upstream) throws IOException {
+        try (InputStream body = upstream.openBody(); JsonParser parser = objectMapper.createParser(body)) {
+            JsonToken first;
+            try {
+                first = parser.nextToken();
+            } catch (JsonParseException e) {
+                throw nonJsonFailure(upstream);
+            }
+            if (first == null) {
+                throw new RuntimeException("Empty upstream response");
+            }
+            if (first != JsonToken.START_OBJECT && first != JsonToken.START_ARRAY) {
+                throw nonJsonFailure(upstream);
+            }
+            return objectMapper.readValue(parser, FqIBatchFullResponse.class);
+        }
+    }
+
+    private static IllegalStateException nonJsonFailure(UpstreamSignedRequestService.UpstreamRawResult upstream) {
+        if (UpstreamSignedRequestService.containsIllegalAccess(upstream.responseBody())) {
+            return new IllegalStateException(UpstreamSignedRequestService.REASON_ILLEGAL_ACCESS);
+        }
+        return new IllegalStateException(UpstreamSignedRequestService.REASON_UPSTREAM_NON_JSON);
+    }
+
     private FQNovelResponse<FqIBatchFullResponse> handleBatchFullException(
         Exception e,
+        SignerTag signer,
         String itemIds,
         int attempt,
-        int maxAttempts,
-        long baseDelayMs,
-        long maxDelayMs
+        int maxAttempts
     ) {
         String message = Texts.defaultIfBlank(Texts.trimToEmpty(e.getMessage()), e.getClass().getSimpleName());
         String retryReason = UpstreamSignedRequestService.resolveRetryReason(message);
         boolean retryable = retryReason != null;
 
+        // 签名本身失败已由 signer 计入对应实例；上游空响应计入产出签名的实例，评分过低时只隔离该实例。
+        // 无法归因时退回全局重置，仍只在重试后触发。
+        if (UpstreamSignedRequestService.REASON_UPSTREAM_EMPTY.equals(retryReason) && (signer != null || attempt >= 2)) {
+            upstreamSignedRequestService.reportUpstreamFailure(signer, retryReason);
+        }
+
         if (!retryable || attempt >= maxAttempts) {
-            if (retryable) {
+            // 签名排队繁忙不代表 signer/上游异常，不计入自动重启阈值
+            if (retryable && !UpstreamSignedRequestService.REASON_SIGNER_BUSY.equals(retryReason)) {
                 autoRestartService.recordFailure(retryReason);
             }
             String userMessage = batchFailureMessage(retryReason);
@@ -160,27 +222,12 @@ public class FQNovelService {
             return FQNovelResponse.error(CHAPTER_FETCH_FAILURE_PREFIX + message);
         }
 
-        if (UpstreamSignedRequestService.REASON_SIGNER_FAIL.equals(retryReason)
-            || (UpstreamSignedRequestService.REASON_UPSTREAM_EMPTY.equals(retryReason)
-            && attempt >= 2)) {
-            FQEncryptServiceWorker.requestGlobalReset(retryReason);
-        }
-        // 所有可重试异常都遵循设备切换冷却，避免高并发时在设备池里来回抖动。
-        deviceRotationService.rotateIfNeeded(retryReason);
-
-        long delay = RetryBackoff.computeDelay(
-            baseDelayMs,
-            maxDelayMs,
-            attempt,
-            10,
-            0L,
-            250L,
-            false
-        );
-        if (!RetryBackoff.sleep(delay)) {
-            return FQNovelResponse.error("获取章节内容失败: 重试被中断");
+        // 所有可重试异常都遵循设备切换冷却，避免高并发时在设备池里来回抖动；签名排队繁忙与设备无关，不切换。
+        if (!UpstreamSignedRequestService.REASON_SIGNER_BUSY.equals(retryReason)) {
+            deviceRotationService.rotateIfNeeded(retryReason);
         }
 
+        // 返回 null 表示退避后重试
         return null;
     }
 
@@ -201,6 +248,8 @@ public class FQNovelService {
                 "获取章节内容失败: 章节内容为空/过短（已重试仍失败）";
             case UpstreamSignedRequestService.REASON_SIGNER_FAIL ->
                 "获取章节内容失败: 签名生成失败（已重试仍失败）";
+            case UpstreamSignedRequestService.REASON_SIGNER_BUSY ->
+                "获取章节内容失败: 签名服务繁忙（已重试仍失败，请稍后重试）";
             default -> null;
         };
     }
@@ -297,7 +346,7 @@ public class FQNovelService {
     }
 
     private FQNovelResponse<FQNovelBookInfo> handleBookInfoFailure(String bookId, Throwable throwable) {
-        Throwable resolved = throwable instanceof java.util.concurrent.CompletionException ce && ce.getCause() != null
+        Throwable resolved = throwable instanceof CompletionException ce && ce.getCause() != null
             ? ce.getCause()
             : throwable;
         log.error("获取书籍信息失败 - bookId: {}", bookId, resolved);
@@ -307,4 +356,13 @@ public class FQNovelService {
         return FQNovelResponse.error("获取书籍信息失败: " + message);
     }
 
+    /**
+     * batch_full 结果及产出签名的实例；失败或无法归因时 signer 为 null。
+     */
+    public record BatchFullResult(FQNovelResponse<FqIBatchFullResponse> response, SignerTag signer) {
+
+        static BatchFullResult untagged(FQNovelResponse<FqIBatchFullResponse> response) {
+            return new BatchFullResult(response, null);
+        }
+    }
 }
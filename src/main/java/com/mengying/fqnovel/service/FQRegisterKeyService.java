@@ -25,7 +25,7 @@ import java.util.Objects;
 public class FQRegisterKeyService {
 
     private static final Logger log = LoggerFactory.getLogger(FQRegisterKeyService.class);
-    private static final String REGISTER_KEY_PATH = "/reading/crypt/registerkey";
+    static final String REGISTER_KEY_PATH = "/reading/crypt/registerkey";
     private static final String REGISTER_KEY_CONTENT_VERSION = "0";
     private static final long REGISTER_KEY_PAYLOAD_KEYVER = 1L;
 
@@ -182,9 +182,8 @@ public class FQRegisterKeyService {
             throw new IllegalStateException("签名生成失败，无法请求 registerkey");
         }
 
-        String responseBody = upstream.responseBody();
         if (log.isDebugEnabled()) {
-            log.debug("registerkey原始响应: {}", Texts.truncate(Texts.nullToEmpty(responseBody), 800));
+            log.debug("registerkey原始响应: {}", Texts.truncate(Texts.nullToEmpty(upstream.responseBody()), 800));
         }
 
         JsonNode root = upstream.jsonBody();
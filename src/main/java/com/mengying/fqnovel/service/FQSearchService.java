@@ -357,7 +357,6 @@ public class FQSearchService {
             }
 
             ResponseEntity<byte[]> response = upstream.response();
-            String responseBody = upstream.responseBody();
             JsonNode jsonResponse = upstream.jsonBody();
 
             Integer upstreamCode = UpstreamSignedRequestService.nonZeroUpstreamCode(jsonResponse);
@@ -370,7 +369,7 @@ public class FQSearchService {
             int tabType = intOrDefault(searchRequest.getTabType(), 1);
             FQSearchResponse searchResponse = FQSearchResponseParser.parseSearchResponse(jsonResponse, tabType);
             if (searchResponse == null) {
-                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "搜索接口解析失败原始响应", responseBody);
+                UpstreamSignedRequestService.logUpstreamBodyDebug(log, "搜索接口解析失败原始响应", upstream::responseBody);
                 return FQNovelResponse.error("搜索响应解析失败");
             }
 
@@ -396,7 +395,7 @@ public class FQSearchService {
                 && Texts.isBlank(searchResponse.getSearchId())
                 && log.isDebugEnabled()) {
                 log.debug("第一阶段搜索未返回search_id，原始响应: {}",
-                    Texts.truncate(responseBody, SEARCH_ID_DEBUG_SNIPPET_LENGTH));
+                    Texts.truncate(upstream.responseBody(), SEARCH_ID_DEBUG_SNIPPET_LENGTH));
             }
 
             return FQNovelResponse.success(searchResponse);
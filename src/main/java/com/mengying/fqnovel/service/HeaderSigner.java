@@ -0,0 +1,38 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.dto.SignerStatus;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 签名实现抽象：进程内 signer 池（{@link FQEncryptService}）或独立签名工作进程（{@link RemoteSignerPool}）。
+ * <p>
+ * 两种实现都遵循相同的排队语义：队列已满或超过截止时间时以 {@link SignerBusyException} 异常完成，
+ * 签名失败时返回空结果。单条签名结果带有产出它的实例标识，调用方据上游结果通过 {@link #reportOutcome} 回报，
+ * 连续失败的实例会被单独隔离恢复。
+ */
+interface HeaderSigner {
+
+    CompletableFuture<SignedHeaders> submitSignatureHeaders(String url, Map<String, String> headerMap, long timeoutMs);
+
+    CompletableFuture<List<Map<String, String>>> submitSignatureHeadersBatch(List<SignatureRequest> requests, long timeoutMs);
+
+    /**
+     * 回报某个实例产出的签名在上游的结果；实例已被替换（代次不符）时忽略。
+     *
+     * @param reason 失败原因，成功时为 null
+     */
+    void reportOutcome(SignerTag signer, boolean success, String reason);
+
+    SignerStatus getStatus();
+
+    /**
+     * 以 Prometheus 文本格式输出签名指标（含各实例/工作进程的明细）。
+     */
+    void writeMetrics(PrometheusTextWriter out);
+
+    void destroy();
+}
@@ -0,0 +1,130 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的耗时直方图：记录路径只做一次桶查找与若干次 LongAdder 累加，可直接输出为 Prometheus histogram。
+ */
+final class LatencyHistogram {
+
+    // 桶上界（秒），覆盖亚毫秒级的锁等待到数十秒的实例初始化
+    private static final double[] BOUNDS_SECONDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+    private static final String[] BOUND_LABELS = new String[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS_SECONDS[i] * 1_000_000_000L);
+            BOUND_LABELS[i] = BigDecimal.valueOf(BOUNDS_SECONDS[i]).toPlainString();
+        }
+    }
+
+    // 最后一个桶为 +Inf
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong(0L);
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        int index = 0;
+        while (index < BOUNDS_NANOS.length && value > BOUNDS_NANOS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        count.increment();
+        sumNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 各桶（含 +Inf）当前的累计计数，两次快照相减即为区间内的分布。
+     */
+    long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * 按桶上界估算分位数（纳秒）；落在 +Inf 桶时返回最大桶上界，无样本时返回 0。
+     *
+     * @param counts {@link #bucketCounts()} 或其差值
+     */
+    static long quantileNanos(long[] counts, double quantile) {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total <= 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_NANOS[i];
+            }
+        }
+        return BOUNDS_NANOS[BOUNDS_NANOS.length - 1];
+    }
+
+    /**
+     * 以秒为单位输出 _bucket/_sum/_count 三组样本。
+     */
+    void writeTo(PrometheusTextWriter out, String name, String help) {
+        out.family(name, "histogram", help);
+        writeSamples(out, name);
+    }
+
+    /**
+     * 只输出样本，供同一指标族下按标签区分的多个直方图使用（family 由调用方写出）。
+     *
+     * @param labels 附加的标签名与标签值交替排列
+     */
+    void writeSamples(PrometheusTextWriter out, String name, String... labels) {
+        String[] bucketLabels = new String[labels.length + 2];
+        System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+        bucketLabels[labels.length] = "le";
+        long cumulative = 0L;
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            cumulative += buckets[i].sum();
+            bucketLabels[labels.length + 1] = BOUND_LABELS[i];
+            out.sample(name + "_bucket", cumulative, bucketLabels);
+        }
+        cumulative += buckets[BOUNDS_SECONDS.length].sum();
+        bucketLabels[labels.length + 1] = "+Inf";
+        out.sample(name + "_bucket", cumulative, bucketLabels);
+        out.sample(name + "_sum", sumNanos.sum() / 1e9, labels);
+        out.sample(name + "_count", cumulative, labels);
+    }
+}
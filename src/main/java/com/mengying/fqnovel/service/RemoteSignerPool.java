@@ -0,0 +1,828 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.dto.SignerStatus;
+import com.mengying.fqnovel.utils.NamedDaemonThreadFactory;
+import com.mengying.fqnovel.utils.ProcessLifecycle;
+import com.mengying.fqnovel.utils.ProcessMemory;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+import com.mengying.fqnovel.utils.Texts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 独立进程签名池：启动若干 {@link SignerWorkerServer} 工作进程，经 Unix domain socket 转发签名请求。
+ * <p>
+ * 模拟器的原生崩溃、内存失控只会结束单个工作进程，由定时巡检按退避间隔重新拉起；各工作进程的巡检、回滚与重启
+ * 在各自的虚拟线程上执行，单个工作进程启动或回滚缓慢不会拖住其他工作进程的监管；
+ * 请求在就绪的工作进程间按在途数最少分配，连接失败时换一个工作进程重试一次。
+ * 每个工作进程单独维护健康评分，被隔离的工作进程不再分配请求，先通知其回滚快照，短时间内再次隔离时重启进程。
+ * 排队语义与进程内 signer 池一致：在途请求超过 queue-capacity 时立即以 {@link SignerBusyException} 拒绝。
+ * 发往单个工作进程的在途请求不超过其槽位数，排队发生在主进程内、发送之前；剩余截止时间随请求下发，
+ * 工作进程到期仍未开始签名时返回繁忙。截止时间过后仍无任何响应时才关闭连接，并另行 ping 该工作进程，
+ * ping 也失败（进程已卡死，不会自行退出）时才结束进程，由巡检重新拉起。
+ */
+final class RemoteSignerPool implements HeaderSigner {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteSignerPool.class);
+    private static final String LAUNCHER_CLASS = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    private static final long SUPERVISE_INTERVAL_MS = 500L;
+    private static final long MAX_RESTART_BACKOFF_MS = 30_000L;
+    private static final long PING_TIMEOUT_MS = 2_000L;
+    // 工作进程到期会自行返回繁忙，主进程在截止时间之后再多等一段才认定无响应
+    private static final long RESPONSE_GRACE_MS = 1_000L;
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final UnidbgProperties properties;
+    private final Path socketDir;
+    private final List<RemoteWorker> workers;
+    private final SignerMetrics metrics = new SignerMetrics();
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final long startTimeoutMs;
+    // 只负责定时分派巡检，各工作进程的 ping、回滚与重启在 maintenanceThreads 上执行
+    private final ScheduledExecutorService supervisor =
+        Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory("signer-supervisor-"));
+    // 每个维护任务一个虚拟线程，按工作进程串行（RemoteWorker.maintenance），单个工作进程阻塞不影响其他工作进程的监管
+    private final ThreadFactory maintenanceThreads = Thread.ofVirtual().name("signer-maintenance-", 0).factory();
+    // 调用超时时关闭连接；单独的线程，不受维护线程上阻塞的 ping/recover 影响
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, new NamedDaemonThreadFactory("signer-watchdog-"));
+    // 同一个 builder 生成的 factory 才会递增线程名序号；factory 可并发使用
+    private final ThreadFactory callThreads = Thread.ofVirtual().name("signer-remote-", 0).factory();
+    private volatile boolean destroyed = false;
+
+    RemoteSignerPool(UnidbgProperties properties) {
+        this.properties = Objects.requireNonNull(properties, "properties must not be null");
+        this.queueCapacity = Math.max(1, properties.getQueueCapacity());
+        this.permits = new Semaphore(queueCapacity);
+        this.startTimeoutMs = Math.max(1_000L, properties.getWorkerStartTimeoutMs());
+        this.watchdog.setRemoveOnCancelPolicy(true);
+        int workerCount = Math.max(1, properties.getWorkerCount());
+        try {
+            this.socketDir = Files.createTempDirectory("fq-signer-");
+        } catch (IOException e) {
+            supervisor.shutdownNow();
+            watchdog.shutdownNow();
+            throw new IllegalStateException("创建签名工作进程 socket 目录失败", e);
+        }
+
+        List<RemoteWorker> created = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            created.add(new RemoteWorker(i, socketDir.resolve("worker-" + i + ".sock"), watchdog));
+        }
+        this.workers = List.copyOf(created);
+
+        // 与进程内模式一致：首个工作进程就绪即可开始签名，其余由各自的维护线程继续等待
+        long startNs = System.nanoTime();
+        workers.forEach(this::startWorker);
+        supervisor.scheduleWithFixedDelay(this::superviseQuietly, 0L, SUPERVISE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (!awaitFirstReady()) {
+            destroy();
+            throw new IllegalStateException("签名工作进程启动超时: timeoutMs=" + startTimeoutMs);
+        }
+        log.info("独立进程签名池初始化完成: workers={}, firstWorkerMs={}, queueCapacity={}, socketDir={}",
+            workerCount, (System.nanoTime() - startNs) / 1_000_000L, queueCapacity, socketDir);
+    }
+
+    @Override
+    public CompletableFuture<SignedHeaders> submitSignatureHeaders(String url, Map<String, String> headerMap, long timeoutMs) {
+        List<SignatureRequest> requests = List.of(new SignatureRequest(url, headerMap));
+        return submit((enqueuedAtNs, deadlineNs) -> {
+            SignedBatch batch = signRemote(requests, enqueuedAtNs, deadlineNs);
+            Map<String, String> result = batch.results().getFirst();
+            return result.isEmpty() || batch.signer() == null ? SignedHeaders.EMPTY : new SignedHeaders(result, batch.signer());
+        }, SignedHeaders.EMPTY, timeoutMs);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, String>>> submitSignatureHeadersBatch(List<SignatureRequest> requests, long timeoutMs) {
+        if (requests == null || requests.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return submit((enqueuedAtNs, deadlineNs) -> signRemote(requests, enqueuedAtNs, deadlineNs).results(),
+            FQEncryptService.emptyResults(requests), timeoutMs);
+    }
+
+    private <T> CompletableFuture<T> submit(RemoteCall<T> work, T emptyResult, long timeoutMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (destroyed || ProcessLifecycle.isShuttingDown()) {
+            future.complete(emptyResult);
+            return future;
+        }
+        if (!permits.tryAcquire()) {
+            metrics.recordQueueRejected();
+            future.completeExceptionally(new SignerBusyException("签名队列已满: capacity=" + queueCapacity));
+            return future;
+        }
+
+        long enqueuedAtNs = System.nanoTime();
+        long deadlineNs = timeoutMs > 0 ? enqueuedAtNs + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : NO_DEADLINE;
+        callThreads.newThread(() -> {
+            try {
+                if (future.isDone()) {
+                    return;
+                }
+                future.complete(work.call(enqueuedAtNs, deadlineNs));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        }).start();
+
+        if (timeoutMs > 0) {
+            CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+                if (future.completeExceptionally(new SignerBusyException("签名等待超时: timeoutMs=" + timeoutMs))) {
+                    metrics.recordQueueExpired();
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 发送到一个工作进程签名；连接或进程异常时换一个工作进程重试一次，仍失败时返回空结果。
+     * 等待工作进程空闲槽位超过截止时间或工作进程返回繁忙时以 {@link SignerBusyException} 失败。
+     */
+    private SignedBatch signRemote(List<SignatureRequest> requests, long enqueuedAtNs, long deadlineNs) {
+        RemoteWorker previous = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            RemoteWorker worker = pickWorker(previous);
+            if (worker == null) {
+                log.error("没有可用的签名工作进程: size={}", requests.size());
+                break;
+            }
+            SignerEvents.Sign event = new SignerEvents.Sign();
+            event.begin();
+            acquireWorker(worker, deadlineNs);
+            long generation = worker.generation;
+            try {
+                long startNs = System.nanoTime();
+                if (attempt == 0) {
+                    metrics.recordQueueWait(startNs - enqueuedAtNs);
+                }
+                long timeoutMs = remainingMs(deadlineNs);
+                if (timeoutMs < 0L) {
+                    throw new SignerBusyException("签名排队超过截止时间");
+                }
+                SignerWireProtocol.Request request = new SignerWireProtocol.Request(
+                    SignerWireProtocol.OP_SIGN,
+                    FQEncryptServiceWorker.currentResetEpoch(),
+                    FQEncryptServiceWorker.latestFullRebuildEpoch(),
+                    timeoutMs,
+                    requests
+                );
+                List<Map<String, String>> results = worker.call(request, timeoutMs > 0L ? timeoutMs + RESPONSE_GRACE_MS : 0L);
+                event.execution = System.nanoTime() - startNs;
+                if (results.size() == requests.size()) {
+                    recordResults(event, worker, generation, results);
+                    return new SignedBatch(results, new SignerTag(worker.id, generation));
+                }
+                log.error("签名工作进程返回数量不一致: worker={}, expected={}, actual={}",
+                    worker.id, requests.size(), results.size());
+                break;
+            } catch (SocketTimeoutException e) {
+                // 调用方的截止时间已过，不再重试；单次慢响应不足以判定卡死，由维护线程 ping 确认后再结束进程
+                log.error("签名工作进程响应超时: worker={}, generation={}, error={}", worker.id, generation, e.getMessage());
+                checkResponsive(worker, generation);
+                break;
+            } catch (IOException e) {
+                log.warn("签名工作进程调用失败，准备重试: worker={}, attempt={}, error={}", worker.id, attempt + 1, e.getMessage());
+                previous = worker;
+            } finally {
+                worker.release();
+            }
+        }
+        return new SignedBatch(FQEncryptService.emptyResults(requests), null);
+    }
+
+    /**
+     * 占用工作进程的一个槽位，最多等到截止时间；等待期间计入该工作进程的在途数。
+     */
+    private void acquireWorker(RemoteWorker worker, long deadlineNs) {
+        worker.inflight.incrementAndGet();
+        boolean acquired = false;
+        try {
+            long waitMs = remainingMs(deadlineNs);
+            if (waitMs == 0L) {
+                worker.slots.acquire();
+                acquired = true;
+            } else if (waitMs > 0L) {
+                acquired = worker.slots.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!acquired) {
+                worker.inflight.decrementAndGet();
+            }
+        }
+        if (!acquired) {
+            throw new SignerBusyException("等待签名工作进程超过截止时间: worker=" + worker.id);
+        }
+    }
+
+    /**
+     * 距截止时间的剩余毫秒数：不限时返回 0，已过期返回 -1。
+     */
+    private static long remainingMs(long deadlineNs) {
+        if (deadlineNs == NO_DEADLINE) {
+            return 0L;
+        }
+        long remainingNs = deadlineNs - System.nanoTime();
+        return remainingNs > 0L ? Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remainingNs)) : -1L;
+    }
+
+    /**
+     * 工作进程只回传解析后的 Map，主进程无法区分空结果与无法解析，统一计为空结果，并计入该工作进程的失败。
+     */
+    private void recordResults(SignerEvents.Sign event, RemoteWorker worker, long generation, List<Map<String, String>> results) {
+        metrics.recordExecution(event.execution);
+        for (Map<String, String> result : results) {
+            if (result.isEmpty()) {
+                metrics.recordEmptyResult();
+                event.emptyResults++;
+                recordOutcome(worker, generation, false, UpstreamSignedRequestService.REASON_SIGNER_FAIL);
+            } else {
+                metrics.recordOkResult();
+            }
+        }
+        if (event.shouldCommit()) {
+            event.slot = worker.id;
+            event.batchSize = results.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * 按在途数最少选择就绪的工作进程；排除的与隔离中的工作进程只在没有其他选择时使用。
+     */
+    private RemoteWorker pickWorker(RemoteWorker exclude) {
+        RemoteWorker fallback = null;
+        RemoteWorker best = null;
+        for (RemoteWorker worker : workers) {
+            if (!worker.ready) {
+                continue;
+            }
+            if (worker == exclude || worker.health.isQuarantined()) {
+                if (fallback == null || worker.inflight.get() < fallback.inflight.get()) {
+                    fallback = worker;
+                }
+                continue;
+            }
+            if (best == null || worker.inflight.get() < best.inflight.get()) {
+                best = worker;
+            }
+        }
+        return best != null ? best : fallback;
+    }
+
+    @Override
+    public void reportOutcome(SignerTag tag, boolean success, String reason) {
+        if (tag == null || tag.instance() < 0 || tag.instance() >= workers.size()) {
+            return;
+        }
+        recordOutcome(workers.get(tag.instance()), tag.generation(), success, reason);
+    }
+
+    private void recordOutcome(RemoteWorker worker, long generation, boolean success, String reason) {
+        if (worker.generation != generation) {
+            return;
+        }
+        if (success) {
+            worker.health.recordSuccess();
+        } else if (worker.health.recordFailure(properties.getQuarantineScore())) {
+            quarantine(worker, generation, reason);
+        }
+    }
+
+    /**
+     * 隔离单个工作进程：在其维护线程上通知回滚快照；回滚失败或短时间内再次被隔离时结束进程，由巡检重新拉起。
+     */
+    private void quarantine(RemoteWorker worker, long generation, String reason) {
+        boolean restart = worker.health.shouldEscalate();
+        metrics.recordQuarantine();
+        log.warn("签名工作进程已隔离: worker={}, generation={}, reason={}, restart={}", worker.id, generation, reason, restart);
+        if (!maintain(worker, () -> recover(worker, generation, restart))) {
+            worker.health.renew();
+        }
+    }
+
+    /**
+     * 在新的虚拟线程上执行该工作进程的维护任务；同一工作进程的任务持 maintenance 锁串行执行。
+     *
+     * @return 签名池已关闭、任务未提交时返回 false
+     */
+    private boolean maintain(RemoteWorker worker, Runnable task) {
+        if (destroyed) {
+            return false;
+        }
+        maintenanceThreads.newThread(() -> {
+            worker.maintenance.lock();
+            try {
+                if (!destroyed) {
+                    task.run();
+                }
+            } catch (Throwable t) {
+                log.warn("签名工作进程维护异常: worker={}", worker.id, t);
+            } finally {
+                worker.maintenance.unlock();
+            }
+        }).start();
+        return true;
+    }
+
+    private void recover(RemoteWorker worker, long generation, boolean restart) {
+        if (destroyed || worker.generation != generation) {
+            return;
+        }
+        Process process = worker.process;
+        if (!restart && worker.recover(startTimeoutMs)) {
+            worker.generation++;
+            worker.health.renew();
+            log.info("签名工作进程已回滚快照: worker={}", worker.id);
+            return;
+        }
+        if (process != null) {
+            log.warn("结束被隔离的签名工作进程: worker={}, pid={}", worker.id, process.pid());
+            worker.markDown();
+            process.destroyForcibly();
+        } else {
+            worker.health.renew();
+        }
+    }
+
+    /**
+     * 在维护线程上 ping 响应超时的工作进程；ping 也失败时才结束进程，由巡检重新拉起。
+     */
+    private void checkResponsive(RemoteWorker worker, long generation) {
+        maintain(worker, () -> {
+            if (worker.generation != generation || worker.ping()) {
+                return;
+            }
+            log.error("签名工作进程 ping 失败，结束进程: worker={}, generation={}", worker.id, generation);
+            kill(worker, generation);
+        });
+    }
+
+    private void kill(RemoteWorker worker, long generation) {
+        Process process = worker.process;
+        if (process == null || worker.generation != generation) {
+            return;
+        }
+        worker.markDown();
+        process.destroyForcibly();
+    }
+
+    private boolean awaitFirstReady() {
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startTimeoutMs);
+        while (System.nanoTime() - deadlineNs < 0) {
+            for (RemoteWorker worker : workers) {
+                if (worker.ready) {
+                    return true;
+                }
+            }
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void superviseQuietly() {
+        try {
+            supervise();
+        } catch (Throwable t) {
+            log.warn("签名工作进程巡检异常", t);
+        }
+    }
+
+    /**
+     * 为每个工作进程分派一次巡检；上一次巡检尚未执行完（如排在回滚之后）的工作进程跳过本轮。
+     */
+    private void supervise() {
+        if (destroyed) {
+            return;
+        }
+        for (RemoteWorker worker : workers) {
+            if (worker.supervisePending.compareAndSet(false, true)
+                && !maintain(worker, () -> superviseWorker(worker))) {
+                worker.supervisePending.set(false);
+            }
+        }
+    }
+
+    private void superviseWorker(RemoteWorker worker) {
+        try {
+            long now = System.currentTimeMillis();
+            Process process = worker.process;
+            if (process == null || !process.isAlive()) {
+                if (worker.ready || process != null) {
+                    int exitCode = process == null ? -1 : process.exitValue();
+                    log.error("签名工作进程已退出: worker={}, exitCode={}, restarts={}", worker.id, exitCode, worker.restarts);
+                    worker.markDown();
+                    worker.process = null;
+                    worker.restarts++;
+                    worker.nextStartAtMs = now + Math.min(MAX_RESTART_BACKOFF_MS, 1_000L << Math.min(worker.restarts, 15));
+                }
+                if (now >= worker.nextStartAtMs) {
+                    startWorker(worker);
+                }
+                return;
+            }
+            if (worker.ready) {
+                return;
+            }
+            if (worker.ping()) {
+                worker.ready = true;
+                worker.readyAtMs = now;
+                worker.restarts = 0;
+                metrics.recordSwap(0L, TimeUnit.MILLISECONDS.toNanos(now - worker.startedAtMs), false);
+                metrics.recordInit(TimeUnit.MILLISECONDS.toNanos(now - worker.startedAtMs), true);
+                log.info("签名工作进程已就绪: worker={}, pid={}, startMs={}", worker.id, process.pid(), now - worker.startedAtMs);
+            } else if (now - worker.startedAtMs > startTimeoutMs) {
+                log.error("签名工作进程启动超时，强制结束: worker={}, pid={}", worker.id, process.pid());
+                metrics.recordInit(TimeUnit.MILLISECONDS.toNanos(now - worker.startedAtMs), false);
+                process.destroyForcibly();
+            }
+        } finally {
+            worker.supervisePending.set(false);
+        }
+    }
+
+    private void startWorker(RemoteWorker worker) {
+        if (destroyed) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(worker.socket);
+            ProcessBuilder builder = new ProcessBuilder(buildCommand(worker)).inheritIO();
+            if (properties.getWorkerMallocArenaMax() > 0) {
+                builder.environment().put("MALLOC_ARENA_MAX", Integer.toString(properties.getWorkerMallocArenaMax()));
+            }
+            worker.startedAtMs = System.currentTimeMillis();
+            worker.process = builder.start();
+            worker.generation++;
+            worker.health.renew();
+            log.info("签名工作进程已启动: worker={}, pid={}", worker.id, worker.process.pid());
+        } catch (IOException e) {
+            log.error("启动签名工作进程失败: worker={}", worker.id, e);
+            worker.restarts++;
+            worker.nextStartAtMs = System.currentTimeMillis() + MAX_RESTART_BACKOFF_MS;
+        }
+    }
+
+    private List<String> buildCommand(RemoteWorker worker) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("--enable-native-access=ALL-UNNAMED");
+        for (String option : Texts.nullToEmpty(properties.getWorkerJvmOptions()).trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        command.add("-Dlogback.configurationFile=logback-spring.xml");
+        command.add("-DLOG_DIR=logs/signer-worker-" + worker.id);
+
+        // java -jar 启动时 classpath 只有 fat jar，需要借助 PropertiesLauncher 指定入口类
+        String classpath = System.getProperty("java.class.path");
+        command.add("-cp");
+        command.add(classpath);
+        if (classpath.endsWith(".jar") && !classpath.contains(File.pathSeparator)) {
+            command.add("-Dloader.main=" + SignerWorkerServer.class.getName());
+            command.add(LAUNCHER_CLASS);
+        } else {
+            command.add(SignerWorkerServer.class.getName());
+        }
+
+        command.add("--socket=" + worker.socket);
+        // 重启的工作进程从主进程当前的 epoch 起步，首个请求不会再补做启动前已发生的重置
+        command.add("--reset-epoch=" + FQEncryptServiceWorker.currentResetEpoch());
+        command.add("--full-rebuild-epoch=" + FQEncryptServiceWorker.latestFullRebuildEpoch());
+        command.add("--backend=" + Texts.nullToEmpty(properties.getBackend()));
+        command.add("--snapshot-enabled=" + properties.isSnapshotEnabled());
+        command.add("--verbose=" + properties.isVerbose());
+        command.add("--free-native-result=" + properties.isFreeNativeResult());
+        command.add("--profile-enabled=" + properties.isProfileEnabled());
+        command.add("--recycle-max-calls=" + properties.getRecycleMaxCalls());
+        command.add("--recycle-max-mapped-growth-mb=" + properties.getRecycleMaxMappedGrowthMb());
+        command.add("--warmup-signatures=" + properties.getWarmupSignatures());
+        command.add("--virtual-modules=" + properties.isVirtualModules());
+        if (properties.isDeterministic()) {
+            command.add("--deterministic=true");
+            command.add("--deterministic-epoch-ms=" + properties.getDeterministicEpochMs());
+            command.add("--deterministic-seed=" + properties.getDeterministicSeed());
+        }
+        if (Texts.hasText(properties.getApkPath())) {
+            command.add("--apk-path=" + properties.getApkPath());
+        }
+        if (Texts.hasText(properties.getApkClasspath())) {
+            command.add("--apk-classpath=" + properties.getApkClasspath());
+        }
+        return command;
+    }
+
+    @Override
+    public SignerStatus getStatus() {
+        int ready = 0;
+        for (RemoteWorker worker : workers) {
+            if (worker.ready) {
+                ready++;
+            }
+        }
+        return metrics.toStatus(ready, false, queueCapacity - permits.availablePermits(), queueCapacity);
+    }
+
+    /**
+     * 以 Prometheus 文本格式输出池指标与各工作进程的就绪状态、在途请求、重启次数与运行时长。
+     */
+    @Override
+    public void writeMetrics(PrometheusTextWriter out) {
+        int ready = 0;
+        for (RemoteWorker worker : workers) {
+            if (worker.ready) {
+                ready++;
+            }
+        }
+        metrics.writeTo(out, ready, false, queueCapacity - permits.availablePermits(), queueCapacity);
+
+        long now = System.currentTimeMillis();
+        out.family("fq_signer_worker_ready", "gauge", "签名工作进程是否就绪");
+        for (RemoteWorker worker : workers) {
+            out.sample("fq_signer_worker_ready", worker.ready ? 1 : 0, "worker", Integer.toString(worker.id));
+        }
+        out.family("fq_signer_worker_inflight", "gauge", "发往签名工作进程的在途请求数");
+        for (RemoteWorker worker : workers) {
+            out.sample("fq_signer_worker_inflight", worker.inflight.get(), "worker", Integer.toString(worker.id));
+        }
+        out.family("fq_signer_worker_restarts", "gauge", "签名工作进程连续重启次数（就绪后清零）");
+        for (RemoteWorker worker : workers) {
+            out.sample("fq_signer_worker_restarts", worker.restarts, "worker", Integer.toString(worker.id));
+        }
+        out.family("fq_signer_instance_health_score", "gauge", "签名工作进程的健康评分（上游结果的指数加权平均）");
+        for (RemoteWorker worker : workers) {
+            out.sample("fq_signer_instance_health_score", worker.health.score(), "worker", Integer.toString(worker.id));
+        }
+        out.family("fq_signer_instance_quarantined", "gauge", "签名工作进程是否处于隔离中");
+        for (RemoteWorker worker : workers) {
+            out.sample("fq_signer_instance_quarantined", worker.health.isQuarantined() ? 1 : 0, "worker", Integer.toString(worker.id));
+        }
+        out.family("fq_signer_worker_rss_bytes", "gauge", "签名工作进程的常驻内存（VmRSS）");
+        for (RemoteWorker worker : workers) {
+            Process process = worker.process;
+            long rss = process != null && process.isAlive() ? ProcessMemory.rssBytes(process.pid()) : -1L;
+            if (rss >= 0L) {
+                out.sample("fq_signer_worker_rss_bytes", rss, "worker", Integer.toString(worker.id));
+            }
+        }
+        out.family("fq_signer_instance_age_seconds", "gauge", "签名工作进程自就绪以来的时长");
+        for (RemoteWorker worker : workers) {
+            if (worker.ready) {
+                out.sample("fq_signer_instance_age_seconds", (now - worker.readyAtMs) / 1000.0, "worker", Integer.toString(worker.id));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+        supervisor.shutdownNow();
+        watchdog.shutdownNow();
+        for (RemoteWorker worker : workers) {
+            worker.markDown();
+            Process process = worker.process;
+            if (process != null) {
+                process.destroy();
+            }
+        }
+        for (RemoteWorker worker : workers) {
+            Process process = worker.process;
+            if (process == null) {
+                continue;
+            }
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+            try {
+                Files.deleteIfExists(worker.socket);
+            } catch (IOException ignored) {
+                // 目录删除失败不影响退出
+            }
+        }
+        try {
+            Files.deleteIfExists(socketDir);
+        } catch (IOException e) {
+            log.debug("删除签名工作进程 socket 目录失败: {}", socketDir, e);
+        }
+        log.info("独立进程签名池已关闭");
+    }
+
+    /**
+     * 单个工作进程及其空闲连接。一个连接同一时刻只承载一个请求；在途请求数受工作进程槽位数限制。
+     */
+    private static final class RemoteWorker {
+        private final int id;
+        private final Path socket;
+        // 排队或执行中的请求数（含等待槽位的），用于最少负载分配
+        private final AtomicInteger inflight = new AtomicInteger(0);
+        private final Semaphore slots = new Semaphore(SignerWorkerServer.SLOTS);
+        private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+        private final SignerHealth health = new SignerHealth();
+        // 巡检、回滚与重启互斥执行；supervisePending 保证同一时刻最多排队一次巡检
+        private final ReentrantLock maintenance = new ReentrantLock();
+        private final AtomicBoolean supervisePending = new AtomicBoolean(false);
+        private final ScheduledExecutorService watchdog;
+        private volatile Process process;
+        private volatile boolean ready = false;
+        // 以下字段仅在持有 maintenance 锁时写入（restarts/readyAtMs/generation 供其他线程读取）
+        private volatile long generation = 0L;
+        private long startedAtMs = 0L;
+        private long nextStartAtMs = 0L;
+        private volatile long readyAtMs = 0L;
+        private volatile int restarts = 0;
+
+        private RemoteWorker(int id, Path socket, ScheduledExecutorService watchdog) {
+            this.id = id;
+            this.socket = socket;
+            this.watchdog = watchdog;
+        }
+
+        /**
+         * 在已占用的槽位上发送请求，最多等待 timeoutMs（0 表示不限）。
+         */
+        List<Map<String, String>> call(SignerWireProtocol.Request request, long timeoutMs) throws IOException {
+            Connection connection = idle.pollFirst();
+            try {
+                if (connection == null) {
+                    connection = Connection.open(socket);
+                }
+                List<Map<String, String>> results = exchange(connection, request, timeoutMs);
+                recycle(connection);
+                return results;
+            } catch (SignerBusyException e) {
+                // 繁忙响应已完整读出，连接仍可复用
+                recycle(connection);
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                if (connection != null) {
+                    connection.close();
+                }
+                throw e;
+            }
+        }
+
+        private void recycle(Connection connection) {
+            if (ready && connection.channel.isOpen()) {
+                idle.offerFirst(connection);
+            } else {
+                connection.close();
+            }
+        }
+
+        void release() {
+            slots.release();
+            inflight.decrementAndGet();
+        }
+
+        /**
+         * 发送请求并读取响应；超时后由 watchdog 关闭连接，阻塞中的读写随之失败并转为 {@link SocketTimeoutException}。
+         * watchdog 已触发时即使读到了响应也会关闭连接，调用方据 {@code channel.isOpen()} 决定是否复用。
+         */
+        private List<Map<String, String>> exchange(Connection connection, SignerWireProtocol.Request request, long timeoutMs) throws IOException {
+            if (timeoutMs <= 0L) {
+                SignerWireProtocol.writeRequest(connection.out, request);
+                return SignerWireProtocol.readResponse(connection.in);
+            }
+            ScheduledFuture<?> deadline;
+            try {
+                deadline = watchdog.schedule(connection::close, timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                throw new IOException("签名池已关闭", e);
+            }
+            try {
+                SignerWireProtocol.writeRequest(connection.out, request);
+                return SignerWireProtocol.readResponse(connection.in);
+            } catch (IOException e) {
+                if (deadline.isDone()) {
+                    throw new SocketTimeoutException("签名工作进程响应超时: timeoutMs=" + timeoutMs);
+                }
+                throw e;
+            } finally {
+                if (!deadline.cancel(false)) {
+                    connection.close();
+                }
+            }
+        }
+
+        boolean ping() {
+            if (!Files.exists(socket)) {
+                return false;
+            }
+            try (Connection connection = Connection.open(socket)) {
+                exchange(connection, new SignerWireProtocol.Request(SignerWireProtocol.OP_PING, 0L, 0L, 0L, List.of()), PING_TIMEOUT_MS);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 通知工作进程回滚快照，独立连接发送，不占用签名连接；回滚失败时工作进程会完整重建，最多等待 timeoutMs。
+         */
+        boolean recover(long timeoutMs) {
+            try (Connection connection = Connection.open(socket)) {
+                exchange(connection, new SignerWireProtocol.Request(SignerWireProtocol.OP_RECOVER, 0L, 0L, 0L, List.of()), timeoutMs);
+                return true;
+            } catch (IOException e) {
+                log.warn("通知签名工作进程回滚失败: worker={}, error={}", id, e.getMessage());
+                return false;
+            }
+        }
+
+        void markDown() {
+            ready = false;
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 远程签名任务：接收入队时间与截止时间（{@link #NO_DEADLINE} 表示不限）。
+     */
+    @FunctionalInterface
+    private interface RemoteCall<T> {
+        T call(long enqueuedAtNs, long deadlineNs);
+    }
+
+    /**
+     * 一次远程签名的结果及产出它的工作进程；所有工作进程都不可用时 signer 为 null。
+     */
+    private record SignedBatch(List<Map<String, String>> results, SignerTag signer) {
+    }
+
+    private record Connection(SocketChannel channel, InputStream in, OutputStream out) implements AutoCloseable {
+
+        static Connection open(Path socket) throws IOException {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new Connection(channel,
+                new BufferedInputStream(Channels.newInputStream(channel)),
+                new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 连接已失效
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.mengying.fqnovel.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mengying.fqnovel.utils.Texts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 签名结果解析：把 native 返回的 header 块转换为 Map，并去掉不应发送给上游的 X-Neptune。
+ * <p>
+ * native 的实际输出是 key\r\nvalue\r\n... 交替行，{@link #parse(String)} 对其单次扫描完成解析，
+ * 不做正则匹配、JSON 尝试与整体换行替换；只有遇到冒号、JSON 或奇数行等非预期格式时才回退到兼容解析。
+ */
+public final class SignatureHeaderParser {
+
+    private static final Logger log = LoggerFactory.getLogger(SignatureHeaderParser.class);
+    private static final ObjectMapper SHARED_OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern HEADER_COLON_PAIR = Pattern.compile("^[A-Za-z0-9-]{1,64}:\\s*.+$");
+    private static final String HEADER_X_ARGUS = "x-argus";
+    private static final String HEADER_X_GORGON = "x-gorgon";
+    private static final String HEADER_X_NEPTUNE = "X-Neptune";
+    private static final int RAW_LOG_MAX_LENGTH = 200;
+
+    private SignatureHeaderParser() {
+    }
+
+    /**
+     * 单次扫描解析交替行格式（\r\n、\n、\r 均视为换行，键值去除首尾空白）。
+     */
+    public static Map<String, String> parse(String signatureResult) {
+        if (signatureResult == null) {
+            return Map.of();
+        }
+        int begin = 0;
+        int end = signatureResult.length();
+        while (begin < end && signatureResult.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && signatureResult.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (begin == end) {
+            return Map.of();
+        }
+        if (signatureResult.charAt(begin) == '{') {
+            return parseLenient(signatureResult);
+        }
+
+        Map<String, String> result = new HashMap<>(16);
+        boolean hasCommonHeader = false;
+        String key = null;
+        boolean expectValue = false;
+        int lineStart = begin;
+        for (int i = begin; i <= end; i++) {
+            char c = i < end ? signatureResult.charAt(i) : '\n';
+            if (c == ':') {
+                // 冒号形式（key: value）交给兼容解析
+                return parseLenient(signatureResult);
+            }
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            int s = lineStart;
+            int e = i;
+            if (c == '\r' && i + 1 < end && signatureResult.charAt(i + 1) == '\n') {
+                i++;
+            }
+            lineStart = i + 1;
+            while (s < e && signatureResult.charAt(s) <= ' ') {
+                s++;
+            }
+            while (e > s && signatureResult.charAt(e - 1) <= ' ') {
+                e--;
+            }
+
+            if (!expectValue) {
+                key = signatureResult.substring(s, e);
+                expectValue = true;
+                continue;
+            }
+            expectValue = false;
+            if (key.isEmpty() || HEADER_X_NEPTUNE.equalsIgnoreCase(key)) {
+                continue;
+            }
+            if (HEADER_X_ARGUS.equalsIgnoreCase(key) || HEADER_X_GORGON.equalsIgnoreCase(key)) {
+                hasCommonHeader = true;
+            }
+            result.put(key, signatureResult.substring(s, e));
+        }
+        if (expectValue) {
+            // 奇数行：不是交替格式
+            return parseLenient(signatureResult);
+        }
+
+        if (!hasCommonHeader) {
+            log.warn("签名结果解析后未发现常见签名头部，raw={}", truncateForLog(signatureResult.substring(begin, end)));
+        }
+        return result;
+    }
+
+    /**
+     * 兼容解析：依次尝试 JSON、key: value 行、key/value 交替行与 key=value 行。
+     */
+    public static Map<String, String> parseLenient(String signatureResult) {
+        if (signatureResult == null) {
+            return Map.of();
+        }
+
+        String normalized = Texts.trimToEmpty(normalizeLineBreaks(signatureResult));
+        if (normalized.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, String> result = null;
+        // 1) JSON 格式：{"X-Argus":"...","X-Khronos":"..."}
+        if (normalized.startsWith("{") && normalized.endsWith("}")) {
+            try {
+                Map<String, String> jsonMap = SHARED_OBJECT_MAPPER.readValue(normalized, new TypeReference<Map<String, String>>() {});
+                result = jsonMap != null ? new HashMap<>(jsonMap) : new HashMap<>();
+            } catch (Exception ignored) {
+                // 继续按行格式解析
+            }
+        }
+
+        if (result == null) {
+            // 2) 行格式：支持
+            //    - key\nvalue\nkey\nvalue...
+            //    - key: value\nkey2: value2...
+            String[] lines = normalized.split("\n");
+            result = new HashMap<>();
+
+            if (looksLikeColonPairs(lines)) {
+                parseColonPairs(lines, result);
+            } else if (lines.length >= 2 && lines.length % 2 == 0) {
+                parseAlternatingPairs(lines, result);
+            } else {
+                // 兜底：尝试按空白分隔的 key=value
+                parseEqualsPairs(lines, result);
+            }
+
+            // 常见签名头部可能存在大小写差异，这里仅做存在性提示，不做强制
+            if (!hasCommonSignatureHeader(result)) {
+                log.warn("签名结果解析后未发现常见签名头部，raw={}", truncateForLog(normalized));
+            }
+        }
+
+        result.keySet().removeIf(k -> k != null && HEADER_X_NEPTUNE.equalsIgnoreCase(k));
+        return result;
+    }
+
+    static String normalizeLineBreaks(String value) {
+        return value.replace("\r\n", "\n").replace('\r', '\n');
+    }
+
+    private static boolean looksLikeColonPairs(String[] lines) {
+        for (String line : lines) {
+            if (HEADER_COLON_PAIR.matcher(Texts.trimToEmpty(line)).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void parseColonPairs(String[] lines, Map<String, String> result) {
+        for (String line : lines) {
+            String trimmed = Texts.trimToEmpty(line);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int idx = trimmed.indexOf(':');
+            if (idx <= 0) {
+                continue;
+            }
+            putHeader(result, trimmed.substring(0, idx), trimmed.substring(idx + 1));
+        }
+    }
+
+    private static void parseAlternatingPairs(String[] lines, Map<String, String> result) {
+        for (int i = 0; i < lines.length - 1; i += 2) {
+            putHeader(result, lines[i], lines[i + 1]);
+        }
+    }
+
+    private static void parseEqualsPairs(String[] lines, Map<String, String> result) {
+        for (String line : lines) {
+            String trimmed = Texts.trimToEmpty(line);
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int idx = trimmed.indexOf('=');
+            if (idx <= 0) {
+                continue;
+            }
+            putHeader(result, trimmed.substring(0, idx), trimmed.substring(idx + 1));
+        }
+    }
+
+    private static void putHeader(Map<String, String> result, String rawKey, String rawValue) {
+        String key = Texts.trimToEmpty(rawKey);
+        if (key.isEmpty()) {
+            return;
+        }
+        result.put(key, Texts.trimToEmpty(rawValue));
+    }
+
+    private static boolean hasCommonSignatureHeader(Map<String, String> headers) {
+        return headers.keySet().stream()
+            .filter(k -> k != null)
+            .map(k -> k.toLowerCase(Locale.ROOT))
+            .anyMatch(k -> HEADER_X_ARGUS.equals(k) || HEADER_X_GORGON.equals(k));
+    }
+
+    private static String truncateForLog(String value) {
+        if (value.length() <= RAW_LOG_MAX_LENGTH) {
+            return value;
+        }
+        return value.substring(0, RAW_LOG_MAX_LENGTH) + "...";
+    }
+}
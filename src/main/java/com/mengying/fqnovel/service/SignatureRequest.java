@@ -0,0 +1,9 @@
+package com.mengying.fqnovel.service;
+
+import java.util.Map;
+
+/**
+ * 批量签名中的单个请求：URL 与参与签名的请求头。
+ */
+public record SignatureRequest(String url, Map<String, String> headers) {
+}
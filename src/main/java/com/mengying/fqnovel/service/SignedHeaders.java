@@ -0,0 +1,15 @@
+package com.mengying.fqnovel.service;
+
+import java.util.Map;
+
+/**
+ * 签名结果及生成它的 signer 实例；签名失败或未进入 signer 时 signer 为 null。
+ */
+public record SignedHeaders(Map<String, String> headers, SignerTag signer) {
+
+    static final SignedHeaders EMPTY = new SignedHeaders(Map.of(), null);
+
+    public boolean isEmpty() {
+        return headers == null || headers.isEmpty();
+    }
+}
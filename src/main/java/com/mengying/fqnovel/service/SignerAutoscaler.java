@@ -0,0 +1,230 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.utils.ProcessMemory;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+import com.mengying.fqnovel.utils.ThrottledLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * signer 池自动伸缩决策：每个评估周期取签名排队等待的区间 p95 与区间内签名执行的忙碌占比，
+ * p95 超过目标时扩容一个实例，缩容后剩余实例仍足够空闲的状态持续 idle-shrink-ms 后缩容一个实例。
+ * <p>
+ * 扩容前检查实例数上限、堆余量与 RSS 上限；任一实例创建（含重置时的重建）发生 OOM 后暂停扩容一段时间。
+ * 本类只负责决策与统计，实例的创建与回收由 {@link FQEncryptService} 在维护线程上执行。
+ * {@link #evaluate} 只由伸缩线程调用，其余方法可从任意线程调用。
+ */
+final class SignerAutoscaler {
+
+    enum Decision {
+        NONE,
+        GROW,
+        SHRINK
+    }
+
+    /**
+     * 满足扩容条件但未扩容的原因。
+     */
+    enum Blocker {
+        MAX_SIZE("max_size"),
+        OOM_BACKOFF("oom_backoff"),
+        HEAP("heap"),
+        RSS("rss");
+
+        private final String label;
+        private final LongAdder count = new LongAdder();
+
+        Blocker(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SignerAutoscaler.class);
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    private static final double WAIT_QUANTILE = 0.95;
+    // 区间样本过少时 p95 不可靠，不据此扩容
+    private static final long MIN_WINDOW_SAMPLES = 20L;
+    // 缩容后剩余实例的忙碌占比须低于该值
+    private static final double SHRINK_MAX_UTILIZATION = 0.5;
+    private static final long OOM_GROWTH_BACKOFF_NS = TimeUnit.MINUTES.toNanos(10);
+    // 尚未实测单实例 RSS 增量时使用的估算值
+    private static final long DEFAULT_INSTANCE_BYTES = 300L * BYTES_PER_MB;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetWaitNanos;
+    private final long idleShrinkNanos;
+    private final long minHeapHeadroomBytes;
+    private final long maxRssBytes;
+    private final ThrottledLogger blockedLog = new ThrottledLogger(60_000L);
+
+    // 以下字段仅由伸缩线程读写
+    private long[] lastWaitBuckets;
+    private long lastExecutionNanos;
+    private long lastEvaluatedAtNs;
+    private long idleSinceNs = -1L;
+
+    private volatile long lastOomAtNs = 0L;
+    private volatile boolean oomSeen = false;
+    private volatile long instanceBytesEstimate = DEFAULT_INSTANCE_BYTES;
+    private volatile long lastWaitP95Nanos = 0L;
+    private volatile double lastUtilization = 0.0;
+    private final LongAdder grows = new LongAdder();
+    private final LongAdder shrinks = new LongAdder();
+
+    SignerAutoscaler(UnidbgProperties properties, int minSize) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, properties.getAutoscaleMaxSize());
+        this.targetWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, properties.getAutoscaleTargetQueueWaitMs()));
+        this.idleShrinkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, properties.getAutoscaleIdleShrinkMs()));
+        this.minHeapHeadroomBytes = Math.max(0L, properties.getAutoscaleMinHeapHeadroomMb()) * BYTES_PER_MB;
+        this.maxRssBytes = Math.max(0L, properties.getAutoscaleMaxRssMb()) * BYTES_PER_MB;
+    }
+
+    int minSize() {
+        return minSize;
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    long lastWaitP95Nanos() {
+        return lastWaitP95Nanos;
+    }
+
+    double lastUtilization() {
+        return lastUtilization;
+    }
+
+    /**
+     * 根据本评估区间的排队分布与忙碌时长给出伸缩决策。
+     *
+     * @param size           当前实例数
+     * @param waitBuckets    排队等待直方图的累计桶计数
+     * @param executionNanos 签名执行耗时累计值
+     * @param pending        是否有伸缩操作尚未完成（此时只更新统计）
+     */
+    Decision evaluate(long nowNs, int size, long[] waitBuckets, long executionNanos, boolean pending) {
+        if (lastWaitBuckets == null) {
+            lastWaitBuckets = waitBuckets;
+            lastExecutionNanos = executionNanos;
+            lastEvaluatedAtNs = nowNs;
+            return Decision.NONE;
+        }
+        long[] window = new long[waitBuckets.length];
+        long samples = 0L;
+        for (int i = 0; i < waitBuckets.length; i++) {
+            window[i] = waitBuckets[i] - lastWaitBuckets[i];
+            samples += window[i];
+        }
+        long elapsedNanos = Math.max(1L, nowNs - lastEvaluatedAtNs);
+        long busyNanos = Math.max(0L, executionNanos - lastExecutionNanos);
+        lastWaitBuckets = waitBuckets;
+        lastExecutionNanos = executionNanos;
+        lastEvaluatedAtNs = nowNs;
+
+        long p95 = LatencyHistogram.quantileNanos(window, WAIT_QUANTILE);
+        lastWaitP95Nanos = p95;
+        lastUtilization = size > 0 ? busyNanos / ((double) elapsedNanos * size) : 0.0;
+        if (pending || size < minSize) {
+            // 上一次伸缩未完成，或有初始槽位创建失败尚未补齐
+            idleSinceNs = -1L;
+            return Decision.NONE;
+        }
+
+        if (samples >= MIN_WINDOW_SAMPLES && p95 > targetWaitNanos) {
+            idleSinceNs = -1L;
+            Blocker blocker = growthBlocker(size, nowNs);
+            if (blocker == null) {
+                return Decision.GROW;
+            }
+            blocker.count.increment();
+            if (blockedLog.shouldLog(blocker.label)) {
+                log.warn("签名排队 p95 超过目标但未扩容: reason={}, size={}, p95Ms={}, targetMs={}",
+                    blocker.label, size, p95 / 1_000_000L, targetWaitNanos / 1_000_000L);
+            }
+            return Decision.NONE;
+        }
+
+        boolean idle = size > minSize
+            && p95 <= targetWaitNanos / 2
+            && busyNanos < SHRINK_MAX_UTILIZATION * elapsedNanos * (size - 1);
+        if (!idle) {
+            idleSinceNs = -1L;
+            return Decision.NONE;
+        }
+        if (idleSinceNs < 0L) {
+            idleSinceNs = nowNs;
+            return Decision.NONE;
+        }
+        if (nowNs - idleSinceNs < idleShrinkNanos) {
+            return Decision.NONE;
+        }
+        idleSinceNs = nowNs;
+        return Decision.SHRINK;
+    }
+
+    private Blocker growthBlocker(int size, long nowNs) {
+        if (size >= maxSize) {
+            return Blocker.MAX_SIZE;
+        }
+        if (oomSeen && nowNs - lastOomAtNs < OOM_GROWTH_BACKOFF_NS) {
+            return Blocker.OOM_BACKOFF;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heapHeadroom = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (heapHeadroom < minHeapHeadroomBytes) {
+            return Blocker.HEAP;
+        }
+        if (maxRssBytes > 0L) {
+            long rss = ProcessMemory.rssBytes();
+            if (rss >= 0L && rss + instanceBytesEstimate > maxRssBytes) {
+                return Blocker.RSS;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录一次扩容；RSS 可读时用本次实例创建前后的增量更新单实例估算值。
+     */
+    void recordGrowth(long rssBeforeBytes, long rssAfterBytes) {
+        grows.increment();
+        if (rssBeforeBytes >= 0L && rssAfterBytes > rssBeforeBytes) {
+            instanceBytesEstimate = rssAfterBytes - rssBeforeBytes;
+        }
+    }
+
+    void recordShrink() {
+        shrinks.increment();
+    }
+
+    /**
+     * 实例创建发生 OOM（扩容或重置重建）后暂停扩容。
+     */
+    void recordOom() {
+        lastOomAtNs = System.nanoTime();
+        oomSeen = true;
+    }
+
+    void writeTo(PrometheusTextWriter out, int size) {
+        out.gauge("fq_signer_autoscale_size", "自动伸缩当前实例数", size);
+        out.gauge("fq_signer_autoscale_min_size", "自动伸缩实例数下限", minSize);
+        out.gauge("fq_signer_autoscale_max_size", "自动伸缩实例数上限", maxSize);
+        out.gauge("fq_signer_autoscale_queue_wait_p95_seconds", "最近一个评估区间的签名排队等待 p95", lastWaitP95Nanos / 1e9);
+        out.gauge("fq_signer_autoscale_utilization", "最近一个评估区间的实例忙碌占比", lastUtilization);
+        out.gauge("fq_signer_autoscale_instance_bytes_estimate", "扩容时用于 RSS 上限检查的单实例内存估算", instanceBytesEstimate);
+        out.family("fq_signer_autoscale_events_total", "counter", "自动伸缩执行次数");
+        out.sample("fq_signer_autoscale_events_total", grows.sum(), "direction", "up");
+        out.sample("fq_signer_autoscale_events_total", shrinks.sum(), "direction", "down");
+        out.family("fq_signer_autoscale_blocked_total", "counter", "满足扩容条件但被限制的评估次数");
+        for (Blocker blocker : Blocker.values()) {
+            out.sample("fq_signer_autoscale_blocked_total", blocker.count.sum(), "reason", blocker.label);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.mengying.fqnovel.service;
+
+/**
+ * 签名队列已满或等待超时：请求未进入 signer，不代表签名服务本身异常（不应触发 reset）。
+ */
+public class SignerBusyException extends RuntimeException {
+
+    public SignerBusyException(String message) {
+        super(UpstreamSignedRequestService.REASON_SIGNER_BUSY + ": " + message);
+    }
+}
@@ -0,0 +1,98 @@
+package com.mengying.fqnovel.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * signer 相关的 JFR 事件，录制时（如 -XX:StartFlightRecording）可与 GC、线程停顿放在同一时间线上，
+ * 用于区分签名饱和与上游变慢。未开启录制时 {@link Event#shouldCommit()} 为 false，调用方跳过字段赋值。
+ */
+final class SignerEvents {
+
+    private static final String CATEGORY = "FQNovel";
+    private static final String SUB_CATEGORY = "Signer";
+
+    private SignerEvents() {
+    }
+
+    @Name("fqnovel.signer.Sign")
+    @Label("签名")
+    @Description("一次签名任务（单条或一批），持续时间含槽位锁等待")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static final class Sign extends Event {
+        @Label("槽位/工作进程")
+        int slot;
+
+        @Label("批大小")
+        int batchSize;
+
+        @Label("锁等待")
+        @Timespan(Timespan.NANOSECONDS)
+        long lockWait;
+
+        @Label("签名执行")
+        @Timespan(Timespan.NANOSECONDS)
+        long execution;
+
+        @Label("空结果数")
+        int emptyResults;
+
+        @Label("无法解析结果数")
+        int unparseableResults;
+    }
+
+    @Name("fqnovel.signer.ResetRequest")
+    @Label("重置请求")
+    @Description("requestGlobalReset 的一次调用及其处理结果（接受或被冷却等条件抑制）")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static final class ResetRequest extends Event {
+        @Label("原因")
+        String reason;
+
+        @Label("处理结果")
+        String outcome;
+
+        @Label("reset epoch")
+        long epoch;
+    }
+
+    @Name("fqnovel.signer.Reset")
+    @Label("实例重置")
+    @Description("槽位实际执行的重置：快照回滚、热备切换或重建后切换")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static final class Reset extends Event {
+        @Label("槽位")
+        int slot;
+
+        @Label("方式")
+        String mode;
+
+        @Label("原因")
+        String reason;
+    }
+
+    @Name("fqnovel.signer.Init")
+    @Label("实例初始化")
+    @Description("创建一个 signer 实例（模拟器 + JNI_OnLoad）或启动一个签名工作进程")
+    @Category({CATEGORY, SUB_CATEGORY})
+    @StackTrace(false)
+    static final class Init extends Event {
+        @Label("CPU 后端")
+        String backend;
+
+        @Label("成功")
+        boolean success;
+
+        @Label("预热")
+        @Timespan(Timespan.NANOSECONDS)
+        long warmup;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mengying.fqnovel.service;
+
+/**
+ * 单个 signer 实例的健康评分：上游成功/失败回报的指数加权平均（新实例为 1.0）。
+ * <p>
+ * 评分低于阈值时进入隔离：不再分配新请求，由维护线程回滚快照或重建后恢复；
+ * 上次隔离后不久再次被隔离时应升级为完整重建（快照本身可能已不可信）。
+ */
+final class SignerHealth {
+
+    private static final double ALPHA = 0.3;
+    private static final long ESCALATE_WINDOW_MS = 10 * 60_000L;
+
+    private double score = 1.0;
+    private long lastQuarantineAtMs = 0L;
+    private boolean escalate = false;
+    private volatile boolean quarantined = false;
+
+    synchronized void recordSuccess() {
+        score = score * (1 - ALPHA) + ALPHA;
+    }
+
+    /**
+     * @return 本次失败使评分跌破阈值、需要隔离时返回 true（已隔离时不重复返回）
+     */
+    synchronized boolean recordFailure(double quarantineScore) {
+        score = score * (1 - ALPHA);
+        if (quarantined || score >= quarantineScore) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        escalate = lastQuarantineAtMs > 0 && now - lastQuarantineAtMs < ESCALATE_WINDOW_MS;
+        lastQuarantineAtMs = now;
+        quarantined = true;
+        return true;
+    }
+
+    /**
+     * 本次隔离是否应跳过快照回滚直接完整重建
+     */
+    synchronized boolean shouldEscalate() {
+        return escalate;
+    }
+
+    /**
+     * 实例已被替换（重建、快照回滚）：评分从头计算并解除隔离，保留上次隔离时间用于升级判断。
+     */
+    synchronized void renew() {
+        score = 1.0;
+        quarantined = false;
+    }
+
+    boolean isQuarantined() {
+        return quarantined;
+    }
+
+    synchronized double score() {
+        return score;
+    }
+}
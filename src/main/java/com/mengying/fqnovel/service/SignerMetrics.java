@@ -0,0 +1,206 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.dto.SignerStatus;
+import com.mengying.fqnovel.unidbg.JniCallStats;
+import com.mengying.fqnovel.utils.ProcessMemory;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * signer 池指标：快照回滚、实例切换耗时（持锁时间）、槽位无可用 signer 的时长、签名队列排队情况、
+ * 槽位锁等待与签名执行耗时、空/无法解析结果以及实例初始化耗时；
+ * 状态快照中附带 {@link JniCallStats} 的 JNI 回调统计，{@link #writeTo} 输出 Prometheus 文本格式。
+ */
+final class SignerMetrics {
+
+    private static final int TOP_JNI_CALLS = 10;
+
+    private final LongAdder snapshotRestores = new LongAdder();
+    private final LongAdder swaps = new LongAdder();
+    private final LongAdder standbySwaps = new LongAdder();
+    private final AtomicLong lastSwapNanos = new AtomicLong(0L);
+    private final AtomicLong maxSwapNanos = new AtomicLong(0L);
+    private final AtomicLong lastRebuildNanos = new AtomicLong(0L);
+    private final LongAdder unavailableEvents = new LongAdder();
+    private final AtomicLong lastUnavailableNanos = new AtomicLong(0L);
+    private final LongAdder totalUnavailableNanos = new LongAdder();
+    private final LongAdder recycles = new LongAdder();
+    private final LongAdder queueRejected = new LongAdder();
+    private final LongAdder queueExpired = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+    private final LatencyHistogram init = new LatencyHistogram();
+    private final LatencyHistogram warmup = new LatencyHistogram();
+    private final LongAdder warmupFailures = new LongAdder();
+    private final LongAdder initFailures = new LongAdder();
+    private final LongAdder okResults = new LongAdder();
+    private final LongAdder emptyResults = new LongAdder();
+    private final LongAdder unparseableResults = new LongAdder();
+    private final LongAdder quarantines = new LongAdder();
+
+    void recordSnapshotRestore() {
+        snapshotRestores.increment();
+    }
+
+    /**
+     * @param swapNanos    切换时持有槽位锁的时长
+     * @param rebuildNanos 从开始重置到新实例就位的总时长
+     * @param fromStandby  是否直接使用热备实例
+     */
+    void recordSwap(long swapNanos, long rebuildNanos, boolean fromStandby) {
+        swaps.increment();
+        if (fromStandby) {
+            standbySwaps.increment();
+        }
+        lastSwapNanos.set(swapNanos);
+        maxSwapNanos.accumulateAndGet(swapNanos, Math::max);
+        lastRebuildNanos.set(rebuildNanos);
+    }
+
+    void recordUnavailable(long nanos) {
+        unavailableEvents.increment();
+        lastUnavailableNanos.set(nanos);
+        totalUnavailableNanos.add(nanos);
+    }
+
+    void recordRecycle() {
+        recycles.increment();
+    }
+
+    void recordQueueRejected() {
+        queueRejected.increment();
+    }
+
+    void recordQueueExpired() {
+        queueExpired.increment();
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * 等待槽位锁的时长（进程内模式）
+     */
+    void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    /**
+     * 单条签名的执行耗时：进程内模式为 signer 调用时长（批量时按条均摊），独立进程模式为一次往返时长
+     */
+    void recordExecution(long nanos) {
+        execution.record(nanos);
+    }
+
+    /**
+     * 一个 signer 实例（或签名工作进程）从开始创建到可用的时长
+     */
+    void recordInit(long nanos, boolean success) {
+        if (success) {
+            init.record(nanos);
+        } else {
+            initFailures.increment();
+        }
+    }
+
+    /**
+     * 一次实例预热（新建或快照回滚后）的耗时与失败的合成签名数
+     */
+    void recordWarmup(long nanos, int failures) {
+        warmup.record(nanos);
+        warmupFailures.add(failures);
+    }
+
+    long[] queueWaitBuckets() {
+        return queueWait.bucketCounts();
+    }
+
+    long executionSumNanos() {
+        return execution.sumNanos();
+    }
+
+    void recordQuarantine() {
+        quarantines.increment();
+    }
+
+    void recordOkResult() {
+        okResults.increment();
+    }
+
+    void recordEmptyResult() {
+        emptyResults.increment();
+    }
+
+    void recordUnparseableResult() {
+        unparseableResults.increment();
+    }
+
+    SignerStatus toStatus(int poolSize, boolean standbyReady, int queueDepth, int queueCapacity) {
+        long waits = queueWait.count();
+        return new SignerStatus(
+            poolSize,
+            standbyReady,
+            snapshotRestores.sum(),
+            swaps.sum(),
+            standbySwaps.sum(),
+            lastSwapNanos.get() / 1_000L,
+            maxSwapNanos.get() / 1_000L,
+            lastRebuildNanos.get() / 1_000_000L,
+            unavailableEvents.sum(),
+            lastUnavailableNanos.get() / 1_000_000L,
+            totalUnavailableNanos.sum() / 1_000_000L,
+            recycles.sum(),
+            queueDepth,
+            queueCapacity,
+            queueRejected.sum(),
+            queueExpired.sum(),
+            waits > 0 ? queueWait.sumNanos() / waits / 1_000L : 0L,
+            queueWait.maxNanos() / 1_000L,
+            JniCallStats.signatures(),
+            JniCallStats.topPerSignature(TOP_JNI_CALLS)
+        );
+    }
+
+    void writeTo(PrometheusTextWriter out, int poolSize, boolean standbyReady, int queueDepth, int queueCapacity) {
+        out.gauge("fq_signer_pool_size", "可用的 signer 槽位（或就绪工作进程）数", poolSize);
+        out.gauge("fq_signer_standby_ready", "热备实例是否就绪", standbyReady ? 1 : 0);
+        out.gauge("fq_signer_queue_depth", "签名队列中等待的任务数", queueDepth);
+        out.gauge("fq_signer_queue_capacity", "签名队列容量", queueCapacity);
+        long rss = ProcessMemory.rssBytes();
+        if (rss >= 0L) {
+            out.gauge("fq_process_rss_bytes", "当前进程的常驻内存（VmRSS）", rss);
+        }
+        out.counter("fq_signer_queue_rejected_total", "队列已满被拒绝的签名任务数", queueRejected.sum());
+        out.counter("fq_signer_queue_expired_total", "排队或执行超过截止时间的签名任务数", queueExpired.sum());
+        queueWait.writeTo(out, "fq_signer_queue_wait_seconds", "签名任务在队列中的等待时间");
+        lockWait.writeTo(out, "fq_signer_lock_wait_seconds", "签名任务等待槽位锁的时间");
+        execution.writeTo(out, "fq_signer_execution_seconds", "单条签名的执行时间（独立进程模式为往返时间）");
+
+        out.family("fq_signer_results_total", "counter", "按结果分类的签名数");
+        out.sample("fq_signer_results_total", okResults.sum(), "result", "ok");
+        out.sample("fq_signer_results_total", emptyResults.sum(), "result", "empty");
+        out.sample("fq_signer_results_total", unparseableResults.sum(), "result", "unparseable");
+
+        long standby = standbySwaps.sum();
+        out.family("fq_signer_resets_performed_total", "counter", "实际执行的实例重置数（含主动回收）");
+        out.sample("fq_signer_resets_performed_total", snapshotRestores.sum(), "mode", "snapshot");
+        out.sample("fq_signer_resets_performed_total", standby, "mode", "standby");
+        out.sample("fq_signer_resets_performed_total", swaps.sum() - standby, "mode", "rebuild");
+        out.counter("fq_signer_quarantines_total", "因健康评分过低被隔离的实例次数", quarantines.sum());
+        out.counter("fq_signer_recycles_total", "按调用次数/映射内存增长主动回收的次数", recycles.sum());
+        out.gauge("fq_signer_last_swap_seconds", "最近一次实例切换持有槽位锁的时间", lastSwapNanos.get() / 1e9);
+        out.gauge("fq_signer_last_rebuild_seconds", "最近一次重置从开始到新实例就位的时间", lastRebuildNanos.get() / 1e9);
+        out.counter("fq_signer_unavailable_events_total", "槽位无可用 signer 的次数", unavailableEvents.sum());
+        out.counter("fq_signer_unavailable_seconds_total", "槽位无可用 signer 的累计时长", totalUnavailableNanos.sum() / 1e9);
+
+        init.writeTo(out, "fq_signer_init_seconds", "signer 实例（或签名工作进程）初始化时间");
+        out.counter("fq_signer_init_failures_total", "signer 实例初始化失败次数", initFailures.sum());
+        warmup.writeTo(out, "fq_signer_warmup_seconds", "后台新建的 signer 实例接入流量前的预热时间");
+        out.counter("fq_signer_warmup_failures_total", "预热中返回空结果的合成签名数", warmupFailures.sum());
+        out.counter("fq_signer_jni_signatures_total", "本进程内调用过 native 签名函数的次数", JniCallStats.signatures());
+    }
+}
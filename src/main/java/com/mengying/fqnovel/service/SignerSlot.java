@@ -0,0 +1,131 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.unidbg.IdleFQ;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * signer 池中的单个槽位：持有一个独立的 IdleFQ 实例及其专属锁。
+ * <p>
+ * 各槽位之间互不共享锁，签名请求只会在被分配到的槽位上串行。
+ */
+final class SignerSlot {
+
+    private final int id;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 正在该槽位上排队或执行的请求数，用于最少负载分配。
+     */
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    /**
+     * 是否已有后台重建任务在为该槽位准备新实例。
+     */
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * 当前实例的代数：实例被替换或快照回滚后递增，用于识别过期的上游结果回报。
+     */
+    private final AtomicLong generation = new AtomicLong(0L);
+    private final SignerHealth health = new SignerHealth();
+
+    private volatile IdleFQ signer;
+    /**
+     * 槽位已被自动伸缩移出池，不再接受新的签名请求。
+     */
+    private volatile boolean retired = false;
+    /**
+     * 该槽位已对齐的全局 reset epoch（仅在持有 lock 时读写）。
+     */
+    private long localResetEpoch;
+    /**
+     * 上次检查映射内存时实例已服务的调用次数（仅在持有 lock 时读写）。
+     */
+    private long lastMappedCheckAtCalls = 0L;
+
+    /**
+     * @param resetEpoch 开始创建 signer 前读取的全局 reset epoch：实例在此之后新建，已包含此前的所有重置
+     */
+    SignerSlot(int id, IdleFQ signer, long resetEpoch) {
+        this.id = id;
+        this.signer = signer;
+        this.localResetEpoch = resetEpoch;
+    }
+
+    int id() {
+        return id;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    AtomicInteger inflight() {
+        return inflight;
+    }
+
+    AtomicBoolean rebuilding() {
+        return rebuilding;
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    void retire() {
+        this.retired = true;
+    }
+
+    /**
+     * 是否可正常分配请求：未被隔离。
+     */
+    boolean isDispatchable() {
+        return !health.isQuarantined();
+    }
+
+    IdleFQ signer() {
+        return signer;
+    }
+
+    void signer(IdleFQ signer) {
+        this.signer = signer;
+        renew();
+    }
+
+    /**
+     * 实例已被替换或回滚到快照：代数递增，健康评分从头计算。
+     */
+    void renew() {
+        generation.incrementAndGet();
+        health.renew();
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    SignerHealth health() {
+        return health;
+    }
+
+    /**
+     * 距上次检查已超过 interval 次调用（或实例已更换导致计数回落）时返回 true 并记录本次检查点。
+     */
+    boolean shouldCheckMappedBytes(long callsServed, long interval) {
+        if (callsServed >= lastMappedCheckAtCalls && callsServed - lastMappedCheckAtCalls < interval) {
+            return false;
+        }
+        lastMappedCheckAtCalls = callsServed;
+        return true;
+    }
+
+    long localResetEpoch() {
+        return localResetEpoch;
+    }
+
+    void localResetEpoch(long localResetEpoch) {
+        this.localResetEpoch = localResetEpoch;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mengying.fqnovel.service;
+
+/**
+ * 生成某次签名的 signer 实例标识：槽位（或工作进程）编号与实例代数。
+ * <p>
+ * 实例每次重建或快照回滚后代数递增，上游结果回报时代数不一致说明该实例已被替换，回报会被忽略。
+ */
+public record SignerTag(int instance, long generation) {
+}
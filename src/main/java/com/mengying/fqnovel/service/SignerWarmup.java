@@ -0,0 +1,49 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.unidbg.IdleFQ;
+import com.mengying.fqnovel.utils.Texts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 新建 signer 实例（初始化、重建、备用实例、扩容）的预热：在接入真实请求前执行若干次合成签名，
+ * 让 CPU 后端完成签名路径的首次翻译，避免首批真实请求（如启动时的 registerkey）承担冷启动耗时。
+ * 快照回滚复用同一实例与已翻译的代码，不再预热；同步创建实例的路径（启动时的首个槽位、签名时补建）也不预热。
+ * <p>
+ * 合成请求使用保留域名与占位的设备/书籍 id，不对应任何真实设备或上游接口，结果只用于判断签名是否非空。
+ */
+final class SignerWarmup {
+
+    private static final String URL_PREFIX = "https://signer-warmup.invalid/reading/reader/batch_full/v"
+        + "?req_type=1&aid=1967&iid=000000000000000&device_id=0000000000000000"
+        + "&ac=wifi&channel=googleplay&app_name=novelapp&version_code=68132&version_name=6.8.1.32"
+        + "&device_platform=android&os=android&ssmix=a&update_version_code=68132&device_type=Sirius"
+        + "&device_brand=Xiaomi&language=zh&os_api=33&os_version=13&item_ids=";
+    private static final long ITEM_ID_BASE = 1_000_000_000_000_000_000L;
+    private static final long TICKET_BASE = 1_700_000_000_000L;
+
+    private SignerWarmup() {
+    }
+
+    /**
+     * 在实例上执行 count 次合成签名（调用方须保证实例尚未接入流量或已持有槽位锁）。
+     *
+     * @return 成功（结果非空）的次数
+     */
+    static int run(IdleFQ signer, int count) {
+        int succeeded = 0;
+        for (int i = 0; i < count; i++) {
+            String ticket = String.valueOf(TICKET_BASE + i);
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("accept", "application/json; charset=utf-8,application/x-protobuf");
+            headers.put("user-agent", "com.dragon.read.oversea.gp/68132 (Linux; U; Android 13; zh_CN; Sirius; Build/V417IR;tt-ok/3.12.13.4-tiktok)");
+            headers.put("x-ss-req-ticket", ticket);
+            String url = URL_PREFIX + (ITEM_ID_BASE + i) + "&_rticket=" + ticket;
+            if (Texts.hasText(signer.generateSignature(url, headers))) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
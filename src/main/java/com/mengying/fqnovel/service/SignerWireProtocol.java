@@ -0,0 +1,186 @@
+package com.mengying.fqnovel.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 主进程与签名工作进程之间的二进制协议（Unix domain socket，请求/响应一问一答）。
+ * <p>
+ * 帧格式：{@code [int 负载长度][负载]}，字符串编码为 {@code [int 字节数][UTF-8]}。
+ * <ul>
+ *   <li>请求：{@code [byte op][long resetEpoch][long fullRebuildEpoch][long timeoutMs][int n]} + n × {@code [url][int m]} + m × {@code [key][value]}</li>
+ *   <li>响应：{@code [byte status]}；成功时 {@code [int n]} + n × {@code [int m]} + m × {@code [key][value]}，失败或繁忙时 {@code [message]}</li>
+ * </ul>
+ * timeoutMs 为主进程剩余的截止时间（0 表示不限），工作进程在此时间内仍未开始签名时返回 {@link #STATUS_BUSY}。
+ * {@link #OP_RECOVER} 不带签名条目，用于主进程隔离某个工作进程后让其回滚快照恢复。
+ */
+final class SignerWireProtocol {
+
+    static final byte OP_SIGN = 1;
+    static final byte OP_PING = 2;
+    static final byte OP_RECOVER = 3;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+    static final byte STATUS_BUSY = 2;
+
+    // 单帧上限，防止对端异常数据导致超大分配
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private SignerWireProtocol() {
+    }
+
+    record Request(byte op, long resetEpoch, long fullRebuildEpoch, long timeoutMs, List<SignatureRequest> items) {
+    }
+
+    static void writeRequest(OutputStream out, Request request) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(buffer);
+        data.writeByte(request.op());
+        data.writeLong(request.resetEpoch());
+        data.writeLong(request.fullRebuildEpoch());
+        data.writeLong(request.timeoutMs());
+        List<SignatureRequest> items = request.items();
+        data.writeInt(items.size());
+        for (SignatureRequest item : items) {
+            writeString(data, item.url());
+            writeMap(data, item.headers());
+        }
+        writeFrame(out, buffer);
+    }
+
+    static Request readRequest(InputStream in) throws IOException {
+        DataInputStream data = readFrame(in);
+        byte op = data.readByte();
+        long resetEpoch = data.readLong();
+        long fullRebuildEpoch = data.readLong();
+        long timeoutMs = data.readLong();
+        int count = readCount(data);
+        List<SignatureRequest> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String url = readString(data);
+            items.add(new SignatureRequest(url, readMap(data)));
+        }
+        return new Request(op, resetEpoch, fullRebuildEpoch, timeoutMs, items);
+    }
+
+    static void writeOkResponse(OutputStream out, List<Map<String, String>> results) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        DataOutputStream data = new DataOutputStream(buffer);
+        data.writeByte(STATUS_OK);
+        data.writeInt(results.size());
+        for (Map<String, String> result : results) {
+            writeMap(data, result);
+        }
+        writeFrame(out, buffer);
+    }
+
+    static void writeErrorResponse(OutputStream out, String message) throws IOException {
+        writeStatusResponse(out, STATUS_ERROR, message);
+    }
+
+    static void writeBusyResponse(OutputStream out, String message) throws IOException {
+        writeStatusResponse(out, STATUS_BUSY, message);
+    }
+
+    private static void writeStatusResponse(OutputStream out, byte status, String message) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream data = new DataOutputStream(buffer);
+        data.writeByte(status);
+        writeString(data, message);
+        writeFrame(out, buffer);
+    }
+
+    /**
+     * 读取响应；工作进程返回错误时抛出 {@link IOException}，返回繁忙时抛出 {@link SignerBusyException}。
+     */
+    static List<Map<String, String>> readResponse(InputStream in) throws IOException {
+        DataInputStream data = readFrame(in);
+        byte status = data.readByte();
+        if (status == STATUS_BUSY) {
+            throw new SignerBusyException("签名工作进程繁忙");
+        }
+        if (status != STATUS_OK) {
+            throw new IOException("签名工作进程返回错误: " + readString(data));
+        }
+        int count = readCount(data);
+        List<Map<String, String>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(readMap(data));
+        }
+        return results;
+    }
+
+    private static void writeFrame(OutputStream out, ByteArrayOutputStream payload) throws IOException {
+        DataOutputStream frame = new DataOutputStream(out);
+        frame.writeInt(payload.size());
+        payload.writeTo(frame);
+        frame.flush();
+    }
+
+    private static DataInputStream readFrame(InputStream in) throws IOException {
+        DataInputStream frame = new DataInputStream(in);
+        int length = frame.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("非法帧长度: " + length);
+        }
+        byte[] payload = new byte[length];
+        frame.readFully(payload);
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+
+    private static void writeMap(DataOutputStream data, Map<String, String> map) throws IOException {
+        if (map == null) {
+            data.writeInt(0);
+            return;
+        }
+        data.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(data, entry.getKey());
+            writeString(data, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream data) throws IOException {
+        int size = readCount(data);
+        if (size == 0) {
+            return Map.of();
+        }
+        Map<String, String> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(readString(data), readString(data));
+        }
+        return map;
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = readCount(data);
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream data) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > MAX_FRAME_BYTES) {
+            throw new IOException("非法长度字段: " + count);
+        }
+        return count;
+    }
+}
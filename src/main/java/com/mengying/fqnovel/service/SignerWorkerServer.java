@@ -0,0 +1,184 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.utils.ProcessLifecycle;
+import com.mengying.fqnovel.utils.Texts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 独立签名工作进程入口：在本进程内托管一个 signer 实例，通过 Unix domain socket 为主进程提供签名。
+ * <p>
+ * 由 {@link RemoteSignerPool} 启动，不加载 Spring 上下文；父进程退出后本进程随之退出。
+ * 每个连接由一个虚拟线程处理，签名经 {@link FQEncryptService} 的有界队列执行并遵守主进程下发的截止时间，
+ * 超时返回繁忙而不是一直占着连接；PING 不经过签名队列，可用于判断进程是否卡死。
+ */
+public final class SignerWorkerServer {
+
+    private static final Logger log = LoggerFactory.getLogger(SignerWorkerServer.class);
+    private static final AtomicBoolean STOPPED = new AtomicBoolean(false);
+    private static final String QUARANTINE_REASON = "QUARANTINE";
+    /**
+     * 工作进程内的槽位数，主进程按此限制发往单个工作进程的在途请求。
+     */
+    static final int SLOTS = 1;
+    // 同一个 builder 生成的 factory 才会递增线程名序号；factory 可并发使用
+    private static final ThreadFactory CONNECTION_THREADS = Thread.ofVirtual().name("signer-conn-", 0).factory();
+
+    private SignerWorkerServer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseArgs(args);
+        String socket = Texts.trimToNull(options.get("socket"));
+        if (socket == null) {
+            throw new IllegalArgumentException("缺少 --socket 参数");
+        }
+        Path socketPath = Path.of(socket);
+
+        UnidbgProperties properties = new UnidbgProperties();
+        properties.setPoolSize(SLOTS);
+        properties.setStandbyEnabled(false);
+        properties.setVerbose(Boolean.parseBoolean(options.getOrDefault("verbose", "false")));
+        properties.setSnapshotEnabled(Boolean.parseBoolean(options.getOrDefault("snapshot-enabled", "false")));
+        properties.setBackend(options.getOrDefault("backend", properties.getBackend()));
+        properties.setApkPath(Texts.trimToNull(options.get("apk-path")));
+        properties.setApkClasspath(Texts.trimToNull(options.get("apk-classpath")));
+        properties.setProfileEnabled(Boolean.parseBoolean(options.getOrDefault("profile-enabled", "false")));
+        properties.setFreeNativeResult(Boolean.parseBoolean(options.getOrDefault("free-native-result", "false")));
+        properties.setRecycleMaxCalls(Long.parseLong(options.getOrDefault("recycle-max-calls", String.valueOf(properties.getRecycleMaxCalls()))));
+        properties.setWarmupSignatures(Integer.parseInt(options.getOrDefault("warmup-signatures", String.valueOf(properties.getWarmupSignatures()))));
+        properties.setVirtualModules(Boolean.parseBoolean(options.getOrDefault("virtual-modules", "true")));
+        properties.setDeterministic(Boolean.parseBoolean(options.getOrDefault("deterministic", "false")));
+        properties.setDeterministicEpochMs(Long.parseLong(options.getOrDefault("deterministic-epoch-ms", String.valueOf(properties.getDeterministicEpochMs()))));
+        properties.setDeterministicSeed(Long.parseLong(options.getOrDefault("deterministic-seed", String.valueOf(properties.getDeterministicSeed()))));
+        properties.setRecycleMaxMappedGrowthMb(Long.parseLong(options.getOrDefault("recycle-max-mapped-growth-mb", String.valueOf(properties.getRecycleMaxMappedGrowthMb()))));
+
+        // 槽位按创建时的 epoch 起步，须在构建 signer 之前对齐主进程
+        FQEncryptServiceWorker.applyRemoteEpochs(
+            Long.parseLong(options.getOrDefault("reset-epoch", "0")),
+            Long.parseLong(options.getOrDefault("full-rebuild-epoch", "0")));
+        FQEncryptService service = new FQEncryptService(properties);
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> {
+            log.warn("主进程已退出，签名工作进程随之退出: parentPid={}", parent.pid());
+            shutdown(service, socketPath);
+            System.exit(0);
+        }));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> shutdown(service, socketPath), "signer-worker-shutdown"));
+
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            log.info("签名工作进程已就绪: pid={}, socket={}", ProcessHandle.current().pid(), socketPath);
+            while (!ProcessLifecycle.isShuttingDown()) {
+                SocketChannel channel = server.accept();
+                CONNECTION_THREADS.newThread(() -> serve(service, channel)).start();
+            }
+        }
+    }
+
+    private static void serve(FQEncryptService service, SocketChannel channel) {
+        try (channel;
+             InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+            while (true) {
+                SignerWireProtocol.Request request;
+                try {
+                    request = SignerWireProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    SignerWireProtocol.writeOkResponse(out, handle(service, request));
+                } catch (SignerBusyException e) {
+                    log.warn("签名工作进程繁忙: {}", e.getMessage());
+                    SignerWireProtocol.writeBusyResponse(out, Texts.nullToEmpty(e.getMessage()));
+                } catch (RuntimeException e) {
+                    log.error("签名工作进程处理请求失败", e);
+                    SignerWireProtocol.writeErrorResponse(out, Texts.nullToEmpty(e.getMessage()));
+                }
+            }
+        } catch (IOException e) {
+            if (!ProcessLifecycle.isShuttingDown()) {
+                log.warn("签名连接异常关闭: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static List<Map<String, String>> handle(FQEncryptService service, SignerWireProtocol.Request request) {
+        if (request.op() == SignerWireProtocol.OP_PING) {
+            return List.of();
+        }
+        if (request.op() == SignerWireProtocol.OP_RECOVER) {
+            // 主进程已隔离本进程，非升级原因优先走快照回滚
+            service.reset(QUARANTINE_REASON);
+            return List.of();
+        }
+        if (request.op() != SignerWireProtocol.OP_SIGN) {
+            throw new IllegalArgumentException("未知操作码: " + request.op());
+        }
+        // 主进程的 reset epoch 随请求下发，本进程据此判断是否需要回滚快照或完整重建
+        FQEncryptServiceWorker.applyRemoteEpochs(request.resetEpoch(), request.fullRebuildEpoch());
+        try {
+            return service.submitSignatureHeadersBatch(request.items(), request.timeoutMs()).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void shutdown(FQEncryptService service, Path socketPath) {
+        if (!STOPPED.compareAndSet(false, true)) {
+            return;
+        }
+        ProcessLifecycle.markShuttingDown("signer worker exit");
+        try {
+            service.destroy();
+        } catch (Exception e) {
+            log.warn("销毁签名服务时发生异常", e);
+        }
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException ignored) {
+            // 临时目录由主进程统一清理
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg == null || !arg.startsWith("--")) {
+                continue;
+            }
+            int idx = arg.indexOf('=');
+            if (idx > 2) {
+                options.put(arg.substring(2, idx), arg.substring(idx + 1));
+            } else {
+                options.put(arg.substring(2), "true");
+            }
+        }
+        return options;
+    }
+}
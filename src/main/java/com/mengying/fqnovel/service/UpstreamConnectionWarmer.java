@@ -0,0 +1,145 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.config.FQDownloadProperties;
+import com.mengying.fqnovel.utils.FQApiUtils;
+import com.mengying.fqnovel.utils.NamedDaemonThreadFactory;
+import com.mengying.fqnovel.utils.Texts;
+import com.mengying.fqnovel.utils.ThrottledLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游连接预热：启动时对每个上游域名并发发出若干个未签名的 HEAD 请求，使 DNS 解析、TCP 与 TLS 握手
+ * 在 signer 初始化期间完成，连接留在 HttpClient 的连接池中供首批业务请求复用；
+ * 之后每个保活周期再发一轮同样的请求，避免连接因空闲超时被关闭；本周期内业务请求的并发峰值已达到 connections 的域名
+ * （池内连接都被同时使用过）跳过本轮。
+ * <p>
+ * 预热请求不带签名与设备参数，不调用任何业务接口；响应状态码不影响连接复用，失败只记日志。
+ */
+@Service("upstreamConnectionWarmer")
+public class UpstreamConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamConnectionWarmer.class);
+
+    private final HttpClient httpClient;
+    private final UpstreamHttpMetrics upstreamHttpMetrics;
+    private final FQApiUtils fqApiUtils;
+    private final int connections;
+    private final long intervalMs;
+    private final Duration timeout;
+    private final ThrottledLogger failureLog = new ThrottledLogger(300_000L);
+    private final ScheduledExecutorService keepAliveExecutor =
+        Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory("upstream-keepalive-"));
+
+    public UpstreamConnectionWarmer(
+        HttpClient upstreamHttpClient,
+        UpstreamHttpMetrics upstreamHttpMetrics,
+        FQApiUtils fqApiUtils,
+        FQDownloadProperties downloadProperties
+    ) {
+        this.httpClient = upstreamHttpClient;
+        this.upstreamHttpMetrics = upstreamHttpMetrics;
+        this.fqApiUtils = fqApiUtils;
+        this.connections = Math.max(0, downloadProperties.getUpstream().getWarmConnections());
+        this.intervalMs = Math.max(0L, downloadProperties.getUpstream().getWarmIntervalMs());
+        long connectTimeoutMs = downloadProperties.getUpstream().getConnectTimeoutMs();
+        this.timeout = Duration.ofMillis(connectTimeoutMs > 0 ? connectTimeoutMs : 8000L);
+    }
+
+    @PostConstruct
+    public void start() {
+        List<URI> origins = origins();
+        if (connections <= 0 || origins.isEmpty()) {
+            return;
+        }
+        long startNs = System.nanoTime();
+        warm(origins).whenComplete((succeeded, error) -> log.info("上游连接预热完成: origins={}, connections={}, succeeded={}, costMs={}",
+            origins, connections, succeeded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs)));
+        if (intervalMs > 0L) {
+            keepAliveExecutor.scheduleWithFixedDelay(() -> keepAlive(origins), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 少量业务请求只会反复复用同一两条连接，其余连接仍会空闲超时，因此只要并发峰值不足 connections 就整轮保活；
+     * 并发的 HEAD 请求各占一条连接，才能覆盖池内每一条连接。
+     */
+    private void keepAlive(List<URI> origins) {
+        List<URI> idle = new ArrayList<>(origins.size());
+        for (URI origin : origins) {
+            if (upstreamHttpMetrics.takePeakInflight(origin) < connections) {
+                idle.add(origin);
+            }
+        }
+        if (!idle.isEmpty()) {
+            warm(idle).join();
+        }
+    }
+
+    /**
+     * 对每个域名并发发出 connections 个请求；HTTP/1.1 下每个并发请求占用一条连接。
+     *
+     * @return 成功收到响应的请求数
+     */
+    private CompletableFuture<Integer> warm(List<URI> origins) {
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>(origins.size() * connections);
+        for (URI origin : origins) {
+            HttpRequest request = HttpRequest.newBuilder(origin)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(timeout)
+                .build();
+            for (int i = 0; i < connections; i++) {
+                upstreamHttpMetrics.recordWarmupRequest();
+                requests.add(httpClient.sendAsync(request, upstreamHttpMetrics.counted(HttpResponse.BodyHandlers.discarding()))
+                    .handle((response, error) -> {
+                        if (error != null && failureLog.shouldLog(origin.getHost())) {
+                            log.warn("上游连接预热失败: origin={}, error={}", origin, error.toString());
+                        }
+                        return error == null;
+                    }));
+            }
+        }
+        return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> (int) requests.stream().filter(CompletableFuture::join).count());
+    }
+
+    private List<URI> origins() {
+        Set<URI> origins = new LinkedHashSet<>();
+        for (String baseUrl : List.of(Texts.nullToEmpty(fqApiUtils.getBaseUrl()), fqApiUtils.getSearchApiBaseUrl())) {
+            if (!Texts.hasText(baseUrl)) {
+                continue;
+            }
+            try {
+                URI uri = URI.create(baseUrl.trim());
+                if (uri.getScheme() != null && uri.getHost() != null) {
+                    origins.add(new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), "/", null, null));
+                }
+            } catch (Exception e) {
+                log.warn("上游地址无法解析，跳过连接预热: {}", baseUrl);
+            }
+        }
+        return new ArrayList<>(origins);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        keepAliveExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,183 @@
+package com.mengying.fqnovel.service;
+
+import com.mengying.fqnovel.config.FQConstants;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 上游 HttpClient 的连接与延迟指标：新建 TLS 连接数与握手耗时、按协议统计的响应数，
+ * 以及按上游接口区分的首字节时间（从发出请求到收到响应头，含排队建连与 TLS 握手）。
+ * <p>
+ * JDK HttpClient 不暴露连接池事件，新建连接经 {@link #instrument} 包装的 SSLContext 统计；
+ * 复用率按 1 - 新建连接数 / 响应数 估算（两者都含连接预热与保活请求），HTTP/2 下一条连接承载多个并发流。
+ * 同理无法得知每条连接最近是否被使用，按域名记录业务请求的并发峰值供连接保活判断。
+ */
+@Component
+public class UpstreamHttpMetrics {
+
+    /**
+     * 首字节时间按接口分组，其余路径归入 other。
+     */
+    enum Endpoint {
+        REGISTER_KEY("registerkey", FQRegisterKeyService.REGISTER_KEY_PATH),
+        BATCH_FULL("batch_full", FQConstants.Chapter.BATCH_FULL_PATH),
+        DIRECTORY("directory", FQConstants.Search.DIRECTORY_ALL_ITEMS_PATH),
+        SEARCH("search", FQConstants.Search.TAB_PATH),
+        OTHER("other", null);
+
+        private final String label;
+        private final String path;
+        private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+
+        Endpoint(String label, String path) {
+            this.label = label;
+            this.path = path;
+        }
+
+        static Endpoint of(URI uri) {
+            String requestPath = uri.getPath();
+            if (requestPath != null) {
+                for (Endpoint endpoint : values()) {
+                    if (endpoint.path != null && requestPath.startsWith(endpoint.path)) {
+                        return endpoint;
+                    }
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LatencyHistogram tlsHandshake = new LatencyHistogram();
+    private final LongAdder http2Responses = new LongAdder();
+    private final LongAdder http11Responses = new LongAdder();
+    private final LongAdder warmupRequests = new LongAdder();
+    private final Map<String, OriginActivity> originActivity = new ConcurrentHashMap<>();
+
+    /**
+     * 包装 HttpClient 使用的 SSLContext，统计新建连接与 TLS 握手耗时。
+     */
+    public SSLContext instrument(SSLContext delegate) {
+        return new InstrumentedSslContext(delegate, this);
+    }
+
+    void recordConnectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    void recordTlsHandshake(long nanos) {
+        tlsHandshake.record(nanos);
+    }
+
+    void recordWarmupRequest() {
+        warmupRequests.increment();
+    }
+
+    /**
+     * 记录一次业务请求在上游域名上的在途区间（发出请求到读完响应体或失败）。
+     */
+    <T> CompletableFuture<T> inflight(URI uri, Supplier<CompletableFuture<T>> exchange) {
+        OriginActivity activity = originActivity.computeIfAbsent(originKey(uri), ignored -> new OriginActivity());
+        activity.begin();
+        CompletableFuture<T> future;
+        try {
+            future = exchange.get();
+        } catch (RuntimeException e) {
+            activity.end();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> activity.end());
+    }
+
+    /**
+     * 取出上次调用以来发往该域名的业务请求并发峰值，并以当前在途数作为下一周期的起点。
+     * HTTP/1.1 下同时在途的请求各占一条连接，峰值即本周期内至少被使用过的连接数。
+     */
+    int takePeakInflight(URI origin) {
+        OriginActivity activity = originActivity.get(originKey(origin));
+        return activity == null ? 0 : activity.takePeak();
+    }
+
+    private static String originKey(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "http".equalsIgnoreCase(uri.getScheme()) ? 80 : 443;
+        }
+        return uri.getHost() + ":" + port;
+    }
+
+    /**
+     * 在收到响应头时记录首字节时间与协商出的协议，再交给 delegate 读取响应体。
+     *
+     * @param startNs 交给 HttpClient 发送时的 {@link System#nanoTime()}
+     */
+    <T> HttpResponse.BodyHandler<T> timed(URI uri, long startNs, HttpResponse.BodyHandler<T> delegate) {
+        Endpoint endpoint = Endpoint.of(uri);
+        return responseInfo -> {
+            endpoint.timeToFirstByte.record(System.nanoTime() - startNs);
+            recordResponse(responseInfo);
+            return delegate.apply(responseInfo);
+        };
+    }
+
+    /**
+     * 连接预热与保活请求：只计入响应数（与其建立的连接相抵），不计入业务接口的首字节时间。
+     */
+    <T> HttpResponse.BodyHandler<T> counted(HttpResponse.BodyHandler<T> delegate) {
+        return responseInfo -> {
+            recordResponse(responseInfo);
+            return delegate.apply(responseInfo);
+        };
+    }
+
+    private void recordResponse(HttpResponse.ResponseInfo responseInfo) {
+        (responseInfo.version() == HttpClient.Version.HTTP_2 ? http2Responses : http11Responses).increment();
+    }
+
+    public String getMetricsText() {
+        PrometheusTextWriter out = new PrometheusTextWriter();
+        out.counter("fq_upstream_connections_opened_total", "上游新建的 TLS 连接数（复用率 = 1 - 本值 / 响应数）",
+            connectionsOpened.sum());
+        tlsHandshake.writeTo(out, "fq_upstream_tls_handshake_seconds", "上游 TLS 握手耗时");
+        out.family("fq_upstream_responses_total", "counter", "收到响应头的上游请求数（按协商出的协议，含连接预热与保活）");
+        out.sample("fq_upstream_responses_total", http2Responses.sum(), "protocol", "h2");
+        out.sample("fq_upstream_responses_total", http11Responses.sum(), "protocol", "http/1.1");
+        out.counter("fq_upstream_warmup_requests_total", "连接预热与保活发出的未签名请求数", warmupRequests.sum());
+        // 同一指标族的各接口样本须连续写出，不能逐个调用 LatencyHistogram.writeTo
+        String name = "fq_upstream_time_to_first_byte_seconds";
+        out.family(name, "histogram", "上游首字节时间（发出请求到收到响应头，含建连与 TLS 握手）");
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpoint.timeToFirstByte.writeSamples(out, name, "endpoint", endpoint.label);
+        }
+        return out.toString();
+    }
+
+    private static final class OriginActivity {
+        private final AtomicInteger inflight = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+
+        void begin() {
+            int current = inflight.incrementAndGet();
+            peak.accumulateAndGet(current, Math::max);
+        }
+
+        void end() {
+            inflight.decrementAndGet();
+        }
+
+        int takePeak() {
+            return peak.getAndSet(inflight.get());
+        }
+    }
+}
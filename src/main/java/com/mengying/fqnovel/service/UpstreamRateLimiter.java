@@ -3,13 +3,13 @@ package com.mengying.fqnovel.service;
 import com.mengying.fqnovel.config.FQDownloadProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.LockSupport;
 
 /**
  * 章节请求限流（按最小间隔）：
- * 通过 CAS 保证在多线程下请求间隔不被打穿。
+ * 通过 CAS 保证在多线程下请求间隔不被打穿；等待以定时完成的 future 表示，不阻塞线程。
  */
 @Component
 public class UpstreamRateLimiter {
@@ -21,10 +21,25 @@ public class UpstreamRateLimiter {
         this.downloadProperties = downloadProperties;
     }
 
-    public void acquire() {
+    /**
+     * 预约下一个发送时间点，返回的 future 在该时间点完成，等待期间不占用线程。
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        long wait = reserve();
+        if (wait <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 占用一个发送时间点，返回距该时间点的等待时长（纳秒），无需等待时返回 0。
+     */
+    private long reserve() {
         long intervalMs = downloadProperties.getRequestIntervalMs();
         if (intervalMs <= 0) {
-            return;
+            return 0L;
         }
 
         long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
@@ -34,11 +49,7 @@ public class UpstreamRateLimiter {
             long start = Math.max(now, prev);
             long next = start + intervalNanos;
             if (nextAllowedAtNanos.compareAndSet(prev, next)) {
-                long wait = start - now;
-                if (wait > 0) {
-                    LockSupport.parkNanos(wait);
-                }
-                return;
+                return start - now;
             }
         }
     }
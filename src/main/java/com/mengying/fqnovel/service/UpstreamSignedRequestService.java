@@ -1,34 +1,68 @@
 package com.mengying.fqnovel.service;
 
+import com.mengying.fqnovel.config.FQDownloadProperties;
+import com.mengying.fqnovel.config.UpstreamHttpClientConfig;
 import com.mengying.fqnovel.utils.GzipUtils;
 import com.mengying.fqnovel.utils.Texts;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
-import org.springframework.http.HttpEntity;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
- * 统一处理上游请求流程（GET/POST）：签名、请求、解压、JSON 解析。
+ * 统一处理上游请求流程（GET/POST）：签名、限流、请求、解压、JSON 解析。
+ * <p>
+ * 各步骤以 {@link CompletableFuture} 阶段串联：签名在 signer 队列上完成，限流等待由定时 future 完成，
+ * 请求经 {@link HttpClient#sendAsync} 发送，整个过程不占用调用线程；同步方法只是在异步链路末端等待结果。
+ * HttpClient 执行器只负责 I/O：错误响应体的解压解码在同步调用线程或业务执行器上进行，不拖慢其他在途请求。
+ * <p>
+ * 结果带有产出签名的实例标识，调用方判定上游结果后经 {@link #reportUpstreamSuccess}/{@link #reportUpstreamFailure}
+ * 回报给该实例。
  */
 @Service
 public class UpstreamSignedRequestService {
 
+    private static final Logger log = LoggerFactory.getLogger(UpstreamSignedRequestService.class);
+
     public static final String REASON_ILLEGAL_ACCESS = "ILLEGAL_ACCESS";
     public static final String REASON_UPSTREAM_EMPTY = "UPSTREAM_EMPTY";
     public static final String REASON_CHAPTER_EMPTY_OR_SHORT = "CHAPTER_EMPTY_OR_SHORT";
     public static final String REASON_UPSTREAM_GZIP = "UPSTREAM_GZIP";
     public static final String REASON_UPSTREAM_NON_JSON = "UPSTREAM_NON_JSON";
     public static final String REASON_SIGNER_FAIL = "SIGNER_FAIL";
+    public static final String REASON_SIGNER_BUSY = "SIGNER_BUSY";
 
     private static final String EX_EMPTY_UPSTREAM_RESPONSE = "Empty upstream response";
     private static final String EX_CHAPTER_EMPTY_OR_SHORT = "章节内容为空/过短";
@@ -37,21 +71,34 @@ public class UpstreamSignedRequestService {
     private static final String EX_JACKSON_EMPTY_CONTENT = "No content to map due to end-of-input";
     private static final String EX_SIGNER_FAIL = "签名生成失败";
 
+    // JDK HttpClient 不允许调用方设置的请求头
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static final int ERROR_BODY_MAX_CHARS = 200;
+
     private final FQEncryptServiceWorker fqEncryptServiceWorker;
     private final UpstreamRateLimiter upstreamRateLimiter;
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final UpstreamHttpMetrics upstreamHttpMetrics;
     private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
+    private final Executor taskExecutor;
 
     public UpstreamSignedRequestService(
         FQEncryptServiceWorker fqEncryptServiceWorker,
         UpstreamRateLimiter upstreamRateLimiter,
-        RestTemplate restTemplate,
-        ObjectMapper objectMapper
+        HttpClient upstreamHttpClient,
+        UpstreamHttpMetrics upstreamHttpMetrics,
+        ObjectMapper objectMapper,
+        FQDownloadProperties downloadProperties,
+        @Qualifier("applicationTaskExecutor") Executor taskExecutor
     ) {
         this.fqEncryptServiceWorker = fqEncryptServiceWorker;
         this.upstreamRateLimiter = upstreamRateLimiter;
-        this.restTemplate = restTemplate;
+        this.httpClient = upstreamHttpClient;
+        this.upstreamHttpMetrics = upstreamHttpMetrics;
         this.objectMapper = objectMapper;
+        this.readTimeout = UpstreamHttpClientConfig.readTimeout(downloadProperties);
+        this.taskExecutor = taskExecutor;
     }
 
     public UpstreamJsonResult executeSignedJsonGet(String fullUrl, Map<String, String> headers) throws Exception {
@@ -68,7 +115,19 @@ public class UpstreamSignedRequestService {
         String failureScene,
         Logger callerLog
     ) throws Exception {
-        UpstreamJsonResult upstream = executeSignedJsonGet(fullUrl, headers);
+        return toJsonResult(executeSignedRawGetOrLogFailure(fullUrl, headers, failureScene, callerLog));
+    }
+
+    /**
+     * 执行签名 GET 并在签名失败时记录日志，响应体留给调用方按需流式解析。
+     */
+    public UpstreamRawResult executeSignedRawGetOrLogFailure(
+        String fullUrl,
+        Map<String, String> headers,
+        String failureScene,
+        Logger callerLog
+    ) throws Exception {
+        UpstreamRawResult upstream = executeSignedRawGet(fullUrl, headers);
         if (upstream == null) {
             callerLog.error("签名生成失败，终止{} - url: {}", failureScene, fullUrl);
         }
@@ -94,11 +153,11 @@ public class UpstreamSignedRequestService {
     }
 
     /**
-     * DEBUG 级别记录上游原始响应体（截断至 800 字符）。
+     * DEBUG 级别记录上游原始响应体（截断至 800 字符）；响应体只在 DEBUG 开启时解码。
      */
-    public static void logUpstreamBodyDebug(Logger callerLog, String prefix, String responseBody) {
+    public static void logUpstreamBodyDebug(Logger callerLog, String prefix, Supplier<String> responseBody) {
         if (callerLog.isDebugEnabled()) {
-            callerLog.debug("{}: {}", prefix, Texts.truncate(Texts.nullToEmpty(responseBody), 800));
+            callerLog.debug("{}: {}", prefix, Texts.truncate(Texts.nullToEmpty(responseBody.get()), 800));
         }
     }
 
@@ -110,44 +169,229 @@ public class UpstreamSignedRequestService {
         if (raw == null) {
             return null;
         }
-        JsonNode jsonBody = objectMapper.readTree(raw.responseBody);
-        return new UpstreamJsonResult(raw.response, raw.responseBody, jsonBody);
+        JsonNode jsonBody;
+        try (InputStream body = raw.openBody()) {
+            jsonBody = objectMapper.readTree(body);
+        }
+        return new UpstreamJsonResult(raw.response, jsonBody, raw.signer);
     }
 
-    public UpstreamRawResult executeSignedRawGet(String fullUrl, Map<String, String> headers) throws Exception {
-        return executeSignedRaw(fullUrl, headers, HttpMethod.GET, null, false);
+    /**
+     * 从响应流中直接读取 {code, message, data} 外层结构，data 绑定为 dataType，其余字段跳过，不构建 JSON 树。
+     * 响应体为空或顶层不是对象时返回 code=0、data 为 null 的结果。
+     */
+    public <T> UpstreamEnvelope<T> readEnvelope(UpstreamRawResult raw, Class<T> dataType) throws IOException {
+        int code = 0;
+        String message = null;
+        T data = null;
+        try (InputStream body = raw.openBody(); JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new UpstreamEnvelope<>(0, null, null);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "code" -> code = parser.getValueAsInt(0);
+                    case "message" -> message = value.isScalarValue() ? parser.getValueAsString() : null;
+                    case "data" -> data = value == JsonToken.VALUE_NULL ? null : objectMapper.readValue(parser, dataType);
+                    default -> {
+                    }
+                }
+                if (value.isStructStart() && !"data".equals(field)) {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new UpstreamEnvelope<>(code, message, data);
     }
 
-    public UpstreamRawResult executeSignedRawGetRateLimited(String fullUrl, Map<String, String> headers) throws Exception {
-        return executeSignedRaw(fullUrl, headers, HttpMethod.GET, null, true);
+    public UpstreamRawResult executeSignedRawGet(String fullUrl, Map<String, String> headers) throws Exception {
+        return toRawResult(await(sendSignedAsync(fullUrl, headers, HttpMethod.GET, null, false)));
     }
 
     public UpstreamRawResult executeSignedRawPost(String fullUrl, Map<String, String> headers, Object body) throws Exception {
-        return executeSignedRaw(fullUrl, headers, HttpMethod.POST, body, false);
+        return toRawResult(await(sendSignedAsync(fullUrl, headers, HttpMethod.POST, body, false)));
+    }
+
+    /**
+     * 限流的签名 GET（章节请求），全程不阻塞调用线程；响应在业务执行器上转换，调用方的后续解析宜同样放在业务执行器上。
+     *
+     * @return 上游结果；签名失败时以 null 完成，签名排队繁忙时以 {@link SignerBusyException} 异常完成
+     */
+    public CompletableFuture<UpstreamRawResult> executeSignedRawGetRateLimitedAsync(String fullUrl, Map<String, String> headers) {
+        return sendSignedAsync(fullUrl, headers, HttpMethod.GET, null, true)
+            .thenApplyAsync(UpstreamSignedRequestService::toRawResult, taskExecutor);
     }
 
-    private UpstreamRawResult executeSignedRaw(
+    /**
+     * 签名并发送请求；只做 I/O 与异常转换，响应体保持原样，签名失败时以 null 完成。
+     */
+    private CompletableFuture<SignedResponse> sendSignedAsync(
         String fullUrl,
         Map<String, String> headers,
         HttpMethod method,
         Object body,
         boolean rateLimit
-    ) throws Exception {
+    ) {
         Map<String, String> requestHeaders = Objects.requireNonNullElse(headers, Map.of());
-        Map<String, String> signedHeaders = fqEncryptServiceWorker.generateSignatureHeadersSync(fullUrl, requestHeaders);
-        if (signedHeaders == null || signedHeaders.isEmpty()) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = bodyPublisher(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return sign(fullUrl, requestHeaders).thenCompose(signed -> {
+            if (signed.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            HttpRequest request = buildRequest(fullUrl, method, publisher, body, mergeHttpHeaders(requestHeaders, signed.headers()));
+            CompletableFuture<Void> permit = rateLimit
+                ? upstreamRateLimiter.acquireAsync()
+                : CompletableFuture.completedFuture(null);
+            return permit
+                .thenCompose(ignored -> upstreamHttpMetrics.inflight(request.uri(), () -> httpClient.sendAsync(request,
+                    upstreamHttpMetrics.timed(request.uri(), System.nanoTime(), HttpResponse.BodyHandlers.ofByteArray()))))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        throw translateSendFailure(fullUrl, method, unwrap(error));
+                    }
+                    return new SignedResponse(response, signed.signer());
+                });
+        });
+    }
+
+    /**
+     * 签名阶段：排队繁忙原样传递，其余失败记录日志后视为签名失败（空结果）。
+     */
+    private CompletableFuture<SignedHeaders> sign(String fullUrl, Map<String, String> requestHeaders) {
+        return fqEncryptServiceWorker.generateSignatureHeadersAsync(fullUrl, requestHeaders).handle((signed, error) -> {
+            if (error == null) {
+                return signed != null ? signed : SignedHeaders.EMPTY;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof SignerBusyException busy) {
+                throw busy;
+            }
+            log.error("生成FQ签名失败", cause);
+            return SignedHeaders.EMPTY;
+        });
+    }
+
+    private HttpRequest.BodyPublisher bodyPublisher(Object body) throws JsonProcessingException {
+        if (body == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (body instanceof byte[] bytes) {
+            return HttpRequest.BodyPublishers.ofByteArray(bytes);
+        }
+        if (body instanceof String text) {
+            return HttpRequest.BodyPublishers.ofString(text, StandardCharsets.UTF_8);
+        }
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+    }
+
+    private HttpRequest buildRequest(String fullUrl, HttpMethod method, HttpRequest.BodyPublisher publisher, Object body,
+                                     HttpHeaders httpHeaders) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(fullUrl))
+            .timeout(readTimeout)
+            .method(method.name(), publisher);
+        httpHeaders.forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> builder.header(name, value));
+            }
+        });
+        if (body != null && !(body instanceof byte[]) && httpHeaders.getContentType() == null) {
+            builder.header(HttpHeaders.CONTENT_TYPE, body instanceof String
+                ? "text/plain;charset=UTF-8"
+                : "application/json");
+        }
+        return builder.build();
+    }
+
+    /**
+     * 转为 {@link ResponseEntity}，响应体保持压缩形式，由调用方流式解析；4xx/5xx 与 RestTemplate 默认行为一致，
+     * 以 {@code RestClientResponseException} 失败（需解码错误响应体，不在 HttpClient 执行器上调用）。
+     */
+    private static UpstreamRawResult toRawResult(SignedResponse signed) {
+        if (signed == null) {
             return null;
         }
+        HttpResponse<byte[]> httpResponse = signed.response();
+        SignerTag signer = signed.signer();
+        HttpHeaders headers = new HttpHeaders();
+        httpResponse.headers().map().forEach(headers::addAll);
+        byte[] body = httpResponse.body();
+        int status = httpResponse.statusCode();
+        if (status >= 400) {
+            throw statusException(status, headers, body);
+        }
+        return new UpstreamRawResult(new ResponseEntity<>(body, headers, HttpStatusCode.valueOf(status)), signer);
+    }
 
-        HttpHeaders httpHeaders = mergeHttpHeaders(requestHeaders, signedHeaders);
+    private static RuntimeException statusException(int status, HttpHeaders headers, byte[] body) {
+        HttpStatus resolved = HttpStatus.resolve(status);
+        String statusText = resolved != null ? resolved.getReasonPhrase() : "";
+        String bodyText = GzipUtils.decodeUpstreamResponse(new ResponseEntity<>(body, headers, HttpStatusCode.valueOf(status)));
+        String message = status + " " + statusText + ": "
+            + (Texts.hasText(bodyText) ? "\"" + Texts.truncate(bodyText, ERROR_BODY_MAX_CHARS) + "\"" : "[no body]");
+        HttpStatusCode statusCode = HttpStatusCode.valueOf(status);
+        if (statusCode.is4xxClientError()) {
+            return HttpClientErrorException.create(message, statusCode, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        if (statusCode.is5xxServerError()) {
+            return HttpServerErrorException.create(message, statusCode, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        return new UnknownHttpStatusCodeException(message, status, statusText, headers, body, StandardCharsets.UTF_8);
+    }
 
-        if (rateLimit) {
-            upstreamRateLimiter.acquire();
+    private static RuntimeException translateSendFailure(String fullUrl, HttpMethod method, Throwable cause) {
+        if (cause instanceof IOException io) {
+            return new ResourceAccessException("I/O error on " + method.name() + " request for \"" + fullUrl + "\": " + io.getMessage(), io);
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+    }
+
+    /**
+     * 同步入口在异步链路末端等待，并还原阶段内抛出的原始异常。
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
         }
-        HttpEntity<?> entity = buildHttpEntity(body, httpHeaders);
-        ResponseEntity<byte[]> response = restTemplate.exchange(URI.create(fullUrl), method, entity, byte[].class);
-        String responseBody = GzipUtils.decodeUpstreamResponse(response);
-        return new UpstreamRawResult(response, responseBody);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException) && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    /**
+     * 上游接受了本次签名。
+     */
+    public void reportUpstreamSuccess(SignerTag signer) {
+        fqEncryptServiceWorker.reportSignerSuccess(signer);
+    }
+
+    /**
+     * 上游拒绝了本次签名（空响应、章节内容异常等），只计入产出签名的实例。
+     */
+    public void reportUpstreamFailure(SignerTag signer, String reason) {
+        fqEncryptServiceWorker.reportSignerFailure(signer, reason);
     }
 
     private static HttpHeaders mergeHttpHeaders(Map<String, String> requestHeaders, Map<String, String> signedHeaders) {
@@ -161,10 +405,6 @@ public class UpstreamSignedRequestService {
         return httpHeaders;
     }
 
-    private static HttpEntity<?> buildHttpEntity(Object body, HttpHeaders httpHeaders) {
-        return body == null ? new HttpEntity<>(httpHeaders) : new HttpEntity<>(body, httpHeaders);
-    }
-
     public static String resolveRetryReason(String message) {
         String normalized = Texts.trimToEmpty(message);
         if (containsIllegalAccess(normalized)) {
@@ -176,12 +416,16 @@ public class UpstreamSignedRequestService {
         if (normalized.contains(EX_EMPTY_UPSTREAM_RESPONSE) || normalized.contains(EX_JACKSON_EMPTY_CONTENT)) {
             return REASON_UPSTREAM_EMPTY;
         }
-        if (normalized.contains(EX_GZIP_NOT_IN_FORMAT)) {
+        if (normalized.contains(EX_GZIP_NOT_IN_FORMAT) || normalized.contains(REASON_UPSTREAM_GZIP)) {
             return REASON_UPSTREAM_GZIP;
         }
         if (normalized.contains(REASON_UPSTREAM_NON_JSON)) {
             return REASON_UPSTREAM_NON_JSON;
         }
+        // 排队满/超时先于 SIGNER_FAIL 判断：未进入 signer，不应触发 reset
+        if (normalized.contains(REASON_SIGNER_BUSY)) {
+            return REASON_SIGNER_BUSY;
+        }
         if (normalized.contains(EX_SIGNER_FAIL)) {
             return REASON_SIGNER_FAIL;
         }
@@ -204,7 +448,44 @@ public class UpstreamSignedRequestService {
             || normalized.contains("permission");
     }
 
-    public record UpstreamRawResult(ResponseEntity<byte[]> response, String responseBody) {}
+    /**
+     * HttpClient 返回的原始响应及产出签名的实例，尚未检查状态码。
+     */
+    private record SignedResponse(HttpResponse<byte[]> response, SignerTag signer) {
+    }
 
-    public record UpstreamJsonResult(ResponseEntity<byte[]> response, String responseBody, JsonNode jsonBody) {}
+    /**
+     * 上游响应（响应体为原始字节，可能是 gzip）及产出签名的实例。
+     */
+    public record UpstreamRawResult(ResponseEntity<byte[]> response, SignerTag signer) {
+
+        /**
+         * 解码后的响应体流，gzip 内容解压到池化缓冲区，须关闭以归还
+         */
+        public InputStream openBody() throws IOException {
+            return GzipUtils.openUpstreamBody(response);
+        }
+
+        /**
+         * 解压后的完整响应文本；会复制整个响应体，只用于日志与错误路径。
+         */
+        public String responseBody() {
+            return GzipUtils.decodeUpstreamResponse(response);
+        }
+    }
+
+    public record UpstreamJsonResult(ResponseEntity<byte[]> response, JsonNode jsonBody, SignerTag signer) {
+
+        /**
+         * 解压后的完整响应文本；会复制整个响应体，只用于日志与错误路径。
+         */
+        public String responseBody() {
+            return GzipUtils.decodeUpstreamResponse(response);
+        }
+    }
+
+    /**
+     * 上游 {code, message, data} 外层结构；message 缺失时为 null，data 缺失或为 null 时为 null。
+     */
+    public record UpstreamEnvelope<T>(int code, String message, T data) {}
 }
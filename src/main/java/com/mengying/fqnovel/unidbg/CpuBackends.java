@@ -0,0 +1,79 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.github.unidbg.arm.backend.BackendFactory;
+import com.mengying.fqnovel.utils.Texts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * unidbg CPU 后端选择。
+ * <p>
+ * 后端工厂通过反射加载：对应模块不在 classpath 或当前平台不支持时自动跳过，
+ * 最终回退到 unicorn2（并允许 unidbg 再回退到内置 unicorn）。
+ */
+public final class CpuBackends {
+
+    private static final Logger log = LoggerFactory.getLogger(CpuBackends.class);
+
+    public static final String UNICORN2 = "unicorn2";
+    public static final String DYNARMIC = "dynarmic";
+    public static final String UNICORN = "unicorn";
+
+    private static final String UNICORN2_FACTORY = "com.github.unidbg.arm.backend.Unicorn2Factory";
+    private static final String DYNARMIC_FACTORY = "com.github.unidbg.arm.backend.DynarmicFactory";
+
+    private CpuBackends() {
+    }
+
+    /**
+     * 规范化后端名称；未配置或无法识别时返回 unicorn2。
+     */
+    public static String normalize(String backend) {
+        String value = Texts.trimToNull(backend);
+        if (value == null) {
+            return UNICORN2;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        return switch (lower) {
+            case UNICORN2, DYNARMIC, UNICORN -> lower;
+            default -> {
+                log.warn("未知的 unidbg 后端配置，回退到 unicorn2: {}", backend);
+                yield UNICORN2;
+            }
+        };
+    }
+
+    /**
+     * 按优先级构建后端工厂列表（首选后端在前，unicorn2 作为兜底）。
+     */
+    static List<BackendFactory> factoriesFor(String backend) {
+        String normalized = normalize(backend);
+        List<BackendFactory> factories = new ArrayList<>(2);
+        switch (normalized) {
+            case DYNARMIC -> {
+                addIfPresent(factories, DYNARMIC_FACTORY, false);
+                addIfPresent(factories, UNICORN2_FACTORY, true);
+            }
+            case UNICORN2 -> addIfPresent(factories, UNICORN2_FACTORY, true);
+            default -> {
+                // 内置 unicorn：不添加任何工厂，由 unidbg 使用默认后端
+            }
+        }
+        return factories;
+    }
+
+    private static void addIfPresent(List<BackendFactory> factories, String className, boolean fallbackUnicorn) {
+        try {
+            Class<?> type = Class.forName(className, true, CpuBackends.class.getClassLoader());
+            factories.add((BackendFactory) type.getConstructor(boolean.class).newInstance(fallbackUnicorn));
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.warn("unidbg 后端不可用，跳过: {} ({})", className, e.toString());
+        } catch (ReflectiveOperationException e) {
+            log.warn("创建 unidbg 后端工厂失败，跳过: {}", className, e);
+        }
+    }
+}
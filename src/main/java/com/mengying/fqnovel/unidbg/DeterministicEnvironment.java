@@ -0,0 +1,72 @@
+package com.mengying.fqnovel.unidbg;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 确定性模式下单个 signer 实例看到的时间与随机源：虚拟时钟从固定纪元开始、每次读取前进固定步长，
+ * 随机字节来自固定种子的 {@link Random}（算法由 JDK 规范固定，跨版本可复现）。
+ * <p>
+ * 每次签名开始与快照回滚时 {@link #reset()}，使同一输入在同一实例状态下得到相同签名，可跨进程、跨机器比较。
+ * 仅用于回放与基准测试：签名中的时间戳是固定值，不能用于真实上游请求。
+ * 只在持有实例生命周期锁的线程上访问。
+ */
+public final class DeterministicEnvironment {
+
+    // 每次读取时钟前进 1ms，避免 native 侧等待时间前进时死循环
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long epochMs;
+    private final long seed;
+    private final Random random;
+    private long elapsedNanos;
+
+    public DeterministicEnvironment(long epochMs, long seed) {
+        this.epochMs = epochMs;
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public long epochMs() {
+        return epochMs;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * 时钟回到纪元起点，随机源回到初始种子。
+     */
+    public void reset() {
+        elapsedNanos = 0L;
+        random.setSeed(seed);
+    }
+
+    public long currentTimeMillis() {
+        return epochMs + TimeUnit.NANOSECONDS.toMillis(tick());
+    }
+
+    /**
+     * CLOCK_REALTIME 纳秒值
+     */
+    long realtimeNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(epochMs) + tick();
+    }
+
+    /**
+     * CLOCK_MONOTONIC/BOOTTIME 纳秒值（以实例创建为零点）
+     */
+    long monotonicNanos() {
+        return tick();
+    }
+
+    void nextBytes(byte[] bytes) {
+        random.nextBytes(bytes);
+    }
+
+    private long tick() {
+        elapsedNanos += TICK_NANOS;
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,103 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.Emulator;
+import com.github.unidbg.arm.context.RegisterContext;
+import com.github.unidbg.file.linux.AndroidFileIO;
+import com.github.unidbg.linux.ARM64SyscallHandler;
+import com.github.unidbg.linux.android.AndroidARM64Emulator;
+import com.github.unidbg.linux.android.AndroidEmulatorBuilder;
+import com.github.unidbg.linux.file.RandomFileIO;
+import com.github.unidbg.memory.SvcMemory;
+import com.github.unidbg.pointer.UnidbgPointer;
+import com.github.unidbg.unix.UnixSyscallHandler;
+import com.sun.jna.Pointer;
+
+/**
+ * 确定性模式的系统调用处理：clock_gettime/gettimeofday/getrandom 改由 {@link DeterministicEnvironment} 提供，
+ * 其余系统调用沿用 unidbg 默认实现。
+ */
+final class DeterministicSyscallHandler extends ARM64SyscallHandler {
+
+    private static final int CLOCK_REALTIME = 0;
+
+    private final DeterministicEnvironment environment;
+
+    private DeterministicSyscallHandler(SvcMemory svcMemory, DeterministicEnvironment environment) {
+        super(svcMemory);
+        this.environment = environment;
+    }
+
+    /**
+     * 创建使用确定性系统调用的 64 位模拟器构建器。
+     */
+    static AndroidEmulatorBuilder builder(DeterministicEnvironment environment) {
+        return new AndroidEmulatorBuilder(true) {
+            @Override
+            public AndroidEmulator build() {
+                return new AndroidARM64Emulator(processName, rootDir, backendFactories) {
+                    @Override
+                    protected UnixSyscallHandler<AndroidFileIO> createSyscallHandler(SvcMemory svcMemory) {
+                        return new DeterministicSyscallHandler(svcMemory, environment);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    protected int clock_gettime(Emulator<?> emulator) {
+        RegisterContext context = emulator.getContext();
+        int clockId = context.getIntArg(0);
+        UnidbgPointer tp = context.getPointerArg(1);
+        // 与默认实现支持的时钟一致：REALTIME/MONOTONIC/MONOTONIC_RAW/MONOTONIC_COARSE/BOOTTIME
+        long nanos = switch (clockId) {
+            case CLOCK_REALTIME -> environment.realtimeNanos();
+            case 1, 4, 6, 7 -> environment.monotonicNanos();
+            default -> throw new UnsupportedOperationException("clk_id=" + clockId);
+        };
+        tp.setLong(0, nanos / 1_000_000_000L);
+        tp.setLong(8, nanos % 1_000_000_000L);
+        return 0;
+    }
+
+    @Override
+    protected int gettimeofday64(Pointer tv, Pointer tz) {
+        long nanos = environment.realtimeNanos();
+        if (tv != null) {
+            tv.setLong(0, nanos / 1_000_000_000L);
+            tv.setLong(8, nanos % 1_000_000_000L / 1_000L);
+        }
+        if (tz != null) {
+            tz.setInt(0, 0);
+            tz.setInt(4, 0);
+        }
+        return 0;
+    }
+
+    @Override
+    protected int getrandom(Pointer buf, int bufSize, int flags) {
+        byte[] bytes = new byte[bufSize];
+        environment.nextBytes(bytes);
+        buf.write(0, bytes, 0, bufSize);
+        return bufSize;
+    }
+
+    /**
+     * 确定性模式下的 /dev/random 与 /dev/urandom
+     */
+    static final class SeededRandomFileIO extends RandomFileIO {
+
+        private final DeterministicEnvironment environment;
+
+        SeededRandomFileIO(Emulator<?> emulator, String path, DeterministicEnvironment environment) {
+            super(emulator, path);
+            this.environment = environment;
+        }
+
+        @Override
+        protected void randBytes(byte[] bytes) {
+            environment.nextBytes(bytes);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.github.unidbg.AndroidEmulator;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.linux.android.dvm.BaseVM;
+import com.github.unidbg.linux.android.dvm.VM;
+import com.github.unidbg.memory.Memory;
+import com.github.unidbg.memory.MemoryMap;
+import com.github.unidbg.unix.UnixSyscallHandler;
+import unicorn.UnicornConst;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模拟器快照：在 JNI_OnLoad 完成后记录可写内存区域、CPU 寄存器上下文与栈指针，
+ * 之后可在同一个模拟器上原地回滚，替代“销毁 + 重新加载 so”的完整重建。
+ * <p>
+ * 只读/可执行区域（代码段、只读数据）在初始化后不会变化，因此不做拷贝；可写区域中的全零页（未使用的栈、
+ * 堆与 bss）只记录范围，回滚时写回零，不占用堆内存。
+ * <p>
+ * 快照只能回滚 native 内存与寄存器，DalvikVM 的全局/弱全局引用表与系统调用的 fd 表仍保留在 Java 侧。
+ * 因此快照同时记录这些表的大小，回滚前先用 {@link #mismatch} 校验内存布局与表大小，不一致时由调用方改为完整重建；
+ * 校验通过后 {@link #restore} 才开始修改模拟器，此后的失败会让模拟器处于半回滚状态，调用方须丢弃该实例。
+ */
+final class EmulatorSnapshot {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final byte[] ZEROS = new byte[16 * PAGE_SIZE];
+    // unidbg 未公开这些表的大小，只能反射读取；读取不到时视为无法校验
+    private static final Field GLOBAL_REFS = field(BaseVM.class, "globalObjectMap");
+    private static final Field WEAK_GLOBAL_REFS = field(BaseVM.class, "weakGlobalObjectMap");
+    private static final Field FD_TABLE = field(UnixSyscallHandler.class, "fdMap");
+
+    private final List<Region> regions;
+    private final List<ZeroRange> zeroRanges;
+    private final Map<Long, MemoryMap> layout;
+    private final long contextHandle;
+    private final long stackPoint;
+    private final long capturedBytes;
+    private final long writableBytes;
+    private final JavaTables tables;
+
+    private EmulatorSnapshot(List<Region> regions, List<ZeroRange> zeroRanges, Map<Long, MemoryMap> layout,
+                             long contextHandle, long stackPoint, long capturedBytes, long writableBytes, JavaTables tables) {
+        this.regions = regions;
+        this.zeroRanges = zeroRanges;
+        this.layout = layout;
+        this.contextHandle = contextHandle;
+        this.stackPoint = stackPoint;
+        this.capturedBytes = capturedBytes;
+        this.writableBytes = writableBytes;
+        this.tables = tables;
+    }
+
+    static EmulatorSnapshot capture(AndroidEmulator emulator) {
+        Backend backend = emulator.getBackend();
+        Memory memory = emulator.getMemory();
+
+        List<Region> regions = new ArrayList<>();
+        List<ZeroRange> zeroRanges = new ArrayList<>();
+        Map<Long, MemoryMap> layout = new HashMap<>();
+        long capturedBytes = 0L;
+        long writableBytes = 0L;
+        for (MemoryMap map : memory.getMemoryMap()) {
+            layout.put(map.base, map);
+            if ((map.prot & UnicornConst.UC_PROT_WRITE) == 0) {
+                continue;
+            }
+            byte[] data = backend.mem_read(map.base, map.size);
+            writableBytes += data.length;
+            capturedBytes += split(map.base, data, regions, zeroRanges);
+        }
+
+        long contextHandle = backend.context_alloc();
+        backend.context_save(contextHandle);
+        return new EmulatorSnapshot(List.copyOf(regions), List.copyOf(zeroRanges), Map.copyOf(layout), contextHandle,
+            memory.getStackPoint(), capturedBytes, writableBytes, JavaTables.of(emulator));
+    }
+
+    /**
+     * 按页把区域内容拆成连续的非零段与全零段。
+     *
+     * @return 非零段拷贝的字节数
+     */
+    private static long split(long base, byte[] data, List<Region> regions, List<ZeroRange> zeroRanges) {
+        long copied = 0L;
+        int runStart = 0;
+        boolean runZero = true;
+        for (int offset = 0; offset < data.length; offset += PAGE_SIZE) {
+            int end = Math.min(data.length, offset + PAGE_SIZE);
+            boolean zero = Arrays.mismatch(data, offset, end, ZEROS, 0, end - offset) < 0;
+            if (offset == 0) {
+                runZero = zero;
+            } else if (zero != runZero) {
+                copied += addRun(base, data, runStart, offset, runZero, regions, zeroRanges);
+                runStart = offset;
+                runZero = zero;
+            }
+        }
+        if (data.length > 0) {
+            copied += addRun(base, data, runStart, data.length, runZero, regions, zeroRanges);
+        }
+        return copied;
+    }
+
+    private static long addRun(long base, byte[] data, int from, int to, boolean zero,
+                               List<Region> regions, List<ZeroRange> zeroRanges) {
+        if (zero) {
+            zeroRanges.add(new ZeroRange(base + from, to - from));
+            return 0L;
+        }
+        byte[] copy = from == 0 && to == data.length ? data : Arrays.copyOfRange(data, from, to);
+        regions.add(new Region(base + from, copy));
+        return copy.length;
+    }
+
+    /**
+     * 校验当前状态能否回滚到快照，不修改模拟器。
+     *
+     * @return 不一致的原因；可以回滚时返回 null
+     */
+    String mismatch(AndroidEmulator emulator) {
+        int matched = 0;
+        for (MemoryMap map : emulator.getMemory().getMemoryMap()) {
+            MemoryMap origin = layout.get(map.base);
+            if (origin == null) {
+                // 快照之后新映射的区域（例如签名过程中 mmap 的缓冲区），回滚时释放
+                if (map.size > Integer.MAX_VALUE) {
+                    return "新增内存区域过大，无法释放: " + map;
+                }
+                continue;
+            }
+            if (origin.size != map.size || origin.prot != map.prot) {
+                return "内存布局已变化: " + map;
+            }
+            matched++;
+        }
+        if (matched != layout.size()) {
+            return "快照中的内存区域已被释放: expected=" + layout.size() + ", actual=" + matched;
+        }
+        JavaTables current = JavaTables.of(emulator);
+        if (!tables.verifiable()) {
+            return "无法读取 Java 侧引用表/fd 表";
+        }
+        if (!tables.equals(current)) {
+            return "Java 侧引用表/fd 表已变化: snapshot=" + tables + ", current=" + current;
+        }
+        return null;
+    }
+
+    /**
+     * 将模拟器回滚到快照时刻；须先经 {@link #mismatch} 校验通过，调用方需保证此时没有其他线程在使用该模拟器。
+     * 抛出异常时模拟器可能只回滚了一部分，不可继续使用。
+     */
+    void restore(AndroidEmulator emulator) {
+        Backend backend = emulator.getBackend();
+        Memory memory = emulator.getMemory();
+
+        List<MemoryMap> extra = new ArrayList<>();
+        for (MemoryMap map : memory.getMemoryMap()) {
+            if (!layout.containsKey(map.base)) {
+                extra.add(map);
+            }
+        }
+        for (MemoryMap map : extra) {
+            if (memory.munmap(map.base, (int) map.size) != 0) {
+                throw new IllegalStateException("释放快照后新增的内存区域失败: " + map);
+            }
+        }
+
+        for (Region region : regions) {
+            backend.mem_write(region.base, region.data);
+        }
+        for (ZeroRange range : zeroRanges) {
+            for (long written = 0L; written < range.length; written += ZEROS.length) {
+                int chunk = (int) Math.min(ZEROS.length, range.length - written);
+                backend.mem_write(range.base + written, chunk == ZEROS.length ? ZEROS : Arrays.copyOf(ZEROS, chunk));
+            }
+        }
+        backend.context_restore(contextHandle);
+        memory.setStackPoint(stackPoint);
+        // 局部引用只在 native 调用栈内有效，回滚后持有它们的栈帧已不存在
+        emulator.getDalvikVM().deleteLocalRefs();
+    }
+
+    /**
+     * 释放快照持有的 backend 上下文；须在模拟器关闭前调用。
+     */
+    void free(AndroidEmulator emulator) {
+        emulator.getBackend().context_free(contextHandle);
+    }
+
+    /**
+     * 快照在堆上持有的字节数（只含非零页）
+     */
+    long capturedBytes() {
+        return capturedBytes;
+    }
+
+    /**
+     * 快照覆盖的可写区域总字节数
+     */
+    long writableBytes() {
+        return writableBytes;
+    }
+
+    private record Region(long base, byte[] data) {
+    }
+
+    private record ZeroRange(long base, long length) {
+    }
+
+    /**
+     * 快照无法回滚的 Java 侧状态的大小；读取失败的项为 -1。
+     */
+    private record JavaTables(int globalRefs, int weakGlobalRefs, int fds) {
+
+        static JavaTables of(AndroidEmulator emulator) {
+            VM vm = emulator.getDalvikVM();
+            return new JavaTables(size(GLOBAL_REFS, vm), size(WEAK_GLOBAL_REFS, vm), size(FD_TABLE, emulator.getSyscallHandler()));
+        }
+
+        boolean verifiable() {
+            return globalRefs >= 0 && weakGlobalRefs >= 0 && fds >= 0;
+        }
+    }
+
+    private static Field field(Class<?> owner, String name) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int size(Field field, Object owner) {
+        if (field == null || !field.getDeclaringClass().isInstance(owner)) {
+            return -1;
+        }
+        try {
+            return field.get(owner) instanceof Map<?, ?> map ? map.size() : -1;
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+}
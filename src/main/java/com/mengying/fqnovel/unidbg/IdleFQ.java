@@ -1,11 +1,11 @@
 package com.mengying.fqnovel.unidbg;
 
-import com.mengying.fqnovel.utils.Texts;
-import com.mengying.fqnovel.utils.TempFileUtils;
 import com.github.unidbg.AndroidEmulator;
 import com.github.unidbg.Emulator;
+import com.github.unidbg.EmulatorBuilder;
 import com.github.unidbg.Module;
-import com.github.unidbg.arm.backend.Unicorn2Factory;
+import com.github.unidbg.Symbol;
+import com.github.unidbg.arm.backend.BackendFactory;
 import com.github.unidbg.file.FileResult;
 import com.github.unidbg.file.IOResolver;
 import com.github.unidbg.file.linux.AndroidFileIO;
@@ -23,21 +23,27 @@ import com.github.unidbg.linux.android.dvm.VarArg;
 import com.github.unidbg.linux.android.dvm.array.ArrayObject;
 import com.github.unidbg.linux.android.dvm.array.ByteArray;
 import com.github.unidbg.linux.android.dvm.wrapper.DvmBoolean;
-import com.github.unidbg.linux.file.SimpleFileIO;
+import com.github.unidbg.linux.file.ByteArrayFileIO;
 import com.github.unidbg.memory.Memory;
+import com.github.unidbg.memory.MemoryMap;
 import com.github.unidbg.pointer.UnidbgPointer;
 import com.github.unidbg.spi.SyscallHandler;
 import com.github.unidbg.virtualmodule.android.AndroidModule;
 import com.github.unidbg.virtualmodule.android.JniGraphics;
+import com.mengying.fqnovel.config.UnidbgProperties;
+import com.mengying.fqnovel.utils.ProcessMemory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 @SuppressWarnings("unchecked")
@@ -45,18 +51,20 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     private static final Logger log = LoggerFactory.getLogger(IdleFQ.class);
 
-    // 资源路径常量
-    private static final String BASE_PATH = "com/dragon/read/oversea/gp";
-    private static final String DEFAULT_APK_CLASSPATH = BASE_PATH + "/apk/base.apk";
-    private static final String SO_METASEC_ML_PATH = BASE_PATH + "/lib/libmetasec_ml.so";
-    private static final String SO_C_SHARE_PATH = BASE_PATH + "/lib/libc++_shared.so";
-    private static final String MS_CERT_FILE_PATH = BASE_PATH + "/other/ms_16777218.bin";
+    // so 库名称（按名称从内存加载，依赖解析按 soname 匹配）
+    private static final String SO_METASEC_ML_NAME = "libmetasec_ml.so";
+    private static final String SO_C_SHARE_NAME = "libc++_shared.so";
 
     // 应用相关常量
     private static final String PACKAGE_NAME = "com.dragon.read.oversea.gp";
     private static final String APK_INSTALL_PATH = "/data/app/com.dragon.read.oversea.gp-q5NyjSN9BLSTVBJ54kg7YA==/base.apk";
     private static final int SDK_VERSION = 23;
 
+    // 签名函数偏移与入参缓冲区容量（超出容量的参数回退为按 String 传参）
+    private static final long SIGN_FUNCTION_OFFSET = 0x168c80;
+    private static final int URL_BUFFER_BYTES = 8 * 1024;
+    private static final int HEADER_BUFFER_BYTES = 16 * 1024;
+
     private final AndroidEmulator emulator;
     private final Module module;
     private final Memory memory;
@@ -65,32 +73,120 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
     private final String apkClasspath;
     private final ReentrantLock lifecycleLock = new ReentrantLock();
 
-    // 临时文件缓存
-    private File tempApkFile;
-    private File tempSoMetasecMlFile;
-    private File tempSoCShareFile;
+    // 进程内共享的只读资源（APK/so/证书）
+    private SignerResources resources;
+    // 每个实例独立的 rootfs（.msdata 等会被 native 写入，不可共享）
     private File tempRootfsDir;
-    private File tempMsCertFile;
     private volatile boolean destroyed = false;
+    // 快照回滚中途失败，模拟器处于半回滚状态，不能再用于签名
+    private volatile boolean corrupted = false;
+
+    // JNI_OnLoad 完成后的模拟器快照（未启用时为 null）
+    private EmulatorSnapshot snapshot;
+
+    // 复用的签名入参缓冲区，仅在持有 lifecycleLock 时使用
+    private final NativeArgumentBuffer urlBuffer;
+    private final NativeArgumentBuffer headerBuffer;
+    // libc free，用于释放 native 返回的结果缓冲区（未启用时为 null）
+    private final Symbol freeSymbol;
+
+    // JNI 回调分发表与预解析的句柄/固定返回值，初始化后只读
+    private final Map<String, ObjectCall> staticObjectCalls = new HashMap<>();
+    private final Map<String, ObjectCall> objectCalls = new HashMap<>();
+    private DvmClass stackTraceElementClass;
+    private DvmClass longClass;
+    private DvmObject<?> msDataPath;
+    private DvmObject<?> booleanTrue;
+    private DvmObject<?> versionCode;
+    private DvmObject<?> versionName;
+    private ByteArray certArray;
+    private DvmObject<?> currentThread;
+    private ArrayObject syntheticStackTrace;
+    // 本实例已取得的回调计数器（JNI 回调总在持有 lifecycleLock 的签名线程上发生）
+    private final Map<String, LongAdder> jniCounters = new HashMap<>();
+    private volatile boolean jniReady = false;
+    // 热点采集器（未开启 profile 时为 null）
+    private NativeProfiler profiler;
+    // 确定性模式的虚拟时钟与随机源（未开启时为 null）
+    private final DeterministicEnvironment deterministic;
+
+    // 自初始化（或上次快照回滚）以来的签名调用次数，仅在持有 lifecycleLock 时写入，指标读取无需加锁
+    private volatile long callsServed;
+    // 开始创建实例的时间与初始化耗时，用于实例年龄/初始化耗时指标
+    private final long createdAtNanos = System.nanoTime();
+    private final long initNanos;
+    // 创建实例前后的进程 RSS 差值（不可读时为 -1），并发创建多个实例时会互相计入
+    private final long initRssBytes;
+    // 初始化完成时的模拟器映射内存总量，用于计算后续增长
+    private final long baselineMappedBytes;
+
+    /**
+     * 实例创建参数，通常由 {@link #from(UnidbgProperties)} 从配置构造。
+     *
+     * @param snapshotEnabled      是否在初始化完成后记录快照，用于后续 {@link #restoreSnapshot()} 快速回滚
+     * @param backend              CPU 后端（unicorn2/dynarmic/unicorn），不可用时自动回退，见 {@link CpuBackends}
+     * @param freeNativeResult     读取签名结果后是否调用模拟器内 libc free 释放 native 返回的缓冲区
+     * @param virtualModules       是否注册 libandroid/libjnigraphics 虚拟模块；签名路径不依赖它们时关闭可减少每个实例的映射内存
+     * @param deterministic        是否启用确定性模式：模拟器内的时间、MS 时间回调与随机源取自每个实例独立的虚拟时钟与随机源，
+     *                             每次签名前重置，同一输入得到可复现的签名（仅用于回放/基准）
+     */
+    public record Options(
+        boolean loggable,
+        String apkPath,
+        String apkClasspath,
+        boolean snapshotEnabled,
+        String backend,
+        boolean freeNativeResult,
+        boolean virtualModules,
+        boolean deterministic,
+        long deterministicEpochMs,
+        long deterministicSeed
+    ) {
+
+        public static Options from(UnidbgProperties properties) {
+            return new Options(
+                properties.isVerbose(),
+                properties.getApkPath(),
+                properties.getApkClasspath(),
+                properties.isSnapshotEnabled(),
+                properties.getBackend(),
+                properties.isFreeNativeResult(),
+                properties.isVirtualModules(),
+                properties.isDeterministic(),
+                properties.getDeterministicEpochMs(),
+                properties.getDeterministicSeed()
+            );
+        }
+    }
 
-    public IdleFQ(boolean loggable, String apkPath, String apkClasspath) {
-        this.loggable = loggable;
-        this.apkPath = apkPath;
-        this.apkClasspath = apkClasspath;
+    public IdleFQ(Options options) {
+        long rssBefore = ProcessMemory.rssBytes();
+        this.loggable = options.loggable();
+        this.deterministic = options.deterministic()
+            ? new DeterministicEnvironment(options.deterministicEpochMs(), options.deterministicSeed())
+            : null;
+        this.apkPath = options.apkPath();
+        this.apkClasspath = options.apkClasspath();
         AndroidEmulator emulatorCandidate = null;
         Memory memoryCandidate = null;
         Module moduleCandidate = null;
         try {
-            // 初始化临时文件
-            initTempFiles();
+            // 加载共享资源并准备 rootfs
+            initResources();
 
             // 创建模拟器
-            emulatorCandidate = AndroidEmulatorBuilder
-                .for64Bit()
+            EmulatorBuilder<AndroidEmulator> builder = (deterministic != null
+                ? DeterministicSyscallHandler.builder(deterministic)
+                : AndroidEmulatorBuilder.for64Bit())
                 .setRootDir(tempRootfsDir)
-                .setProcessName(PACKAGE_NAME)
-                .addBackendFactory(new Unicorn2Factory(true))
-                .build();
+                .setProcessName(PACKAGE_NAME);
+            for (BackendFactory factory : CpuBackends.factoriesFor(options.backend())) {
+                builder.addBackendFactory(factory);
+            }
+            emulatorCandidate = builder.build();
+            if (loggable) {
+                log.debug("unidbg 后端: configured={}, actual={}", options.backend(), emulatorCandidate.getBackend().getClass().getSimpleName());
+            }
 
             // 设置inode和uid
             initEmulatorSettings(emulatorCandidate);
@@ -107,13 +203,16 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
             VM vm = emulatorCandidate.createDalvikVM();
             vm.setJni(this);
             vm.setVerbose(loggable);
+            initJniDispatch(vm);
 
             // 导入第三方虚拟模块
-            new AndroidModule(emulatorCandidate, vm).register(memoryCandidate);
-            new JniGraphics(emulatorCandidate, vm).register(memoryCandidate);
+            if (options.virtualModules()) {
+                new AndroidModule(emulatorCandidate, vm).register(memoryCandidate);
+                new JniGraphics(emulatorCandidate, vm).register(memoryCandidate);
+            }
 
             // 载入依赖so库
-            vm.loadLibrary(tempSoCShareFile, false);
+            vm.loadLibrary(SO_C_SHARE_NAME, resources.soCShare(), false);
 
             // 初始化JNI对应类
             DvmClass bridgeClass = vm.resolveClass("ms/bd/c/m");
@@ -121,15 +220,33 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
             vm.resolveClass("com/bytedance/mobsec/metasec/ml/MS", a4a);
 
             // 加载主要so库
-            DalvikModule dm = vm.loadLibrary(tempSoMetasecMlFile, true);
+            DalvikModule dm = vm.loadLibrary(SO_METASEC_ML_NAME, resources.soMetasecMl(), true);
             moduleCandidate = dm.getModule();
             dm.callJNI_OnLoad(emulatorCandidate);
 
+            // 入参缓冲区须在快照之前映射，快照回滚时才不会被当作新增区域释放
+            this.urlBuffer = NativeArgumentBuffer.allocate(memoryCandidate, URL_BUFFER_BYTES);
+            this.headerBuffer = NativeArgumentBuffer.allocate(memoryCandidate, HEADER_BUFFER_BYTES);
+            this.freeSymbol = options.freeNativeResult() ? findLibcFree(memoryCandidate) : null;
+
+            if (options.snapshotEnabled()) {
+                long startNs = System.nanoTime();
+                snapshot = EmulatorSnapshot.capture(emulatorCandidate);
+                log.info("已记录模拟器快照: bytes={}, writableBytes={}, costMs={}", snapshot.capturedBytes(),
+                    snapshot.writableBytes(), (System.nanoTime() - startNs) / 1_000_000L);
+            }
+
             this.emulator = emulatorCandidate;
             this.memory = memoryCandidate;
             this.module = moduleCandidate;
-
-            log.info("初始化完成");
+            this.baselineMappedBytes = sumMappedBytes(memoryCandidate);
+
+            this.profiler = NativeProfiler.attach(emulatorCandidate);
+            this.jniReady = true;
+            this.initNanos = System.nanoTime() - createdAtNanos;
+            long rssAfter = ProcessMemory.rssBytes();
+            this.initRssBytes = rssBefore >= 0L && rssAfter >= 0L ? rssAfter - rssBefore : -1L;
+            log.info("初始化完成: mappedBytes={}, initRssBytes={}", baselineMappedBytes, initRssBytes);
         } catch (Exception e) {
             cleanupAfterInitFailure(emulatorCandidate);
             log.error("初始化失败", e);
@@ -137,33 +254,32 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         }
     }
 
+    private Symbol findLibcFree(Memory memory) {
+        Module libc = memory.findModule("libc.so");
+        Symbol free = libc == null ? null : libc.findSymbolByName("free", false);
+        if (free == null) {
+            log.warn("未找到 libc free，签名结果缓冲区将不会被释放");
+        }
+        return free;
+    }
+
     /**
-     * 初始化临时文件
+     * 获取共享资源并创建本实例的 rootfs 目录
      */
-    private void initTempFiles() throws IOException {
+    private void initResources() throws IOException {
         try {
-            tempApkFile = resolveApkFile();
-            tempSoMetasecMlFile = TempFileUtils.getTempFile(SO_METASEC_ML_PATH);
-            tempSoCShareFile = TempFileUtils.getTempFile(SO_C_SHARE_PATH);
-            tempMsCertFile = TempFileUtils.getTempFile(MS_CERT_FILE_PATH);
+            resources = SignerResources.get(apkPath, apkClasspath);
 
             // 处理rootfs目录
             tempRootfsDir = createTempDir("fq_rootfs");
             prepareRootfs(tempRootfsDir.toPath());
 
-            if (tempApkFile == null || !tempApkFile.exists()) {
-                throw new IOException("APK 文件不存在或不可用");
-            }
             if (loggable) {
-                log.debug("临时APK文件: {}", tempApkFile.getAbsolutePath());
-                log.debug("临时SO主文件: {}", tempSoMetasecMlFile.getAbsolutePath());
-                log.debug("临时SO共享库文件: {}", tempSoCShareFile.getAbsolutePath());
-                log.debug("临时证书文件: {}", tempMsCertFile.getAbsolutePath());
                 log.debug("临时rootfs目录: {}", tempRootfsDir.getAbsolutePath());
             }
         } catch (Exception e) {
-            log.error("初始化临时文件失败", e);
-            throw new IOException("初始化临时文件失败", e);
+            log.error("初始化资源失败", e);
+            throw new IOException("初始化资源失败", e);
         }
     }
 
@@ -186,33 +302,6 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         Files.createDirectories(rootfs.resolve("sdcard/android"));
     }
 
-    private File resolveApkFile() throws IOException {
-        String configuredApkPath = Texts.trimToNull(apkPath);
-        if (configuredApkPath != null) {
-            File apkFile = new File(configuredApkPath);
-            if (!apkFile.exists() || !apkFile.isFile()) {
-                throw new IOException("APK 文件不存在: " + apkFile.getAbsolutePath());
-            }
-            return apkFile;
-        }
-
-        String configuredApkClasspath = Texts.trimToNull(apkClasspath);
-        if (configuredApkClasspath != null) {
-            File classpathApk = TempFileUtils.getTempFile(configuredApkClasspath);
-            if (classpathApk != null && classpathApk.exists()) {
-                return classpathApk;
-            }
-            throw new IOException("未找到 APK classpath 资源: " + configuredApkClasspath);
-        }
-
-        File classpathApk = TempFileUtils.getTempFile(DEFAULT_APK_CLASSPATH);
-        if (classpathApk != null && classpathApk.exists()) {
-            return classpathApk;
-        }
-
-        throw new IOException("未找到 APK：请配置 application.unidbg.apk-path（本地文件）或 application.unidbg.apk-classpath（classpath 资源）；默认查找 " + DEFAULT_APK_CLASSPATH);
-    }
-
     /**
      * 创建临时目录
      */
@@ -235,6 +324,131 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     }
 
+    /**
+     * 将模拟器原地回滚到 JNI_OnLoad 完成时的快照状态。
+     * <p>
+     * 内存布局或 Java 侧引用表/fd 表与快照不一致时不做任何修改直接返回 false；
+     * 开始修改后失败则标记为 {@link #isCorrupted() 已损坏}，调用方须立即停止使用该实例。
+     *
+     * @return 回滚成功返回 true；未记录快照、已销毁或无法回滚时返回 false（调用方应改为完整重建）
+     */
+    public boolean restoreSnapshot() {
+        lifecycleLock.lock();
+        try {
+            if (destroyed || corrupted || snapshot == null) {
+                return false;
+            }
+            long startNs = System.nanoTime();
+            String mismatch = snapshot.mismatch(emulator);
+            if (mismatch != null) {
+                log.warn("快照与当前状态不一致，无法回滚: {}", mismatch);
+                return false;
+            }
+            try {
+                snapshot.restore(emulator);
+            } catch (RuntimeException e) {
+                corrupted = true;
+                log.error("快照回滚中途失败，实例已不可用", e);
+                return false;
+            }
+            if (deterministic != null) {
+                deterministic.reset();
+            }
+            callsServed = 0L;
+            if (loggable) {
+                log.debug("快照回滚完成: costMs={}", (System.nanoTime() - startNs) / 1_000_000L);
+            }
+            return true;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * 快照回滚中途失败后返回 true，此后签名一律返回 null。
+     */
+    public boolean isCorrupted() {
+        return corrupted;
+    }
+
+    /**
+     * 实际生效的 CPU 后端实现类名（用于日志与基准对比）
+     */
+    public String getBackendName() {
+        return emulator.getBackend().getClass().getSimpleName();
+    }
+
+    /**
+     * 自初始化（或上次快照回滚）以来的签名调用次数
+     */
+    public long getCallsServed() {
+        return callsServed;
+    }
+
+    /**
+     * 实例自开始创建以来的时长（纳秒），快照回滚不重新计时
+     */
+    public long getAgeNanos() {
+        return System.nanoTime() - createdAtNanos;
+    }
+
+    /**
+     * 实例从开始创建到初始化完成（含 JNI_OnLoad 与快照记录）的耗时（纳秒）
+     */
+    public long getInitNanos() {
+        return initNanos;
+    }
+
+    /**
+     * 模拟器映射内存相对初始化完成时的增长量（字节），已销毁时返回 0
+     */
+    public long getMappedBytesGrowth() {
+        lifecycleLock.lock();
+        try {
+            if (destroyed) {
+                return 0L;
+            }
+            return sumMappedBytes(memory) - baselineMappedBytes;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * 模拟器当前映射的内存总量（字节，由 CPU 后端在 native 内存中分配），已销毁时返回 0
+     */
+    public long getMappedBytes() {
+        lifecycleLock.lock();
+        try {
+            return destroyed ? 0L : sumMappedBytes(memory);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * 创建实例前后的进程 RSS 差值（字节），不可读时返回 -1
+     */
+    public long getInitRssBytes() {
+        return initRssBytes;
+    }
+
+    /**
+     * 快照在堆上持有的字节数，未启用快照时返回 0
+     */
+    public long getSnapshotBytes() {
+        EmulatorSnapshot current = snapshot;
+        return current != null ? current.capturedBytes() : 0L;
+    }
+
+    private static long sumMappedBytes(Memory memory) {
+        long total = 0L;
+        for (MemoryMap map : memory.getMemoryMap()) {
+            total += map.size;
+        }
+        return total;
+    }
+
     /**
      * 生成API请求签名
      *
@@ -243,21 +457,86 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
      * @return 生成的签名字符串，失败时返回null
      */
     public String generateSignature(String url, String header) {
+        return sign(url, header, null);
+    }
+
+    /**
+     * 重载方法：使用Map格式的header参数
+     * <p>
+     * header 直接编码写入模拟器缓冲区，不再先拼接成中间字符串。
+     *
+     * @param url       API请求的URL
+     * @param headerMap HTTP请求头的Map，key为header名称，value为header值
+     * @return 生成的签名字符串，失败时返回null
+     */
+    public String generateSignature(String url, Map<String, String> headerMap) {
+        if (headerMap == null || headerMap.isEmpty()) {
+            return sign(url, "", null);
+        }
+        return sign(url, null, headerMap);
+    }
+
+    /**
+     * 批量生成签名：整批只获取一次实例生命周期锁，按顺序依次调用 native 方法。
+     *
+     * @param urls       API请求的URL列表
+     * @param headerMaps 与 urls 一一对应的请求头 Map
+     * @return 与输入顺序一致的签名结果，单条失败时对应位置为 null
+     */
+    public String[] generateSignatures(List<String> urls, List<Map<String, String>> headerMaps) {
+        String[] results = new String[urls.size()];
         lifecycleLock.lock();
         try {
-            if (destroyed) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = generateSignature(urls.get(i), headerMaps.get(i));
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+        return results;
+    }
+
+    private String sign(String url, String header, Map<String, String> headerMap) {
+        lifecycleLock.lock();
+        try {
+            if (destroyed || corrupted) {
                 if (loggable) {
-                    log.debug("已销毁，跳过签名生成");
+                    log.debug("已销毁或已损坏，跳过签名生成");
                 }
                 return null;
             }
             if (loggable) {
                 log.debug("准备生成签名 - URL: {}", url);
-                log.debug("准备生成签名 - Header: {}", header);
+                log.debug("准备生成签名 - Header: {}", headerMap != null ? headerMap : header);
+            }
+
+            // 参数写入复用缓冲区后按地址传递；超出容量时回退为 String 参数（由 unidbg 压栈）
+            Object urlArg = urlBuffer.write(url) ? urlBuffer.address() : url;
+            Object headerArg;
+            if (headerMap != null) {
+                headerArg = headerBuffer.write(headerMap) ? headerBuffer.address() : joinHeaders(headerMap);
+            } else {
+                headerArg = headerBuffer.write(header) ? headerBuffer.address() : header;
+            }
+
+            if (deterministic != null) {
+                deterministic.reset();
             }
 
             // 调用native方法生成签名
-            Number number = module.callFunction(emulator, 0x168c80, url, header);
+            callsServed++;
+            JniCallStats.recordSignature();
+            Number number;
+            if (profiler != null) {
+                profiler.begin();
+            }
+            try {
+                number = module.callFunction(emulator, SIGN_FUNCTION_OFFSET, urlArg, headerArg);
+            } finally {
+                if (profiler != null) {
+                    profiler.end();
+                }
+            }
 
             if (number == null) {
                 log.error("调用native方法失败，返回结果为null");
@@ -272,6 +551,7 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
             }
 
             String signature = result.getString(0);
+            freeNativeResult(result);
 
             if (loggable) {
                 log.debug("签名生成成功: {}", signature);
@@ -287,32 +567,36 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         }
     }
 
-    /**
-     * 重载方法：使用Map格式的header参数
-     *
-     * @param url       API请求的URL
-     * @param headerMap HTTP请求头的Map，key为header名称，value为header值
-     * @return 生成的签名字符串，失败时返回null
-     */
-    public String generateSignature(String url, Map<String, String> headerMap) {
-        if (headerMap == null || headerMap.isEmpty()) {
-            return generateSignature(url, "");
+    private void freeNativeResult(UnidbgPointer result) {
+        if (freeSymbol == null) {
+            return;
         }
-
-        // 将Map转换为\r\n分隔的字符串格式
-        StringBuilder headerBuilder = new StringBuilder();
-        for (Map.Entry<String, String> entry : headerMap.entrySet()) {
-            headerBuilder.append(entry.getKey()).append("\r\n")
-                .append(entry.getValue()).append("\r\n");
+        try {
+            freeSymbol.call(emulator, result);
+        } catch (Exception e) {
+            if (loggable) {
+                log.debug("释放签名结果缓冲区失败", e);
+            }
         }
+    }
 
-        // 移除最后的\r\n
-        String header = headerBuilder.toString();
-        if (header.endsWith("\r\n")) {
-            header = header.substring(0, header.length() - 2);
+    /**
+     * 将 header map 拼接为 signer 需要的 key\r\nvalue\r\n... 字符串（末尾无 CRLF），与 {@link NativeArgumentBuffer} 的编码一致。
+     * <p>
+     * 供缓冲区容量不足时的回退路径、调试日志与基准对照组共用。
+     */
+    public static String joinHeaders(Map<String, String> headerMap) {
+        // 每个 header 约 key(20)+CRLF(2)+value(50)=72，条目间再加 CRLF(2)。
+        StringBuilder headerBuilder = new StringBuilder(headerMap.size() * 74);
+        boolean first = true;
+        for (Map.Entry<String, String> entry : headerMap.entrySet()) {
+            if (!first) {
+                headerBuilder.append("\r\n");
+            }
+            headerBuilder.append(entry.getKey()).append("\r\n").append(entry.getValue());
+            first = false;
         }
-
-        return generateSignature(url, header);
+        return headerBuilder.toString();
     }
 
     /**
@@ -326,46 +610,104 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
     }
 
     // 环境补充相关方法
+
+    /**
+     * 构建 JNI 回调分发表并预先解析常用 DvmClass、缓存固定返回值；须在 JNI_OnLoad 之前调用。
+     */
+    private void initJniDispatch(VM vm) {
+        DvmClass threadClass = vm.resolveClass("java/lang/Thread");
+        stackTraceElementClass = vm.resolveClass("java/lang/StackTraceElement");
+        longClass = vm.resolveClass("java/lang/Long");
+
+        msDataPath = new StringObject(vm, "/data/user/0/" + PACKAGE_NAME + "/files/.msdata");
+        booleanTrue = DvmBoolean.valueOf(vm, true);
+        versionCode = vm.resolveClass("java/lang/Integer").newObject(68132);
+        versionName = new StringObject(vm, "6.8.1.32");
+        certArray = new ByteArray(vm, resources.msCert().clone());
+        currentThread = threadClass.newObject("main");
+        syntheticStackTrace = buildSyntheticStackTrace(vm);
+
+        staticObjectCalls.put("com/bytedance/mobsec/metasec/ml/MS->b(IIJLjava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;",
+            (v, self, args) -> handleMSMethod(args.getIntArg(0)));
+        staticObjectCalls.put("java/lang/Thread->currentThread()Ljava/lang/Thread;", (v, self, args) -> currentThread);
+
+        objectCalls.put("java/lang/Thread->getStackTrace()[Ljava/lang/StackTraceElement;", (v, self, args) -> syntheticStackTrace);
+        objectCalls.put("java/lang/StackTraceElement->getClassName()Ljava/lang/String;",
+            (v, self, args) -> self.getValue() instanceof SyntheticFrame frame
+                ? frame.className()
+                : new StringObject(v, ((StackTraceElement) self.getValue()).getClassName()));
+        objectCalls.put("java/lang/StackTraceElement->getMethodName()Ljava/lang/String;",
+            (v, self, args) -> self.getValue() instanceof SyntheticFrame frame
+                ? frame.methodName()
+                : new StringObject(v, ((StackTraceElement) self.getValue()).getMethodName()));
+        objectCalls.put("java/lang/Thread->getBytes(Ljava/lang/String;)[B", (v, self, args) -> {
+            String arg0 = (String) args.getObjectArg(0).getValue();
+            if (loggable) {
+                log.debug("java/lang/Thread->getBytes arg0: {}", arg0);
+            }
+            return new ByteArray(v, arg0.getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    /**
+     * 固定的短调用栈（Android 上由 MS 入口发起的调用链），替代逐帧包装宿主 JVM 的真实调用栈。
+     */
+    private ArrayObject buildSyntheticStackTrace(VM vm) {
+        StackTraceElement[] elements = {
+            new StackTraceElement("dalvik.system.VMStack", "getThreadStackTrace", "VMStack.java", -2),
+            new StackTraceElement("java.lang.Thread", "getStackTrace", "Thread.java", 1538),
+            new StackTraceElement("com.bytedance.mobsec.metasec.ml.MS", "b", null, -2),
+            new StackTraceElement("java.lang.Thread", "run", "Thread.java", 764)
+        };
+        DvmObject<?>[] frames = new DvmObject<?>[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            StackTraceElement element = elements[i];
+            frames[i] = stackTraceElementClass.newObject(new SyntheticFrame(
+                new StringObject(vm, element.getClassName()),
+                new StringObject(vm, element.getMethodName())));
+        }
+        return new ArrayObject(frames);
+    }
+
+    private void countJniCall(String signature) {
+        if (!jniReady) {
+            // JNI_OnLoad 阶段的回调不计入签名统计
+            return;
+        }
+        LongAdder counter = jniCounters.get(signature);
+        if (counter == null) {
+            counter = JniCallStats.counter(signature);
+            jniCounters.put(signature, counter);
+        }
+        counter.increment();
+    }
+
     @Override
     public DvmObject<?> callStaticObjectMethodV(BaseVM vm, DvmClass dvmClass, String signature, VaList vaList) {
-        return switch (signature) {
-            case "com/bytedance/mobsec/metasec/ml/MS->b(IIJLjava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;" -> {
-                int i = vaList.getIntArg(0);
-                yield handleMSMethod(vm, i);
-            }
-            case "java/lang/Thread->currentThread()Ljava/lang/Thread;" ->
-                vm.resolveClass("java/lang/Thread").newObject(Thread.currentThread());
-            default -> super.callStaticObjectMethodV(vm, dvmClass, signature, vaList);
-        };
+        countJniCall(signature);
+        ObjectCall call = staticObjectCalls.get(signature);
+        return call != null ? call.call(vm, null, vaList) : super.callStaticObjectMethodV(vm, dvmClass, signature, vaList);
     }
 
     /**
-     * 处理MS方法调用
+     * 处理MS方法调用；固定值直接返回初始化时缓存的对象
      */
-    private DvmObject<?> handleMSMethod(BaseVM vm, int methodId) {
+    private DvmObject<?> handleMSMethod(int methodId) {
         return switch (methodId) {
-            case 65539 -> new StringObject(vm, "/data/user/0/" + PACKAGE_NAME + "/files/.msdata");
-            case 33554433, 33554434 -> DvmBoolean.valueOf(vm, true);
-            case 16777232 -> vm.resolveClass("java.lang.Integer").newObject(68132);
-            case 16777233 -> new StringObject(vm, "6.8.1.32");
+            case 65539 -> msDataPath;
+            case 33554433, 33554434 -> booleanTrue;
+            case 16777232 -> versionCode;
+            case 16777233 -> versionName;
             case 16777218 -> {
-                try {
-                    if (tempMsCertFile != null && tempMsCertFile.exists()) {
-                        byte[] fileData = Files.readAllBytes(tempMsCertFile.toPath());
-                        if (loggable) {
-                            log.debug("成功读取证书文件: {} bytes", fileData.length);
-                        }
-                        yield new ByteArray(vm, fileData);
-                    } else {
-                        log.warn("证书文件不存在: {}", tempMsCertFile);
-                        yield null;
-                    }
-                } catch (IOException e) {
-                    log.error("读取证书文件失败", e);
-                    yield null;
+                // native 可能经 Release*ArrayElements 回写数组，每次返回前用共享证书覆盖回原始内容
+                byte[] certData = certArray.getValue();
+                System.arraycopy(resources.msCert(), 0, certData, 0, certData.length);
+                if (loggable) {
+                    log.debug("返回证书数据: {} bytes", certData.length);
                 }
+                yield certArray;
             }
-            case 268435470 -> vm.resolveClass("java/lang/Long").newObject(System.currentTimeMillis());
+            case 268435470 -> longClass.newObject(deterministic != null ? deterministic.currentTimeMillis() : System.currentTimeMillis());
             default -> {
                 if (loggable) {
                     log.debug("未处理的MS方法ID: {}", methodId);
@@ -375,40 +717,16 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         };
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public DvmObject<?> callObjectMethodV(BaseVM vm, DvmObject<?> dvmObject, String signature, VaList vaList) {
-        return switch (signature) {
-            case "java/lang/Thread->getStackTrace()[Ljava/lang/StackTraceElement;" -> {
-                StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-                @SuppressWarnings({"unchecked", "rawtypes"})
-                DvmObject<?>[] objs = (DvmObject<?>[]) new DvmObject[elements.length];
-                for (int i = 0; i < elements.length; i++) {
-                    objs[i] = vm.resolveClass("java/lang/StackTraceElement").newObject(elements[i]);
-                }
-                yield new ArrayObject(objs);
-            }
-            case "java/lang/StackTraceElement->getClassName()Ljava/lang/String;" -> {
-                StackTraceElement element = (StackTraceElement) dvmObject.getValue();
-                yield new StringObject(vm, element.getClassName());
-            }
-            case "java/lang/StackTraceElement->getMethodName()Ljava/lang/String;" -> {
-                StackTraceElement element = (StackTraceElement) dvmObject.getValue();
-                yield new StringObject(vm, element.getMethodName());
-            }
-            case "java/lang/Thread->getBytes(Ljava/lang/String;)[B" -> {
-                String arg0 = (String) vaList.getObjectArg(0).getValue();
-                if (loggable) {
-                    log.debug("java/lang/Thread->getBytes arg0: {}", arg0);
-                }
-                yield new ByteArray(vm, arg0.getBytes(StandardCharsets.UTF_8));
-            }
-            default -> super.callObjectMethodV(vm, dvmObject, signature, vaList);
-        };
+        countJniCall(signature);
+        ObjectCall call = objectCalls.get(signature);
+        return call != null ? call.call(vm, dvmObject, vaList) : super.callObjectMethodV(vm, dvmObject, signature, vaList);
     }
 
     @Override
     public long callLongMethodV(BaseVM vm, DvmObject<?> dvmObject, String signature, VaList vaList) {
+        countJniCall(signature);
         if ("java/lang/Long->longValue()J".equals(signature)) {
             Object value = dvmObject.getValue();
             if (value instanceof Long l) {
@@ -420,6 +738,7 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     @Override
     public int getStaticIntField(BaseVM vm, DvmClass dvmClass, String signature) {
+        countJniCall(signature);
         if (loggable) {
             log.debug("getStaticIntField: {}", signature);
         }
@@ -434,6 +753,7 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     @Override
     public void callVoidMethod(BaseVM vm, DvmObject<?> dvmObject, String signature, VarArg varArg) {
+        countJniCall(signature);
         if (loggable) {
             log.debug("callVoidMethod: {}", signature);
         }
@@ -449,6 +769,7 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     @Override
     public int callIntMethodV(BaseVM vm, DvmObject<?> dvmObject, String signature, VaList vaList) {
+        countJniCall(signature);
         if ("java/lang/Integer->intValue()I".equals(signature)) {
             Object value = dvmObject.getValue();
             if (value instanceof Integer i) {
@@ -463,6 +784,7 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
 
     @Override
     public boolean callBooleanMethodV(BaseVM vm, DvmObject<?> dvmObject, String signature, VaList vaList) {
+        countJniCall(signature);
         if ("java/lang/Boolean->booleanValue()Z".equals(signature)) {
             Object value = dvmObject.getValue();
             if (value instanceof Boolean b) {
@@ -475,6 +797,20 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         return super.callBooleanMethodV(vm, dvmObject, signature, vaList);
     }
 
+    /**
+     * 返回对象的 JNI 回调处理函数
+     */
+    @FunctionalInterface
+    private interface ObjectCall {
+        DvmObject<?> call(BaseVM vm, DvmObject<?> self, VaList args);
+    }
+
+    /**
+     * 合成调用栈帧，类名/方法名在初始化时即包装为 StringObject
+     */
+    private record SyntheticFrame(StringObject className, StringObject methodName) {
+    }
+
     @Override
     public FileResult resolve(Emulator<AndroidFileIO> emulator, String pathname, int oflags) {
         if (loggable) {
@@ -482,18 +818,29 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
         }
 
         // 处理libmetasec_ml.so文件
-        if (pathname.contains("libmetasec_ml.so")) {
-            return FileResult.success(new SimpleFileIO(oflags, tempSoMetasecMlFile, pathname));
+        if (pathname.contains(SO_METASEC_ML_NAME)) {
+            return FileResult.success(new ByteArrayFileIO(oflags, pathname, resources.soMetasecMl()));
         }
 
         // 处理APK文件
         if (pathname.equals(APK_INSTALL_PATH)) {
-            return FileResult.success(new SimpleFileIO(oflags, tempApkFile, pathname));
+            return FileResult.success(new ByteArrayFileIO(oflags, pathname, resources.apk()));
+        }
+
+        if (deterministic != null && (pathname.equals("/dev/urandom") || pathname.equals("/dev/random"))) {
+            return FileResult.success(new DeterministicSyscallHandler.SeededRandomFileIO(emulator, pathname, deterministic));
         }
 
         return null;
     }
 
+    /**
+     * 释放进程内共享的只读资源缓存（所有实例销毁后调用）
+     */
+    public static void releaseSharedResources() {
+        SignerResources.clear();
+    }
+
     /**
      * 释放资源
      */
@@ -504,6 +851,20 @@ public class IdleFQ extends AbstractJni implements IOResolver<AndroidFileIO> {
                 return;
             }
             destroyed = true;
+            if (profiler != null) {
+                profiler.detach();
+                profiler = null;
+            }
+            if (snapshot != null) {
+                try {
+                    snapshot.free(emulator);
+                } catch (Exception e) {
+                    if (loggable) {
+                        log.debug("释放模拟器快照失败", e);
+                    }
+                }
+                snapshot = null;
+            }
             try {
                 emulator.close();
                 log.info("资源已释放");
@@ -0,0 +1,56 @@
+package com.mengying.fqnovel.unidbg;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内 JNI 回调计数：按回调签名累计调用次数，用于定位单次签名中占主导的 JNI 调用。
+ * <p>
+ * 各 IdleFQ 实例在首次遇到某个回调签名时取得对应计数器并在本地缓存，热路径只做一次 increment。
+ */
+public final class JniCallStats {
+
+    private static final Map<String, LongAdder> CALLS = new ConcurrentHashMap<>();
+    private static final LongAdder SIGNATURES = new LongAdder();
+
+    private JniCallStats() {
+    }
+
+    static LongAdder counter(String signature) {
+        return CALLS.computeIfAbsent(signature, key -> new LongAdder());
+    }
+
+    static void recordSignature() {
+        SIGNATURES.increment();
+    }
+
+    /**
+     * 已完成（调用过 native 签名函数）的签名次数
+     */
+    public static long signatures() {
+        return SIGNATURES.sum();
+    }
+
+    /**
+     * 按调用次数降序返回前 limit 个回调，值为平均每次签名的调用次数（尚无签名时为总次数）。
+     */
+    public static Map<String, Double> topPerSignature(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(CALLS.size());
+        for (Map.Entry<String, LongAdder> entry : CALLS.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        long signatures = Math.max(1L, SIGNATURES.sum());
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            Map.Entry<String, Long> entry = entries.get(i);
+            result.put(entry.getKey(), Math.round(entry.getValue() * 100.0 / signatures) / 100.0);
+        }
+        return result;
+    }
+}
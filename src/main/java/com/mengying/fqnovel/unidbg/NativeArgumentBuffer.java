@@ -0,0 +1,135 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.github.unidbg.memory.Memory;
+import com.github.unidbg.memory.MemoryBlock;
+import com.github.unidbg.pointer.UnidbgPointer;
+
+import java.util.Map;
+
+/**
+ * 模拟器内预分配、可复用的 C 字符串参数缓冲区。
+ * <p>
+ * 参数按 UTF-8 直接编码到 Java 侧暂存数组，再一次性写入模拟器内存并补 NUL，
+ * 热路径不再为每次调用创建中间 String/byte[]。内容超过容量时 {@code write} 返回 false，由调用方回退到原有传参方式。
+ * 非线程安全：调用方需持有 signer 实例锁。
+ */
+final class NativeArgumentBuffer {
+
+    private final UnidbgPointer pointer;
+    private final byte[] scratch;
+
+    private NativeArgumentBuffer(UnidbgPointer pointer, int capacity) {
+        this.pointer = pointer;
+        this.scratch = new byte[capacity];
+    }
+
+    /**
+     * 在模拟器中映射一块缓冲区；须在记录快照之前调用，保证快照回滚后地址仍然有效。
+     */
+    static NativeArgumentBuffer allocate(Memory memory, int capacity) {
+        MemoryBlock block = memory.malloc(capacity, false);
+        return new NativeArgumentBuffer(block.getPointer(), capacity);
+    }
+
+    long address() {
+        return pointer.peer;
+    }
+
+    boolean write(String value) {
+        int end = putUtf8(scratch, 0, value == null ? "" : value);
+        return end >= 0 && flush(end);
+    }
+
+    /**
+     * 按 signer 需要的 key\r\nvalue\r\nkey\r\nvalue 格式写入 header（末尾无 CRLF）。
+     */
+    boolean write(Map<String, String> headers) {
+        int pos = 0;
+        boolean first = true;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (!first) {
+                pos = putCrlf(scratch, pos);
+            }
+            pos = putUtf8(scratch, pos, entry.getKey());
+            pos = putCrlf(scratch, pos);
+            pos = putUtf8(scratch, pos, entry.getValue());
+            if (pos < 0) {
+                return false;
+            }
+            first = false;
+        }
+        return flush(pos);
+    }
+
+    private boolean flush(int length) {
+        if (length < 0 || length >= scratch.length) {
+            return false;
+        }
+        scratch[length] = 0;
+        pointer.write(0, scratch, 0, length + 1);
+        return true;
+    }
+
+    private static int putCrlf(byte[] dst, int pos) {
+        if (pos < 0 || pos + 2 >= dst.length) {
+            return -1;
+        }
+        dst[pos] = '\r';
+        dst[pos + 1] = '\n';
+        return pos + 2;
+    }
+
+    /**
+     * 将字符串按 UTF-8 写入 dst，返回写入后的位置；空间不足（需为 NUL 预留 1 字节）返回 -1。
+     * 孤立代理项与 {@link String#getBytes} 一致地替换为 '?'。
+     */
+    private static int putUtf8(byte[] dst, int pos, String value) {
+        if (pos < 0) {
+            return -1;
+        }
+        if (value == null) {
+            value = "null";
+        }
+        int limit = dst.length - 1;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (pos >= limit) {
+                    return -1;
+                }
+                dst[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                if (pos + 2 > limit) {
+                    return -1;
+                }
+                dst[pos++] = (byte) (0xC0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    if (pos + 4 > limit) {
+                        return -1;
+                    }
+                    int cp = Character.toCodePoint(c, value.charAt(++i));
+                    dst[pos++] = (byte) (0xF0 | (cp >> 18));
+                    dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    if (pos >= limit) {
+                        return -1;
+                    }
+                    dst[pos++] = '?';
+                }
+            } else {
+                if (pos + 3 > limit) {
+                    return -1;
+                }
+                dst[pos++] = (byte) (0xE0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,242 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.github.unidbg.Emulator;
+import com.github.unidbg.Module;
+import com.github.unidbg.arm.ARMEmulator;
+import com.github.unidbg.arm.backend.Backend;
+import com.github.unidbg.arm.backend.BlockHook;
+import com.github.unidbg.arm.backend.InterruptHook;
+import com.github.unidbg.arm.backend.UnHook;
+import com.mengying.fqnovel.dto.SignerProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import unicorn.Arm64Const;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 签名函数 native 热点采集（可选）：通过 block hook 统计基本块执行次数、通过 interrupt hook 统计系统调用，
+ * 只在签名函数执行期间计数，JNI_OnLoad 与快照回滚不计入。
+ * <p>
+ * 每个 IdleFQ 实例挂一个采集器，报告时按“模块名+偏移”合并所有实例（含已销毁实例）的结果。
+ * 开启后每个基本块都会回调到 Java，签名会明显变慢，仅用于定位热点。
+ */
+public final class NativeProfiler implements BlockHook, InterruptHook {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeProfiler.class);
+    // ARM64 指令定长 4 字节，用基本块字节数估算指令数
+    private static final int INSTRUCTION_BYTES = 4;
+
+    private static volatile boolean enabled = false;
+    private static final Set<NativeProfiler> LIVE = ConcurrentHashMap.newKeySet();
+    private static final LongAdder SIGNATURES = new LongAdder();
+    // 已销毁实例的累计结果（按 RETIRED 加锁）
+    private static final Map<String, long[]> RETIRED_BLOCKS = new HashMap<>();
+    private static final Map<String, Long> RETIRED_SYSCALLS = new HashMap<>();
+    private static final Object RETIRED = new Object();
+
+    private final Backend backend;
+    private final List<Module> modules;
+    // 以基本块绝对地址为键：{执行次数, 累计字节数}；按 this 加锁
+    private final Map<Long, long[]> blocks = new HashMap<>();
+    private final Map<Integer, long[]> syscalls = new HashMap<>();
+    private final List<UnHook> unHooks = new ArrayList<>(2);
+    private volatile boolean active = false;
+
+    private NativeProfiler(Emulator<?> emulator) {
+        this.backend = emulator.getBackend();
+        List<Module> loaded = new ArrayList<>(emulator.getMemory().getLoadedModules());
+        loaded.sort(Comparator.comparingLong(m -> m.base));
+        this.modules = List.copyOf(loaded);
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为模拟器挂载采集 hook；未开启或当前 CPU 后端不支持 hook（如 dynarmic）时返回 null。
+     */
+    static NativeProfiler attach(Emulator<?> emulator) {
+        if (!enabled) {
+            return null;
+        }
+        NativeProfiler profiler = new NativeProfiler(emulator);
+        try {
+            // begin > end 表示整个地址空间
+            profiler.backend.hook_add_new((BlockHook) profiler, 1, 0, null);
+            profiler.backend.hook_add_new((InterruptHook) profiler, null);
+        } catch (RuntimeException e) {
+            log.warn("当前 CPU 后端不支持热点采集 hook，已跳过: backend={}, error={}",
+                profiler.backend.getClass().getSimpleName(), e.getMessage());
+            profiler.detach();
+            return null;
+        }
+        LIVE.add(profiler);
+        return profiler;
+    }
+
+    void begin() {
+        SIGNATURES.increment();
+        active = true;
+    }
+
+    void end() {
+        active = false;
+    }
+
+    @Override
+    public void hookBlock(Backend backend, long address, int size, Object user) {
+        if (!active) {
+            return;
+        }
+        synchronized (this) {
+            long[] counter = blocks.computeIfAbsent(address, key -> new long[2]);
+            counter[0]++;
+            counter[1] += size;
+        }
+    }
+
+    @Override
+    public void hook(Backend backend, int intno, int swi, Object user) {
+        if (!active || intno != ARMEmulator.EXCP_SWI) {
+            return;
+        }
+        int number = backend.reg_read(Arm64Const.UC_ARM64_REG_X8).intValue();
+        synchronized (this) {
+            syscalls.computeIfAbsent(number, key -> new long[1])[0]++;
+        }
+    }
+
+    @Override
+    public void onAttach(UnHook unHook) {
+        unHooks.add(unHook);
+    }
+
+    /**
+     * 卸载 hook 并把本实例的结果并入累计结果；须在模拟器关闭前调用。
+     */
+    @Override
+    public void detach() {
+        active = false;
+        for (UnHook unHook : unHooks) {
+            try {
+                unHook.unhook();
+            } catch (RuntimeException ignored) {
+                // 模拟器即将关闭
+            }
+        }
+        unHooks.clear();
+        if (!LIVE.remove(this)) {
+            return;
+        }
+        synchronized (RETIRED) {
+            mergeInto(RETIRED_BLOCKS, RETIRED_SYSCALLS);
+        }
+    }
+
+    private synchronized void mergeInto(Map<String, long[]> blockTotals, Map<String, Long> syscallTotals) {
+        for (Map.Entry<Long, long[]> entry : blocks.entrySet()) {
+            long[] total = blockTotals.computeIfAbsent(locate(entry.getKey()), key -> new long[2]);
+            total[0] += entry.getValue()[0];
+            total[1] += entry.getValue()[1];
+        }
+        for (Map.Entry<Integer, long[]> entry : syscalls.entrySet()) {
+            syscallTotals.merge(syscallName(entry.getKey()), entry.getValue()[0], Long::sum);
+        }
+    }
+
+    private String locate(long address) {
+        for (Module module : modules) {
+            if (address >= module.base && address < module.base + module.size) {
+                return module.name + "+0x" + Long.toHexString(address - module.base);
+            }
+        }
+        return "0x" + Long.toHexString(address);
+    }
+
+    /**
+     * 汇总全部实例的热点报告。
+     *
+     * @param top 返回的热点基本块数量
+     */
+    public static SignerProfile report(int top) {
+        Map<String, long[]> blockTotals = new HashMap<>();
+        Map<String, Long> syscallTotals = new HashMap<>();
+        synchronized (RETIRED) {
+            for (Map.Entry<String, long[]> entry : RETIRED_BLOCKS.entrySet()) {
+                blockTotals.put(entry.getKey(), entry.getValue().clone());
+            }
+            syscallTotals.putAll(RETIRED_SYSCALLS);
+        }
+        for (NativeProfiler profiler : LIVE) {
+            profiler.mergeInto(blockTotals, syscallTotals);
+        }
+
+        long totalInstructions = 0L;
+        for (long[] counter : blockTotals.values()) {
+            totalInstructions += counter[1] / INSTRUCTION_BYTES;
+        }
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(blockTotals.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[1]).reversed());
+        List<SignerProfile.HotBlock> hotBlocks = new ArrayList<>(Math.min(top, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < top; i++) {
+            Map.Entry<String, long[]> entry = sorted.get(i);
+            long instructions = entry.getValue()[1] / INSTRUCTION_BYTES;
+            double share = totalInstructions > 0 ? Math.round(instructions * 10000.0 / totalInstructions) / 100.0 : 0.0;
+            hotBlocks.add(new SignerProfile.HotBlock(entry.getKey(), entry.getValue()[0], instructions, share));
+        }
+
+        long signatures = SIGNATURES.sum();
+        long divisor = Math.max(1L, signatures);
+        List<Map.Entry<String, Long>> sortedSyscalls = new ArrayList<>(syscallTotals.entrySet());
+        sortedSyscalls.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Double> syscallsPerSignature = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : sortedSyscalls) {
+            syscallsPerSignature.put(entry.getKey(), Math.round(entry.getValue() * 100.0 / divisor) / 100.0);
+        }
+
+        return new SignerProfile(enabled, signatures, totalInstructions, hotBlocks, syscallsPerSignature,
+            JniCallStats.topPerSignature(top));
+    }
+
+    private static String syscallName(int number) {
+        String name = switch (number) {
+            case 29 -> "ioctl";
+            case 48 -> "faccessat";
+            case 56 -> "openat";
+            case 57 -> "close";
+            case 63 -> "read";
+            case 64 -> "write";
+            case 78 -> "readlinkat";
+            case 79 -> "newfstatat";
+            case 80 -> "fstat";
+            case 98 -> "futex";
+            case 113 -> "clock_gettime";
+            case 167 -> "prctl";
+            case 169 -> "gettimeofday";
+            case 172 -> "getpid";
+            case 178 -> "gettid";
+            case 214 -> "brk";
+            case 215 -> "munmap";
+            case 222 -> "mmap";
+            case 226 -> "mprotect";
+            case 233 -> "madvise";
+            case 278 -> "getrandom";
+            default -> "syscall";
+        };
+        return name + "(" + number + ")";
+    }
+}
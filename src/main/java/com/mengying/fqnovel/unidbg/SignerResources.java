@@ -0,0 +1,138 @@
+package com.mengying.fqnovel.unidbg;
+
+import com.mengying.fqnovel.utils.Texts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * signer 依赖的只读资源（APK、so、证书）的进程内共享副本。
+ * <p>
+ * 资源只从 classpath/磁盘读取一次，池内所有 IdleFQ 实例共用同一份字节，
+ * 初始化与签名热路径都不再触发磁盘 I/O。调用方不得修改返回的数组。
+ */
+final class SignerResources {
+
+    private static final Logger log = LoggerFactory.getLogger(SignerResources.class);
+
+    private static final String BASE_PATH = "com/dragon/read/oversea/gp";
+    private static final String DEFAULT_APK_CLASSPATH = BASE_PATH + "/apk/base.apk";
+    private static final String SO_METASEC_ML_PATH = BASE_PATH + "/lib/libmetasec_ml.so";
+    private static final String SO_C_SHARE_PATH = BASE_PATH + "/lib/libc++_shared.so";
+    private static final String MS_CERT_FILE_PATH = BASE_PATH + "/other/ms_16777218.bin";
+
+    private static final Map<String, SignerResources> CACHE = new ConcurrentHashMap<>();
+
+    private final byte[] apk;
+    private final byte[] soMetasecMl;
+    private final byte[] soCShare;
+    private final byte[] msCert;
+
+    private SignerResources(byte[] apk, byte[] soMetasecMl, byte[] soCShare, byte[] msCert) {
+        this.apk = apk;
+        this.soMetasecMl = soMetasecMl;
+        this.soCShare = soCShare;
+        this.msCert = msCert;
+    }
+
+    /**
+     * 获取（必要时加载）与 APK 配置对应的共享资源。
+     */
+    static SignerResources get(String apkPath, String apkClasspath) throws IOException {
+        String key = Objects.toString(Texts.trimToNull(apkPath), "") + '|' + Objects.toString(Texts.trimToNull(apkClasspath), "");
+        SignerResources cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (CACHE) {
+            cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            long startNs = System.nanoTime();
+            SignerResources loaded = new SignerResources(
+                loadApk(apkPath, apkClasspath),
+                readClasspath(SO_METASEC_ML_PATH),
+                readClasspath(SO_C_SHARE_PATH),
+                readClasspath(MS_CERT_FILE_PATH)
+            );
+            CACHE.put(key, loaded);
+            log.info("signer 资源已加载到内存: apk={} bytes, libmetasec_ml={} bytes, libc++_shared={} bytes, cert={} bytes, costMs={}",
+                loaded.apk.length, loaded.soMetasecMl.length, loaded.soCShare.length, loaded.msCert.length,
+                (System.nanoTime() - startNs) / 1_000_000L);
+            return loaded;
+        }
+    }
+
+    /**
+     * 释放共享资源缓存（进程退出或签名服务销毁时调用）。
+     */
+    static void clear() {
+        CACHE.clear();
+    }
+
+    byte[] apk() {
+        return apk;
+    }
+
+    byte[] soMetasecMl() {
+        return soMetasecMl;
+    }
+
+    byte[] soCShare() {
+        return soCShare;
+    }
+
+    byte[] msCert() {
+        return msCert;
+    }
+
+    private static byte[] loadApk(String apkPath, String apkClasspath) throws IOException {
+        String configuredApkPath = Texts.trimToNull(apkPath);
+        if (configuredApkPath != null) {
+            Path apkFile = Path.of(configuredApkPath);
+            if (!Files.isRegularFile(apkFile)) {
+                throw new IOException("APK 文件不存在: " + apkFile.toAbsolutePath());
+            }
+            return Files.readAllBytes(apkFile);
+        }
+
+        String configuredApkClasspath = Texts.trimToNull(apkClasspath);
+        if (configuredApkClasspath != null) {
+            ClassPathResource resource = new ClassPathResource(configuredApkClasspath);
+            if (!resource.exists()) {
+                throw new IOException("未找到 APK classpath 资源: " + configuredApkClasspath);
+            }
+            return readResource(resource);
+        }
+
+        ClassPathResource resource = new ClassPathResource(DEFAULT_APK_CLASSPATH);
+        if (resource.exists()) {
+            return readResource(resource);
+        }
+
+        throw new IOException("未找到 APK：请配置 application.unidbg.apk-path（本地文件）或 application.unidbg.apk-classpath（classpath 资源）；默认查找 " + DEFAULT_APK_CLASSPATH);
+    }
+
+    private static byte[] readClasspath(String path) throws IOException {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (!resource.exists()) {
+            throw new IOException("资源文件不存在: " + path);
+        }
+        return readResource(resource);
+    }
+
+    private static byte[] readResource(ClassPathResource resource) throws IOException {
+        try (InputStream is = resource.getInputStream()) {
+            return is.readAllBytes();
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.mengying.fqnovel.utils;
 import org.springframework.http.ResponseEntity;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Locale;
@@ -11,10 +12,14 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * GZIP 压缩/解压缩工具类
- * 统一处理上游响应的 GZIP 解压逻辑
+ * 统一处理上游响应的 GZIP 解压逻辑；解压为字符串时走 {@link PooledGzipInflater}（多成员 gzip 回退到 {@link GZIPInputStream}），
+ * 交给 JSON 解析器的响应体流式解压，不经过中间缓冲区。
  */
 public final class GzipUtils {
 
+    // 流式解压的输入缓冲区，减少 Inflater 的 JNI 调用次数
+    private static final int INFLATE_BUFFER_BYTES = 8 * 1024;
+
     private GzipUtils() {}
 
     private static boolean hasGzipMagic(byte[] data) {
@@ -33,14 +38,17 @@ public final class GzipUtils {
     }
 
     private static String ungzip(byte[] gzipData) throws Exception {
-        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(gzipData))) {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = gzipInputStream.read(buffer)) != -1) {
-                byteArrayOutputStream.write(buffer, 0, length);
+        try (PooledGzipInflater.Context inflated = PooledGzipInflater.inflate(gzipData)) {
+            if (inflated != null) {
+                return inflated.decodeUtf8();
             }
-            return utf8(byteArrayOutputStream.toByteArray());
+        }
+        return ungzipStream(gzipData);
+    }
+
+    private static String ungzipStream(byte[] gzipData) throws Exception {
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(gzipData), INFLATE_BUFFER_BYTES)) {
+            return utf8(gzipInputStream.readAllBytes());
         }
     }
 
@@ -82,6 +90,25 @@ public final class GzipUtils {
         }
     }
 
+    /**
+     * 以流的形式打开上游响应体，需要时边读边解压，供 JSON 解析器直接消费，不生成中间字节数组或字符串。
+     * <p>
+     * 判断规则与 {@link #decodeUpstreamResponse} 相同；误标为 gzip 但没有 gzip 魔数的内容按原文读取。
+     * 压缩数据损坏时，读取过程中抛出 {@link java.util.zip.ZipException} 或 {@link java.io.EOFException}。
+     *
+     * @param response HTTP 响应
+     * @return 解码后的字节流，响应体为空时返回空流
+     */
+    public static InputStream openUpstreamBody(ResponseEntity<byte[]> response) throws IOException {
+        byte[] body = response == null ? null : response.getBody();
+        if (body == null || body.length == 0) {
+            return InputStream.nullInputStream();
+        }
+        InputStream raw = new ByteArrayInputStream(body);
+        // 只有魔数吻合时才解压：Content-Encoding 为 gzip 但内容未压缩时，按原文读取与旧逻辑的兜底一致
+        return hasGzipMagic(body) ? new GZIPInputStream(raw, INFLATE_BUFFER_BYTES) : raw;
+    }
+
     /**
      * 统一解码上游响应（自动处理 GZIP 压缩）
      * 根据 Content-Encoding 头部和魔数自动判断是否需要解压
@@ -0,0 +1,24 @@
+package com.mengying.fqnovel.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按前缀 + 序号命名的守护线程工厂。
+ */
+public final class NamedDaemonThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger seq = new AtomicInteger(0);
+
+    public NamedDaemonThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, prefix + seq.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
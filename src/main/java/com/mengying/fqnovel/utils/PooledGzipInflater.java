@@ -0,0 +1,210 @@
+package com.mengying.fqnovel.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * 池化的单成员 gzip 解压：复用 {@link Inflater}（native zlib 上下文）、CRC32 与输出缓冲区，
+ * 按 gzip 尾部的 ISIZE 一次性预分配输出容量，解压结果直接按 UTF-8 解码为字符串。
+ * 只用于需要完整字符串的场景；交给解析器的上游响应体走流式解压，避免为大响应预分配整块输出。
+ * <p>
+ * 借出/归还使用非阻塞的 poll/offer，临界区极短，可在虚拟线程上使用；池满或缓冲区过大时直接丢弃，不会无限持有内存。
+ * 多成员 gzip（尾部之后仍有数据）返回 null，由调用方回退到 {@link java.util.zip.GZIPInputStream}。
+ */
+final class PooledGzipInflater {
+
+    private static final int MAX_POOLED = 8;
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+    // 归还时超过该大小的输出缓冲区不保留，避免偶发的大响应长期占用堆
+    private static final int MAX_RETAINED_BUFFER_BYTES = 2 * 1024 * 1024;
+    // ISIZE 超过该值时不按其预分配（可能是损坏数据或超过 4GB 回绕），改为按需扩容
+    private static final int MAX_PRESIZE_BYTES = 64 * 1024 * 1024;
+    private static final int HEADER_BYTES = 10;
+    private static final int TRAILER_BYTES = 8;
+
+    private static final int FLAG_HCRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+
+    private static final ArrayBlockingQueue<Context> POOL = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private PooledGzipInflater() {
+    }
+
+    /**
+     * 解压一个完整的 gzip 字节数组。
+     *
+     * @return 持有解压结果的上下文（用完须 close 归还），多成员 gzip 返回 null
+     * @throws ZipException 头部、压缩数据或尾部校验不合法
+     * @throws EOFException 数据被截断
+     */
+    static Context inflate(byte[] gzip) throws IOException {
+        int offset = headerLength(gzip);
+        Context context = acquire();
+        boolean success = false;
+        try {
+            long isize = readIntLE(gzip, gzip.length - 4);
+            // 多留 1 字节，使 zlib 在写满 ISIZE 后还能读到流结束标记，不触发一次多余的扩容
+            context.ensureCapacity(isize > 0 && isize < MAX_PRESIZE_BYTES ? (int) isize + 1 : INITIAL_BUFFER_BYTES, 0);
+            Inflater inflater = context.inflater;
+            inflater.setInput(gzip, offset, gzip.length - offset);
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == context.buffer.length) {
+                    context.ensureCapacity(Math.max(INITIAL_BUFFER_BYTES, length * 2), length);
+                }
+                int inflated = inflater.inflate(context.buffer, length, context.buffer.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Unexpected end of ZLIB input stream");
+                }
+                length += inflated;
+            }
+
+            int remaining = inflater.getRemaining();
+            if (remaining < TRAILER_BYTES) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            if (remaining > TRAILER_BYTES) {
+                return null;
+            }
+            int trailer = gzip.length - TRAILER_BYTES;
+            context.crc.update(context.buffer, 0, length);
+            if (readIntLE(gzip, trailer) != context.crc.getValue() || readIntLE(gzip, trailer + 4) != (length & 0xffffffffL)) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+            context.length = length;
+            success = true;
+            return context;
+        } catch (DataFormatException e) {
+            throw new ZipException(Texts.defaultIfBlank(e.getMessage(), "Invalid ZLIB data format"));
+        } finally {
+            if (!success) {
+                release(context);
+            }
+        }
+    }
+
+    private static int headerLength(byte[] data) throws IOException {
+        if (data.length < HEADER_BYTES + TRAILER_BYTES) {
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        if (data[0] != (byte) 0x1f || data[1] != (byte) 0x8b) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (data[2] != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = data[3] & 0xff;
+        int position = HEADER_BYTES;
+        if ((flags & FLAG_EXTRA) != 0) {
+            position += 2 + ((data[position] & 0xff) | (data[checkBounds(data, position + 1)] & 0xff) << 8);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            position = skipZeroTerminated(data, position);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            position = skipZeroTerminated(data, position);
+        }
+        if ((flags & FLAG_HCRC) != 0) {
+            position += 2;
+        }
+        return checkBounds(data, position + TRAILER_BYTES) - TRAILER_BYTES;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int position) throws EOFException {
+        int current = position;
+        while (data[checkBounds(data, current)] != 0) {
+            current++;
+        }
+        return current + 1;
+    }
+
+    private static int checkBounds(byte[] data, int position) throws EOFException {
+        if (position >= data.length) {
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        return position;
+    }
+
+    private static long readIntLE(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+            | (data[offset + 1] & 0xffL) << 8
+            | (data[offset + 2] & 0xffL) << 16
+            | (data[offset + 3] & 0xffL) << 24;
+    }
+
+    private static Context acquire() {
+        Context context = POOL.poll();
+        return context != null ? context : new Context();
+    }
+
+    private static void release(Context context) {
+        context.inflater.reset();
+        context.crc.reset();
+        context.length = 0;
+        if (context.buffer.length > MAX_RETAINED_BUFFER_BYTES) {
+            context.buffer = new byte[INITIAL_BUFFER_BYTES];
+        }
+        if (context.chars.length * 2L > MAX_RETAINED_BUFFER_BYTES) {
+            context.chars = new char[0];
+        }
+        if (!POOL.offer(context)) {
+            context.inflater.end();
+        }
+    }
+
+    /**
+     * 一次解压借出的资源与结果，close 后不得再读取结果。
+     */
+    static final class Context implements AutoCloseable {
+
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+        private char[] chars = new char[0];
+        private int length;
+
+        /**
+         * 按 UTF-8 解码解压结果：先解码到复用的字符缓冲区，再只按实际长度构造字符串，
+         * 避免 {@code new String(byte[], UTF_8)} 对非 ASCII 内容按最坏情况分配再裁剪。
+         * 非法字节按替换字符处理，与 {@code new String} 一致。
+         */
+        String decodeUtf8() {
+            if (chars.length < length) {
+                chars = new char[length];
+            }
+            CharBuffer out = CharBuffer.wrap(chars);
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(buffer, 0, length), out, true);
+            decoder.flush(out);
+            return new String(chars, 0, out.position());
+        }
+
+        private void ensureCapacity(int capacity, int used) {
+            if (buffer.length < capacity) {
+                byte[] grown = new byte[capacity];
+                System.arraycopy(buffer, 0, grown, 0, used);
+                buffer = grown;
+            }
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mengying.fqnovel.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 进程内存读取（Linux /proc/self/status），非 Linux 平台返回 -1。
+ */
+public final class ProcessMemory {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * 当前进程常驻内存（VmRSS），单位字节；不可用时返回 -1。
+     */
+    public static long rssBytes() {
+        return readStatusKb(PROC_STATUS, "VmRSS:");
+    }
+
+    /**
+     * 指定进程（如签名工作进程）的常驻内存，单位字节；进程已退出或不可读时返回 -1。
+     */
+    public static long rssBytes(long pid) {
+        return readStatusKb(Path.of("/proc", Long.toString(pid), "status"), "VmRSS:");
+    }
+
+    /**
+     * 当前进程峰值常驻内存（VmHWM），单位字节；不可用时返回 -1。
+     */
+    public static long peakRssBytes() {
+        return readStatusKb(PROC_STATUS, "VmHWM:");
+    }
+
+    private static long readStatusKb(Path status, String key) {
+        if (!Files.isReadable(status)) {
+            return -1L;
+        }
+        try {
+            List<String> lines = Files.readAllLines(status, StandardCharsets.US_ASCII);
+            for (String line : lines) {
+                if (!line.startsWith(key)) {
+                    continue;
+                }
+                String value = line.substring(key.length()).trim();
+                int space = value.indexOf(' ');
+                if (space > 0) {
+                    value = value.substring(0, space);
+                }
+                return Long.parseLong(value) * 1024L;
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // ignore
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,91 @@
+package com.mengying.fqnovel.utils;
+
+/**
+ * Prometheus 文本暴露格式（version 0.0.4）的最小实现：只覆盖 counter/gauge/histogram 所需的 HELP、TYPE 与样本行。
+ * <p>
+ * 同一指标族的样本须紧跟在对应的 {@link #family} 之后写出。
+ */
+public final class PrometheusTextWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * 写出指标族的 HELP 与 TYPE 行。
+     *
+     * @param type counter、gauge 或 histogram
+     */
+    public PrometheusTextWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ');
+        appendEscaped(help, false);
+        out.append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * 写出一个样本。
+     *
+     * @param labels 标签名与标签值交替排列
+     */
+    public PrometheusTextWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        if (labels.length > 0) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(labels[i]).append("=\"");
+                appendEscaped(labels[i + 1], true);
+                out.append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        appendValue(value);
+        out.append('\n');
+        return this;
+    }
+
+    public PrometheusTextWriter counter(String name, String help, double value) {
+        return family(name, "counter", help).sample(name, value);
+    }
+
+    public PrometheusTextWriter gauge(String name, String help, double value) {
+        return family(name, "gauge", help).sample(name, value);
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private void appendEscaped(String value, boolean quoted) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '"' -> out.append(quoted ? "\\\"" : "\"");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.mengying.fqnovel.web;
+
+import com.mengying.fqnovel.dto.FQNovelResponse;
+import com.mengying.fqnovel.dto.SignerProfile;
+import com.mengying.fqnovel.dto.SignerStatus;
+import com.mengying.fqnovel.service.FQEncryptServiceWorker;
+import com.mengying.fqnovel.service.UpstreamHttpMetrics;
+import com.mengying.fqnovel.utils.PrometheusTextWriter;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * signer 池状态控制器
+ * 提供重置/切换耗时、不可用时长等运行指标，以及 Prometheus 文本格式的签名指标
+ */
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class SignerStatusController {
+
+    private final FQEncryptServiceWorker fqEncryptServiceWorker;
+    private final UpstreamHttpMetrics upstreamHttpMetrics;
+
+    public SignerStatusController(FQEncryptServiceWorker fqEncryptServiceWorker, UpstreamHttpMetrics upstreamHttpMetrics) {
+        this.fqEncryptServiceWorker = fqEncryptServiceWorker;
+        this.upstreamHttpMetrics = upstreamHttpMetrics;
+    }
+
+    /**
+     * 获取 signer 池状态
+     * 路径: /signer/status
+     */
+    @GetMapping("/signer/status")
+    public FQNovelResponse<SignerStatus> getSignerStatus() {
+        return FQNovelResponse.success(fqEncryptServiceWorker.getSignerStatus());
+    }
+
+    /**
+     * 获取签名函数 native 热点报告（需开启 application.unidbg.profile-enabled）
+     * 路径: /signer/profile?top=50
+     */
+    @GetMapping("/signer/profile")
+    public FQNovelResponse<SignerProfile> getSignerProfile(@RequestParam(defaultValue = "50") int top) {
+        return FQNovelResponse.success(fqEncryptServiceWorker.getSignerProfile(top));
+    }
+
+    /**
+     * 获取 Prometheus 文本格式的签名指标（锁等待、执行耗时、结果分类、重置请求与实例明细）与上游连接指标
+     * 路径: /metrics
+     */
+    @GetMapping(value = "/metrics", produces = PrometheusTextWriter.CONTENT_TYPE)
+    public String getSignerMetrics() {
+        return fqEncryptServiceWorker.getSignerMetricsText() + upstreamHttpMetrics.getMetricsText();
+    }
+}